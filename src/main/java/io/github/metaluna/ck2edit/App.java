@@ -23,8 +23,12 @@
  */
 package io.github.metaluna.ck2edit;
 
+import com.airhacks.afterburner.injection.Injector;
+import io.github.metaluna.ck2edit.dataaccess.parser.ParseCache;
+import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
 import io.github.metaluna.ck2edit.gui.main.MainView;
 import io.github.metaluna.ck2edit.util.FxUtil;
+import io.github.metaluna.ck2edit.util.GamePaths;
 import io.github.metaluna.ck2edit.util.LoggingUtil;
 import javafx.application.Application;
 import javafx.scene.Scene;
@@ -42,6 +46,8 @@ public class App extends Application {
   @Override
   public void start(Stage stage) throws Exception {
 
+    Injector.setModelOrService(ParserFactory.class,
+            new ParserFactory(ParserFactory.Mode.STREAM, new ParseCache(GamePaths.getCacheDirectory())));
     LOG.debug("Loading main view...");
     MainView mainView = new MainView();
     Scene scene = new Scene(mainView.getView());
@@ -0,0 +1,131 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The registry of all {@link ContentCategory content categories}. A mod's
+ * directory is walked once for all of them; each file is handed to the
+ * category owning its directory.
+ */
+public final class ContentCategories {
+
+  /**
+   * @return the categories registered as services in
+   * <code>META-INF/services</code>
+   */
+  public static ContentCategories getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param categories the categories, in the order they are shown
+   */
+  public ContentCategories(Iterable<? extends ContentCategory> categories) {
+    LOG.entry(categories);
+    final List<ContentCategory> all = new ArrayList<>();
+    for (ContentCategory category : categories) {
+      if (this.byId.put(category.getId(), category) != null) {
+        throw new IllegalArgumentException(String.format("Category '%s' is registered twice", category.getId()));
+      }
+      if (this.byDirectory.put(category.getDirectory(), category) != null) {
+        throw new IllegalArgumentException(String.format("Directory '%s' belongs to more than one category", category.getDirectory()));
+      }
+      all.add(category);
+    }
+    this.categories = Collections.unmodifiableList(all);
+    this.scanPlanner = new ScanPlanner(this.byDirectory.keySet());
+    LOG.exit();
+  }
+
+  /**
+   * @return all categories, in the order they are shown
+   */
+  public List<ContentCategory> getAll() {
+    return categories;
+  }
+
+  /**
+   * @param id the name of a category
+   * @return the category or an empty optional if there is none by that name
+   */
+  public Optional<ContentCategory> get(String id) {
+    return Optional.ofNullable(this.byId.get(id));
+  }
+
+  /**
+   * @param file a file of any category
+   * @return the category the file belongs to
+   */
+  public Optional<ContentCategory> of(ModFile file) {
+    Objects.requireNonNull(file);
+    return this.categories.stream()
+            .filter(c -> c.getFileType().isInstance(file))
+            .findFirst();
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  /**
+   * @param directory a content directory as reported by the scan planner
+   * @return the category owning the directory
+   */
+  Optional<ContentCategory> forDirectory(String directory) {
+    return Optional.ofNullable(this.byDirectory.get(directory));
+  }
+
+  /**
+   * @return the planner entering the directories of all categories
+   */
+  ScanPlanner getScanPlanner() {
+    return scanPlanner;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+  private final List<ContentCategory> categories;
+  private final Map<String, ContentCategory> byId = new HashMap<>();
+  private final Map<String, ContentCategory> byDirectory = new HashMap<>();
+  private final ScanPlanner scanPlanner;
+
+  private static class DefaultHolder {
+
+    static final ContentCategories INSTANCE = new ContentCategories(
+            ServiceLoader.load(ContentCategory.class, ContentCategory.class.getClassLoader()));
+
+  }
+
+}
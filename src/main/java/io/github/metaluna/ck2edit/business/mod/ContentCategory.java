@@ -0,0 +1,96 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod;
+
+import io.github.metaluna.ck2edit.dataaccess.parser.Diagnostic;
+import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * A kind of content a mod can contain, like opinion modifiers or traits.
+ * Categories are found with {@link java.util.ServiceLoader}; see
+ * {@link ContentCategories}. Implementations need a public constructor
+ * without arguments and must be thread-safe, as files are read on several
+ * threads at once.
+ */
+public interface ContentCategory {
+
+  /**
+   * @return the unique name of the category, e.g.
+   * <code>opinion_modifiers</code>
+   */
+  String getId();
+
+  /**
+   * @return the directory containing the category's files, relative to the
+   * mod and separated by <code>/</code>, e.g.
+   * <code>common/opinion_modifiers</code>
+   */
+  String getDirectory();
+
+  /**
+   * @return the type of the category's files
+   */
+  Class<? extends ModFile> getFileType();
+
+  /**
+   * Reads a file, skipping and reporting what cannot be read.
+   *
+   * @param file the file to read
+   * @param parserFactory creates the parser for the file
+   * @param diagnostics receives the problems found in the file
+   * @return the file's contents
+   */
+  ModFile read(Path file, ParserFactory parserFactory, Consumer<Diagnostic> diagnostics);
+
+  /**
+   * Creates a file without reading it. Its contents are read on first access
+   * or when {@link ModFile#load()} is called; problems found then are only
+   * logged. If the file cannot be read, the access fails and the file stays
+   * unloaded, so it is read again on the next access.
+   *
+   * @param file the file
+   * @param parserFactory creates the parser for the file
+   * @return the file, not loaded yet
+   */
+  ModFile open(Path file, ParserFactory parserFactory);
+
+  /**
+   * Writes a file to disk.
+   *
+   * @param file a file of this category
+   * @param parserFactory creates the parser for updating an existing file
+   */
+  void write(ModFile file, ParserFactory parserFactory);
+
+  /**
+   * Creates a new, empty file.
+   *
+   * @param file where the file will be saved
+   * @return the file
+   */
+  ModFile create(Path file);
+
+}
@@ -0,0 +1,98 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Remembers the files of content directories between loads of a mod. A
+ * listing is reused as long as the directory's modification time is
+ * unchanged, which is the case unless files were added, removed or renamed.
+ * <p>
+ * Only directories on the default file system are cached. Directories in
+ * zip archives carry no reliable modification time and are cheap to list
+ * anyway. The cache is thread-safe.
+ */
+final class ListingCache {
+
+  /**
+   * Looks up the listing of a directory.
+   *
+   * @param directory the directory
+   * @param modified the directory's current modification time
+   * @return the files of the directory or an empty optional if they have to
+   * be listed again
+   */
+  Optional<List<Path>> get(Path directory, FileTime modified) {
+    LOG.entry(directory, modified);
+    final Listing listing = this.listings.get(directory);
+    if (listing == null || !listing.modified.equals(modified)) {
+      return LOG.exit(Optional.empty());
+    }
+    return LOG.exit(Optional.of(listing.files));
+  }
+
+  /**
+   * Stores the listing of a directory, replacing any previous one.
+   *
+   * @param directory the directory
+   * @param modified the directory's modification time when it was listed
+   * @param files the files of the directory
+   */
+  void put(Path directory, FileTime modified, List<Path> files) {
+    LOG.entry(directory, modified, files);
+    if (directory.getFileSystem() == FileSystems.getDefault()) {
+      this.listings.put(directory, new Listing(Objects.requireNonNull(modified), files));
+    }
+    LOG.exit();
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+  private final Map<Path, Listing> listings = new ConcurrentHashMap<>();
+
+  private static class Listing {
+
+    Listing(FileTime modified, List<Path> files) {
+      this.modified = modified;
+      this.files = Collections.unmodifiableList(files);
+    }
+
+    final FileTime modified;
+    final List<Path> files;
+
+  }
+
+}
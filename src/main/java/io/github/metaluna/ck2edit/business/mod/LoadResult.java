@@ -0,0 +1,70 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod;
+
+import io.github.metaluna.ck2edit.dataaccess.parser.Diagnostic;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The outcome of loading something that may partially fail. Problems with
+ * single files or statements do not stop the loading; they are collected
+ * instead and reported together with whatever could be loaded.
+ *
+ * @param <T> the type of the loaded object
+ */
+public final class LoadResult<T> {
+
+  /**
+   * Constructor
+   *
+   * @param value the loaded object
+   * @param diagnostics the problems found while loading
+   */
+  public LoadResult(T value, List<Diagnostic> diagnostics) {
+    this.value = Objects.requireNonNull(value);
+    this.diagnostics = Collections.unmodifiableList(Objects.requireNonNull(diagnostics));
+  }
+
+  public T getValue() {
+    return value;
+  }
+
+  public List<Diagnostic> getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * @return <code>true</code> if anything could not be loaded
+   */
+  public boolean hasProblems() {
+    return !diagnostics.isEmpty();
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final T value;
+  private final List<Diagnostic> diagnostics;
+
+}
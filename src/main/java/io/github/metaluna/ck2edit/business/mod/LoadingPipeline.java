@@ -0,0 +1,275 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod;
+
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Loads files in stages that run at the same time. The caller walks the
+ * directories and submits the files it finds, a pool of workers loads them,
+ * and a single binder thread hands the results on in the order the files
+ * were submitted, no matter which worker finished first.
+ * <p>
+ * The stages are connected by bounded queues and only a fixed number of
+ * files may be submitted but not yet bound. A walk that is faster than the
+ * workers blocks instead of piling up loaded files in memory.
+ *
+ * @param <S> the type of a submitted file
+ * @param <T> the type of a loaded file
+ */
+final class LoadingPipeline<S, T> implements AutoCloseable {
+
+  /**
+   * Constructor. Starts the workers and the binder.
+   *
+   * @param loader loads a single file; called by several workers at once
+   * @param binder receives the loaded files in order; always called by the
+   * same thread
+   * @param workers the number of files loaded at the same time
+   * @param capacity the number of files that may be in flight at once
+   */
+  LoadingPipeline(Function<? super S, ? extends T> loader, Consumer<T> binder, int workers, int capacity) {
+    LOG.entry(loader, binder, workers, capacity);
+    if (workers < 1 || capacity < 1) {
+      throw new IllegalArgumentException(String.format("Need at least one worker and capacity, but got %d and %d", workers, capacity));
+    }
+    this.loader = Objects.requireNonNull(loader);
+    this.binder = Objects.requireNonNull(binder);
+    this.workers = workers;
+    this.capacity = capacity;
+    this.files = new ArrayBlockingQueue<>(capacity);
+    this.loaded = new ArrayBlockingQueue<>(capacity);
+    this.window = new Semaphore(capacity);
+    this.executor = Executors.newFixedThreadPool(workers + 1, task -> {
+      final Thread thread = new Thread(task, "mod-loader");
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (int i = 0; i < workers; i++) {
+      this.executor.execute(this::load);
+    }
+    this.binding = this.executor.submit(this::bind);
+    LOG.exit();
+  }
+
+  /**
+   * Hands a file to the workers. Blocks while too many files are in flight.
+   *
+   * @param file the file to load
+   * @throws InterruptedIOException if the thread is interrupted while waiting
+   * @throws IllegalStateException if the pipeline is finished or the binder
+   * has stopped
+   */
+  void submit(S file) throws InterruptedIOException {
+    LOG.entry(file);
+    Objects.requireNonNull(file);
+    if (this.finished) {
+      throw new IllegalStateException("Pipeline is already finished");
+    }
+    try {
+      this.window.acquire();
+      if (this.stopped) {
+        throw new IllegalStateException("Pipeline has stopped");
+      }
+      this.files.put(new Item<>(this.submitted++, file));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while loading " + file);
+    }
+    LOG.exit();
+  }
+
+  /**
+   * Waits until all submitted files are loaded and bound.
+   *
+   * @throws InterruptedIOException if the thread is interrupted while waiting
+   * @throws RuntimeException the first exception thrown by the loader or
+   * binder
+   * @throws Error the first error thrown by the loader or binder, if it came
+   * before any exception
+   */
+  void finish() throws InterruptedIOException {
+    LOG.entry();
+    this.finished = true;
+    try {
+      for (int i = 0; i < this.workers; i++) {
+        this.files.put(endMarker());
+      }
+      this.binding.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for files to load");
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("Binder failed", ex.getCause());
+    } finally {
+      this.executor.shutdownNow();
+    }
+    if (this.failure instanceof Error) {
+      throw (Error) this.failure;
+    } else if (this.failure != null) {
+      throw (RuntimeException) this.failure;
+    }
+    LOG.exit();
+  }
+
+  /**
+   * Stops all stages. Files that are not bound yet are dropped.
+   */
+  @Override
+  public void close() {
+    this.executor.shutdownNow();
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+  /** Index of the item a worker sends after its last file. */
+  private static final int END = -1;
+
+  private final Function<? super S, ? extends T> loader;
+  private final Consumer<T> binder;
+  private final int workers;
+  private final int capacity;
+  private final BlockingQueue<Item<S, T>> files;
+  private final BlockingQueue<Item<S, T>> loaded;
+  private final Semaphore window;
+  private final ExecutorService executor;
+  private final Future<?> binding;
+  private int submitted;
+  private boolean finished;
+  /** Written by the binder only, read after it has finished. */
+  private Throwable failure;
+  /** Set once the binder has ended, normally or not. */
+  private volatile boolean stopped;
+
+  private Item<S, T> endMarker() {
+    return new Item<>(END, null);
+  }
+
+  /**
+   * Worker stage: loads files until it receives the end marker. Whatever the
+   * loader throws, even an error, is handed to the binder with the file.
+   */
+  private void load() {
+    try {
+      for (Item<S, T> item = this.files.take(); item.index != END; item = this.files.take()) {
+        try {
+          item.value = this.loader.apply(item.file);
+        } catch (Throwable ex) {
+          item.error = ex;
+        }
+        this.loaded.put(item);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      // the binder waits for every worker's end marker
+      try {
+        this.loaded.put(endMarker());
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Binder stage: passes loaded files on in order until every worker has
+   * ended. However it ends, a caller waiting in {@link #submit} is woken up.
+   */
+  private void bind() {
+    try {
+      bindAll();
+    } finally {
+      this.stopped = true;
+      this.window.release(this.capacity);
+    }
+  }
+
+  private void bindAll() {
+    final Map<Integer, Item<S, T>> pending = new HashMap<>();
+    int next = 0;
+    int running = this.workers;
+    while (running > 0) {
+      final Item<S, T> item;
+      try {
+        item = this.loaded.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (item.index == END) {
+        running--;
+        continue;
+      }
+      pending.put(item.index, item);
+      for (Item<S, T> ready = pending.remove(next); ready != null; ready = pending.remove(next)) {
+        next++;
+        try {
+          if (ready.error != null) {
+            throw ready.error;
+          }
+          this.binder.accept(ready.value);
+        } catch (Throwable ex) {
+          LOG.warn("Unable to load %s: %s", ready.file, ex);
+          if (this.failure == null) {
+            this.failure = ex;
+          }
+        } finally {
+          this.window.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * A file on its way through the pipeline.
+   */
+  private static class Item<S, T> {
+
+    Item(int index, S file) {
+      this.index = index;
+      this.file = file;
+    }
+
+    final int index;
+    final S file;
+    T value;
+    Throwable error;
+
+  }
+
+}
@@ -38,6 +38,12 @@ public interface Mod {
   String getUserDir();
   Path getDescriptionFile();
   List<ModFile> getOpinionModifiers();
+
+  /**
+   * @param category the name of a {@link ContentCategory}
+   * @return the mod's files of that category in the order they were added
+   */
+  List<ModFile> getFiles(String category);
   void setArchive(String archive);
   void setDependencies(List<String> dependencies);
   void setName(String name);
@@ -51,4 +57,10 @@ public interface Mod {
   void addDependency(String dependency);
   void setDescriptionFile(Path descriptionFile);
   void addOpinionModifier(ModFile file);
+
+  /**
+   * @param category the name of the file's {@link ContentCategory}
+   * @param file the file to add
+   */
+  void addFile(String category, ModFile file);
 }
@@ -23,6 +23,7 @@
  */
 package io.github.metaluna.ck2edit.business.mod;
 
+import io.github.metaluna.ck2edit.dataaccess.parser.TextEncoding;
 import java.nio.file.Path;
 
 /**
@@ -32,5 +33,22 @@ public interface ModFile {
 
   Path getPath();
   String getName();
+
+  /**
+   * @return the encoding the file was read in and will be written in
+   */
+  TextEncoding getEncoding();
+
+  /**
+   * @return <code>false</code> if the file's contents have not been read yet;
+   * see {@link ContentCategory#open}
+   */
+  boolean isLoaded();
+
+  /**
+   * Reads the file's contents now if that has not happened yet. They are
+   * otherwise read on first access.
+   */
+  void load();
   
 }
@@ -24,6 +24,7 @@
 
 package io.github.metaluna.ck2edit.business.mod;
 
+import io.github.metaluna.ck2edit.dataaccess.parser.TextEncoding;
 import java.nio.file.Path;
 import java.util.Objects;
 import org.apache.logging.log4j.LogManager;
@@ -50,14 +51,73 @@ public abstract class ModFileImpl implements ModFile {
     return this.path.getFileName().toString();
   }
 
+  @Override
+  public TextEncoding getEncoding() {
+    ensureLoaded();
+    return this.encoding;
+  }
+
+  public void setEncoding(TextEncoding encoding) {
+    this.encoding = Objects.requireNonNull(encoding);
+  }
+
+  @Override
+  public boolean isLoaded() {
+    return this.loader == null;
+  }
+
+  @Override
+  public void load() {
+    ensureLoaded();
+  }
+
   @Override
   public String toString() {
     return this.getName();
   }
 
+  // ---vvv--- PROTECTED ---vvv---
+  /**
+   * Makes the contents be read on first access instead of now.
+   *
+   * @param loader fills this file; runs once, or again on the next access if
+   * it failed
+   */
+  protected void setLoader(Runnable loader) {
+    this.loader = Objects.requireNonNull(loader);
+  }
+
+  /**
+   * Reads the contents if that has not happened yet. Must be called by every
+   * method accessing them. Other threads wait until the contents are read.
+   */
+  protected final void ensureLoaded() {
+    if (this.loader == null) {
+      return;
+    }
+    synchronized (this) {
+      // the loader itself fills the file through the accessors
+      if (this.loader == null || this.loading) {
+        return;
+      }
+      LOG.debug("Loading %s", this.path);
+      this.loading = true;
+      try {
+        this.loader.run();
+        this.loader = null;
+      } finally {
+        this.loading = false;
+      }
+    }
+  }
+
   // ---vvv--- PRIVATE ---vvv---
   private static final Logger LOG = LogManager.getFormatterLogger();
   
   /** the path to the file */
   private final Path path;
+  private TextEncoding encoding = TextEncoding.WINDOWS_1252;
+  /** reads the contents, <code>null</code> once they are read */
+  private volatile Runnable loader;
+  private boolean loading;
 }
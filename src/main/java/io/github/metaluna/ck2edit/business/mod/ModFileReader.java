@@ -23,7 +23,10 @@
  */
 package io.github.metaluna.ck2edit.business.mod;
 
+import io.github.metaluna.ck2edit.dataaccess.parser.Diagnostic;
 import io.github.metaluna.ck2edit.dataaccess.parser.Node;
+import io.github.metaluna.ck2edit.dataaccess.parser.SourcePositions;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
@@ -57,6 +60,22 @@ public abstract class ModFileReader {
     return LOG.exit(result);
   }
   
+  /**
+   * Describes a problem with a node, at the node's position if it is known.
+   *
+   * @param file the file the node was read from
+   * @param root the root of the node's tree
+   * @param node the node with the problem
+   * @param message the description of the problem
+   * @return the diagnostic
+   */
+  protected Diagnostic diagnose(Path file, Node root, Node node, String message) {
+    return SourcePositions.of(root)
+            .filter(positions -> positions.contains(node))
+            .map(positions -> new Diagnostic(file, positions.getStartLine(node), positions.getStartColumn(node), message))
+            .orElseGet(() -> new Diagnostic(file, message));
+  }
+
   protected class AttributeSetter<S, T> {
 
     public final BiConsumer<S, T> setter;
@@ -93,7 +112,7 @@ public abstract class ModFileReader {
    */
   private boolean getBooleanValue(Node node) {
     LOG.entry(node);
-    boolean result = node.getChildren().get(0).getName().equals("yes");
+    boolean result = node.getChildren().get(0).getBooleanValue();
     return LOG.exit(result);
   }
 
@@ -105,7 +124,7 @@ public abstract class ModFileReader {
    */
   private int getIntegerValue(Node node) {
     LOG.entry(node);
-    int result = Integer.parseInt(node.getChildren().get(0).getName());
+    int result = node.getChildren().get(0).getIntValue();
     return LOG.exit(result);
   }
 }
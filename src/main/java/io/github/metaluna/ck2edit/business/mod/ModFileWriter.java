@@ -23,15 +23,29 @@
  */
 package io.github.metaluna.ck2edit.business.mod;
 
+import io.github.metaluna.ck2edit.dataaccess.parser.ConcreteTree;
 import io.github.metaluna.ck2edit.dataaccess.parser.Node;
+import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
+import io.github.metaluna.ck2edit.dataaccess.parser.TextEncoding;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -43,24 +57,93 @@ public abstract class ModFileWriter {
   /**
    * Writes the file to disk. Template method using {@link #print() } and
    * {@link #validate()}.
+   * <p>
+   * New files are written straight from {@link #print()} without building a
+   * tree first. New files with many entries (see {@link #getEntryCount()})
+   * are split into chunks that are printed concurrently if the writer
+   * {@link #supportsRanges() supports it}. If the file already
+   * exists, only the parts that changed are replaced. Comments, formatting
+   * and the encoding of everything else are kept. Many entries are printed in
+   * chunks and compared to the existing file concurrently in this case, too.
    */
   public void write() {
     LOG.entry();
     this.validate();
-    Node root = print();
-    try (BufferedWriter writer = Files.newBufferedWriter(this.file, CHARSET)) {
-      writer.write(root.toString());
+    try {
+      final boolean chunked = supportsRanges() && getEntryCount() >= this.chunkingThreshold;
+      if (Files.exists(this.file)) {
+        update(chunked ? printTreeInChunks(getEntryCount()) : printTree());
+      } else if (chunked) {
+        writeInChunks(getEntryCount());
+      } else {
+        try (Writer writer = newWriter(this.encoding)) {
+          this.output.set(new TextOutput(writer));
+          print();
+        }
+      }
     } catch (IOException ex) {
       LOG.catching(ex);
+    } finally {
+      this.output.remove();
     }
     LOG.exit();
   }
 
+  /**
+   * Sets from how many entries on the file is printed in chunks. Defaults to
+   * 4096.
+   *
+   * @param entries the number of entries, at least 1
+   * @see #write()
+   */
+  public void setChunkingThreshold(int entries) {
+    if (entries < 1) {
+      throw new IllegalArgumentException(String.format("Chunking threshold must be > 0, but is %d", entries));
+    }
+    this.chunkingThreshold = entries;
+  }
+
   // ---vvv--- PROTECTED ---vvv---
   /**
-   * Converts the mod file's data into a node structure needed for persisting.
+   * Writes the mod file's data by calling {@link #beginBlock(String)},
+   * {@link #pair(String, String)}, {@link #list(String, List)} and
+   * {@link #endBlock()}.
+   *
+   * @throws IOException if writing fails
+   */
+  protected abstract void print() throws IOException;
+
+  /**
+   * Override together with {@link #getEntryCount()} and
+   * {@link #print(int, int)} if the file consists of top-level entries that
+   * can be printed independently of each other.
+   *
+   * @return <code>true</code> if ranges of entries can be printed
    */
-  protected abstract Node print();
+  protected boolean supportsRanges() {
+    return false;
+  }
+
+  /**
+   * @return the number of top-level entries; only used if
+   * {@link #supportsRanges()} is <code>true</code>
+   */
+  protected int getEntryCount() {
+    return 0;
+  }
+
+  /**
+   * Writes a range of the top-level entries. Large files are printed in
+   * chunks on several threads at once, so this must not change any state.
+   * Only called if {@link #supportsRanges()} is <code>true</code>.
+   *
+   * @param from the index of the first entry
+   * @param to the index after the last entry
+   * @throws IOException if writing fails
+   */
+  protected void print(int from, int to) throws IOException {
+    throw new UnsupportedOperationException("Printing ranges of entries is not supported");
+  }
 
   /**
    * Will be called before {@link #print()}. Throw any exceptions in here.
@@ -72,55 +155,354 @@ public abstract class ModFileWriter {
    * @param file the location of the file 
    */
   protected ModFileWriter(Path file) {
-    LOG.entry(file);
+    this(file, TextEncoding.WINDOWS_1252);
+  }
+
+  /**
+   * Constructor
+   * @param file the location of the file
+   * @param encoding the encoding of a new file; existing files keep theirs
+   */
+  protected ModFileWriter(Path file, TextEncoding encoding) {
+    this(file, encoding, DEFAULT_PARSERS);
+  }
+
+  /**
+   * Constructor
+   * @param file the location of the file
+   * @param encoding the encoding of a new file; existing files keep theirs
+   * @param parserFactory reads an existing file to merge the changes into it
+   */
+  protected ModFileWriter(Path file, TextEncoding encoding, ParserFactory parserFactory) {
+    LOG.entry(file, encoding);
     this.file = Objects.requireNonNull(file);
+    this.encoding = Objects.requireNonNull(encoding);
+    this.parserFactory = Objects.requireNonNull(parserFactory);
+    LOG.exit();
+  }
+
+  /**
+   * Opens a block, i.e. <code>name = { ... }</code>. Everything written until
+   * the matching {@link #endBlock()} goes into it.
+   *
+   * @param name the name of the block
+   * @throws IOException if writing fails
+   */
+  protected void beginBlock(String name) throws IOException {
+    LOG.entry(name);
+    this.output.get().beginBlock(Objects.requireNonNull(name));
+    LOG.exit();
+  }
+
+  /**
+   * Closes the block opened last.
+   *
+   * @throws IOException if writing fails
+   */
+  protected void endBlock() throws IOException {
+    LOG.entry();
+    this.output.get().endBlock();
     LOG.exit();
   }
 
-  protected void addSimpleValue(Node result, String name, Optional<Integer> value) {
-    LOG.entry(result, name, value);
-    value.ifPresent((Integer v) -> addSimpleValue(result, name, v));
+  protected void pair(String name, Optional<Integer> value) throws IOException {
+    LOG.entry(name, value);
+    if (value.isPresent()) {
+      pair(name, value.get());
+    }
     LOG.exit();
   }
 
-  protected void addSimpleValue(Node result, String name, String value) {
-    LOG.entry(result, name, value);
+  protected void pair(String name, String value) throws IOException {
+    LOG.entry(name, value);
     if (value == null) {
       return;
     }
-    result.addPair(name, value);
+    this.output.get().pair(Objects.requireNonNull(name), value);
     LOG.exit();
   }
 
-  protected void addSimpleValue(Node result, String name, boolean value) {
-    LOG.entry(result, name, value);
+  protected void pair(String name, boolean value) throws IOException {
+    LOG.entry(name, value);
     if (value) {
-      addSimpleValue(result, name, "yes");
+      pair(name, "yes");
     } else {
       LOG.trace("Skipping negative boolean for %s", name);
     }
     LOG.exit();
   }
 
-  protected void addSimpleValue(Node result, String name, int value) {
-    LOG.entry(result, name, value);
-    String stringValue = Integer.toString(value);
-    addSimpleValue(result, name, stringValue);
+  protected void pair(String name, int value) throws IOException {
+    LOG.entry(name, value);
+    pair(name, Integer.toString(value));
     LOG.exit();
   }
 
-  protected void addList(Node result, String name, List<String> values) {
-    LOG.entry(result, name, values);
+  protected void list(String name, List<String> values) throws IOException {
+    LOG.entry(name, values);
     if (values == null || values.isEmpty()) {
       return;
     }
-    result.addList(name, values);
+    this.output.get().list(Objects.requireNonNull(name), values);
     LOG.exit();
   }
 
   // ---vvv--- PRIVATE ---vvv---
   private static final Logger LOG = LogManager.getFormatterLogger();
-  private static final Charset CHARSET = Charset.forName("Windows-1252");
+  private static final int DEFAULT_CHUNKING_THRESHOLD = 4096;
+  private static final ParserFactory DEFAULT_PARSERS = new ParserFactory();
 
   private final Path file;
+  private final TextEncoding encoding;
+  private final ParserFactory parserFactory;
+  private int chunkingThreshold = DEFAULT_CHUNKING_THRESHOLD;
+  /** Where the printing thread writes to; chunks are printed on several. */
+  private final ThreadLocal<Output> output = new ThreadLocal<>();
+
+  private void update(Node root) throws IOException {
+    LOG.entry(root);
+    final ConcreteTree existing = this.parserFactory.fromFile(this.file).parseConcrete();
+    existing.update(root);
+    if (existing.isModified()) {
+      try (Writer writer = newWriter(existing.getEncoding())) {
+        existing.write(writer);
+      }
+    } else {
+      LOG.debug("File '%s' is unchanged", this.file);
+    }
+    LOG.exit();
+  }
+
+  private Node printTree() throws IOException {
+    final TreeOutput tree = new TreeOutput();
+    this.output.set(tree);
+    print();
+    return tree.getRoot();
+  }
+
+  /**
+   * Prints the entries in chunks on the common fork-join pool and joins the
+   * chunks' entries in order under a single root.
+   */
+  private Node printTreeInChunks(int entries) throws IOException {
+    LOG.entry(entries);
+    final int chunkSize = chunkSize(entries);
+    final int chunks = (entries + chunkSize - 1) / chunkSize;
+    final List<Node> chunkRoots;
+    try {
+      chunkRoots = IntStream.range(0, chunks)
+              .parallel()
+              .mapToObj(i -> printTreeChunk(i * chunkSize, Math.min(entries, (i + 1) * chunkSize)))
+              .collect(Collectors.toList());
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    final Node result = Node.createRoot();
+    chunkRoots.forEach(chunk -> chunk.getChildren().forEach(result::addChild));
+    LOG.debug("Printed %d entries in %d chunks for '%s'", entries, chunks, this.file);
+    LOG.exit();
+    return result;
+  }
+
+  private Node printTreeChunk(int from, int to) {
+    final TreeOutput tree = new TreeOutput();
+    this.output.set(tree);
+    try {
+      print(from, to);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    } finally {
+      this.output.remove();
+    }
+    return tree.getRoot();
+  }
+
+  /**
+   * Chunks are at least an eighth of the threshold, so that small files are
+   * not split into tiny pieces.
+   */
+  private int chunkSize(int entries) {
+    final int minimum = Math.max(1, this.chunkingThreshold / 8);
+    return Math.max(minimum, entries / (ForkJoinPool.getCommonPoolParallelism() * 4));
+  }
+
+  private Writer newWriter(TextEncoding fileEncoding) throws IOException {
+    return new BufferedWriter(fileEncoding.newWriter(Files.newOutputStream(this.file)));
+  }
+
+  /**
+   * Prints the entries in chunks on the common fork-join pool and writes the
+   * chunks in order with a single gathering write.
+   */
+  private void writeInChunks(int entries) throws IOException {
+    LOG.entry(entries);
+    final int chunkSize = chunkSize(entries);
+    final int chunks = (entries + chunkSize - 1) / chunkSize;
+    final ByteBuffer[] buffers;
+    try {
+      buffers = IntStream.range(0, chunks)
+              .parallel()
+              .mapToObj(i -> printChunk(i * chunkSize, Math.min(entries, (i + 1) * chunkSize), i == 0))
+              .toArray(ByteBuffer[]::new);
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    long remaining = 0;
+    for (ByteBuffer buffer : buffers) {
+      remaining += buffer.remaining();
+    }
+    try (FileChannel channel = FileChannel.open(this.file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (remaining > 0) {
+        remaining -= channel.write(buffers);
+      }
+    }
+    LOG.debug("Wrote %d entries in %d chunks to '%s'", entries, chunks, this.file);
+    LOG.exit();
+  }
+
+  /**
+   * @param first whether this is the start of the file, where a byte order
+   * mark goes
+   * @return the encoded chunk
+   */
+  private ByteBuffer printChunk(int from, int to, boolean first) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (Writer writer = first
+            ? this.encoding.newWriter(bytes)
+            : new OutputStreamWriter(bytes, this.encoding.getCharset())) {
+      this.output.set(new TextOutput(writer));
+      print(from, to);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    } finally {
+      this.output.remove();
+    }
+    return ByteBuffer.wrap(bytes.toByteArray());
+  }
+
+  /**
+   * Receives what {@link #print()} writes.
+   */
+  private interface Output {
+
+    void beginBlock(String name) throws IOException;
+
+    void endBlock() throws IOException;
+
+    void pair(String name, String value) throws IOException;
+
+    void list(String name, List<String> values) throws IOException;
+
+  }
+
+  /**
+   * Writes text in the same format as {@link Node#write(Appendable)}.
+   */
+  private static class TextOutput implements Output {
+
+    TextOutput(Writer out) {
+      this.out = out;
+    }
+
+    @Override
+    public void beginBlock(String name) throws IOException {
+      indent();
+      this.out.append(name).append(" = { ").append(NEW_LINE);
+      this.depth++;
+    }
+
+    @Override
+    public void endBlock() throws IOException {
+      if (this.depth == 0) {
+        throw new IllegalStateException("No block to end");
+      }
+      this.depth--;
+      indent();
+      this.out.append('}').append(NEW_LINE);
+    }
+
+    @Override
+    public void pair(String name, String value) throws IOException {
+      indent();
+      this.out.append(name).append(" = ").append(value).append(NEW_LINE);
+    }
+
+    @Override
+    public void list(String name, List<String> values) throws IOException {
+      if (values.size() == 1) {
+        // a node with a single leaf has always been printed as a pair
+        pair(name, values.get(0));
+        return;
+      }
+      indent();
+      this.out.append(name).append(" = {");
+      for (String value : values) {
+        this.out.append(' ').append(value);
+      }
+      this.out.append(" }").append(NEW_LINE);
+    }
+
+    // ---vvv--- PRIVATE ---vvv---
+    private static final String INDENTATION = "\t";
+    private static final String NEW_LINE = "\r\n";
+
+    private final Writer out;
+    private int depth;
+
+    private void indent() throws IOException {
+      for (int i = 0; i < this.depth; i++) {
+        this.out.append(INDENTATION);
+      }
+    }
+
+  }
+
+  /**
+   * Builds a tree, which is needed to merge the output into an existing
+   * file.
+   */
+  private static class TreeOutput implements Output {
+
+    TreeOutput() {
+      this.parents.push(Node.createRoot());
+    }
+
+    Node getRoot() {
+      if (this.parents.size() != 1) {
+        throw new IllegalStateException("Block was not ended");
+      }
+      return this.parents.peek();
+    }
+
+    @Override
+    public void beginBlock(String name) {
+      final Node block = Node.create(name);
+      this.parents.peek().addChild(block);
+      this.parents.push(block);
+    }
+
+    @Override
+    public void endBlock() {
+      if (this.parents.size() == 1) {
+        throw new IllegalStateException("No block to end");
+      }
+      this.parents.pop();
+    }
+
+    @Override
+    public void pair(String name, String value) {
+      this.parents.peek().addPair(name, value);
+    }
+
+    @Override
+    public void list(String name, List<String> values) {
+      this.parents.peek().addList(name, values);
+    }
+
+    // ---vvv--- PRIVATE ---vvv---
+    private final Deque<Node> parents = new ArrayDeque<>();
+
+  }
+
 }
@@ -24,10 +24,14 @@
 package io.github.metaluna.ck2edit.business.mod;
 
 import com.google.common.base.MoreObjects;
+import io.github.metaluna.ck2edit.business.mod.opinionmodifier.OpinionModifierCategory;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 class ModImpl implements Mod {
 
@@ -156,21 +160,30 @@ class ModImpl implements Mod {
 
   @Override
   public List<ModFile> getOpinionModifiers() {
-    if (this.opinionModifiers == null) {
+    return getFiles(OpinionModifierCategory.ID);
+  }
+
+  @Override
+  public void addOpinionModifier(ModFile file) {
+    addFile(OpinionModifierCategory.ID, file);
+  }
+
+  @Override
+  public List<ModFile> getFiles(String category) {
+    final List<ModFile> result = this.files.get(category);
+    if (result == null) {
       return Collections.emptyList();
     }
-    return this.opinionModifiers;
+    return result;
   }
 
   @Override
-  public void addOpinionModifier(ModFile file) {
+  public void addFile(String category, ModFile file) {
+    Objects.requireNonNull(category);
     if (file == null) {
       return;
     }
-    if (this.opinionModifiers == null) {
-      this.opinionModifiers = new ArrayList<>();
-    }
-    this.opinionModifiers.add(file);
+    this.files.computeIfAbsent(category, c -> new ArrayList<>()).add(file);
   }
 
   @Override
@@ -187,8 +200,12 @@ class ModImpl implements Mod {
             .add("tags", tags)
             .add("description file", descriptionFile);
     
-    int fileCount = opinionModifiers != null ? opinionModifiers.size() : 0;
-    helper.add("opinion modifiers", fileCount);
+    helper.add("opinion modifiers", getOpinionModifiers().size());
+    this.files.forEach((category, categoryFiles) -> {
+      if (!category.equals(OpinionModifierCategory.ID)) {
+        helper.add(category, categoryFiles.size());
+      }
+    });
     
     return helper.toString();
   }
@@ -212,7 +229,7 @@ class ModImpl implements Mod {
   private List<String> tags;
   /** administrative */
   private Path descriptionFile;
-  /** administrative */
-  private List<ModFile> opinionModifiers;
+  /** administrative, files by category */
+  private final Map<String, List<ModFile>> files = new LinkedHashMap<>();
 
 }
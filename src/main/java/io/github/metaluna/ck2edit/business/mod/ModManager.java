@@ -23,8 +23,6 @@
  */
 package io.github.metaluna.ck2edit.business.mod;
 
-import io.github.metaluna.ck2edit.business.mod.opinionmodifier.OpinionModifierFile;
-import io.github.metaluna.ck2edit.business.mod.opinionmodifier.OpinionModifierManager;
 import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -36,12 +34,67 @@ import org.apache.logging.log4j.Logger;
 public class ModManager {
 
   public Mod fromFile(Path modFile) {
-    return new ModReader(modFile, parserFactory.fromFile(modFile), new OpinionModifierManager(parserFactory)).read();
+    return newReader(modFile).read();
+  }
+
+  /**
+   * Loads a mod, collecting the problems with its files instead of failing on
+   * the first one.
+   *
+   * @param modFile the mod's description file
+   * @return the mod with everything that could be read and the problems
+   */
+  public LoadResult<Mod> load(Path modFile) {
+    return newReader(modFile).load();
+  }
+
+  /**
+   * Opens a mod for editing. Only the mod's description is read; its files
+   * are listed and read when they are first accessed.
+   *
+   * @param modFile the mod's description file
+   * @return the mod with files that are not loaded yet
+   */
+  public Mod open(Path modFile) {
+    return newReader(modFile).open();
+  }
+
+  /**
+   * Closes a mod that was opened for editing. Its files that have not been
+   * read yet can no longer be read afterwards.
+   *
+   * @param mod the mod
+   * @see #open(Path)
+   */
+  public void close(Mod mod) {
+    LOG.entry(mod);
+    ModReader.archiveOf(mod).ifPresent(this.archives::close);
+    LOG.exit();
+  }
+
+  /**
+   * Sets how many of a mod's files are loaded at the same time. Defaults to
+   * the number of processors.
+   *
+   * @param loadingThreads the number of threads, at least 1
+   */
+  public void setLoadingThreads(int loadingThreads) {
+    if (loadingThreads < 1) {
+      throw new IllegalArgumentException(String.format("Number of loading threads must be > 0, but is %d", loadingThreads));
+    }
+    this.loadingThreads = loadingThreads;
   }
   
-  public void saveFile(OpinionModifierFile omFile) {
-    LOG.entry(omFile);
-    new OpinionModifierManager(parserFactory).saveFile(omFile);
+  /**
+   * Writes a file with the writer of its content category.
+   *
+   * @param modFile the file to save
+   */
+  public void saveFile(ModFile modFile) {
+    LOG.entry(modFile);
+    final ContentCategory category = ContentCategories.getDefault().of(modFile)
+            .orElseThrow(() -> new IllegalArgumentException(String.format("No content category for file '%s'", modFile)));
+    category.write(modFile, parserFactory);
     LOG.exit();
   }
 
@@ -60,5 +113,15 @@ public class ModManager {
   
   @Inject
   ParserFactory parserFactory;
-  
+
+  // ---vvv--- PRIVATE ---vvv---
+  private int loadingThreads = ModReader.DEFAULT_WORKERS;
+  private final ListingCache listingCache = new ListingCache();
+  private final OpenArchives archives = new OpenArchives();
+
+  private ModReader newReader(Path modFile) {
+    return new ModReader(modFile, parserFactory.fromFile(modFile), parserFactory,
+            ContentCategories.getDefault(), this.loadingThreads, this.listingCache, this.archives);
+  }
+
 }
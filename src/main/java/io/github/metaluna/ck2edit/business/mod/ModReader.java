@@ -23,19 +23,20 @@
  */
 package io.github.metaluna.ck2edit.business.mod;
 
-import io.github.metaluna.ck2edit.business.mod.opinionmodifier.OpinionModifierFile;
-import io.github.metaluna.ck2edit.business.mod.opinionmodifier.OpinionModifierManager;
+import io.github.metaluna.ck2edit.dataaccess.parser.Diagnostic;
 import io.github.metaluna.ck2edit.dataaccess.parser.Node;
 import io.github.metaluna.ck2edit.dataaccess.parser.Parser;
+import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import javax.inject.Inject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -52,29 +53,107 @@ class ModReader extends ModFileReader {
    */
   public Mod read() {
     LOG.entry();
-    Node root = parser.parse();
+    LoadResult<Mod> result = load();
+    result.getDiagnostics().forEach(diagnostic -> LOG.warn("%s", diagnostic));
+    return LOG.exit(result.getValue());
+  }
+
+  /**
+   * Reads a complete mod from a file on disk. Files and statements that cannot
+   * be read are skipped, so a few broken files do not stop the whole mod from
+   * loading.
+   *
+   * @return the parsed mod and the problems found in its files
+   */
+  public LoadResult<Mod> load() {
+    LOG.entry();
+    final List<Diagnostic> diagnostics = new ArrayList<>();
+    Node root = parser.parse(diagnostics::add);
+    Mod result = parseDescription(root);
+    fetchFileList(result, diagnostics);
+    return LOG.exit(new LoadResult<>(result, diagnostics));
+  }
+
+  /**
+   * Reads a mod's description and lists its files without reading them.
+   * The files' contents are read on first access, so this is fast even for
+   * mods with thousands of files. Problems are logged. A zip archive
+   * containing the files stays open until it is closed through the
+   * {@link OpenArchives} of this reader.
+   *
+   * @return the mod with files that are not loaded yet
+   * @see ContentCategory#open
+   */
+  public Mod open() {
+    LOG.entry();
+    Node root = parser.parse(diagnostic -> LOG.warn("%s", diagnostic));
     Mod result = parseDescription(root);
-    fetchFileList(result);
+    listFiles(result);
     return LOG.exit(result);
   }
 
   // ---vvv--- PACKAGE-PRIVATE ---vvv---
-  ModReader(Path modFile, Parser parser, OpinionModifierManager opinionModifierManager) {
-    LOG.entry(modFile, parser);
+  /** The number of files loaded at the same time if not configured otherwise. */
+  static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+
+  ModReader(Path modFile, Parser parser, ParserFactory parserFactory) {
+    this(modFile, parser, parserFactory, ContentCategories.getDefault(), DEFAULT_WORKERS, new ListingCache(),
+            new OpenArchives());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param modFile the mod's description file
+   * @param parser the parser of the description file
+   * @param parserFactory creates the parsers of the mod's files
+   * @param categories the kinds of content to load
+   * @param workers the number of files loaded at the same time
+   * @param listingCache the listings of content directories of earlier loads
+   * @param archives the archives of opened mods
+   */
+  ModReader(Path modFile, Parser parser, ParserFactory parserFactory, ContentCategories categories, int workers,
+          ListingCache listingCache, OpenArchives archives) {
+    LOG.entry(modFile, parser, categories, workers);
     this.modFile = Objects.requireNonNull(modFile);
     this.parser = Objects.requireNonNull(parser);
-    this.opinionModifierManager = Objects.requireNonNull(opinionModifierManager);
+    this.parserFactory = Objects.requireNonNull(parserFactory);
+    this.categories = Objects.requireNonNull(categories);
+    if (workers < 1) {
+      throw new IllegalArgumentException(String.format("Number of workers must be > 0, but is %d", workers));
+    }
+    this.workers = workers;
+    this.listingCache = Objects.requireNonNull(listingCache);
+    this.archives = Objects.requireNonNull(archives);
     this.initializeAttributeMap();
     LOG.exit();
   }
 
+  /**
+   * @param mod a mod read by a reader
+   * @return the zip archive containing the mod's files or an empty optional
+   * if they are in a directory
+   */
+  static Optional<Path> archiveOf(Mod mod) {
+    if (mod.getArchive() == null) {
+      return Optional.empty();
+    }
+    final Path gameUserDir = mod.getDescriptionFile().getParent().getParent();
+    return Optional.of(gameUserDir.resolve(mod.getArchive().replace("\"", "")));
+  }
+
   // ---vvv--- PRIVATE ---vvv---
   private static final Logger LOG = LogManager.getFormatterLogger();
   private static final Map<String, AttributeSetter<Mod, ?>> ATTRIBUTE_MAP = new HashMap<>();
+  private static final int FILES_PER_WORKER = 16;
 
   private final Path modFile;
   private final Parser parser;
-  private final OpinionModifierManager opinionModifierManager;
+  private final ParserFactory parserFactory;
+  private final ContentCategories categories;
+  private final int workers;
+  private final ListingCache listingCache;
+  private final OpenArchives archives;
   
   private void initializeAttributeMap() {
     if (!ATTRIBUTE_MAP.isEmpty()) {
@@ -97,13 +176,12 @@ class ModReader extends ModFileReader {
     final Mod result = new ModImpl();
     result.setDescriptionFile(this.modFile);
 
-    root.getChildren().parallelStream()
-            .filter(n -> ATTRIBUTE_MAP.containsKey(n.getName()))
-            .forEach(n -> {
-              AttributeSetter attribute = ATTRIBUTE_MAP.get(n.getName());
-              Object nameValue = fetchAttributeValue(attribute, n);
-              attribute.setter.accept(result, nameValue);
-            });
+    ATTRIBUTE_MAP.forEach((name, attribute) -> {
+      for (Node n : root.getChildren(name)) {
+        Object nameValue = fetchAttributeValue(attribute, n);
+        ((AttributeSetter) attribute).setter.accept(result, nameValue);
+      }
+    });
 
     return LOG.exit(result);
   }
@@ -113,28 +191,88 @@ class ModReader extends ModFileReader {
    * <p>
    * The directory being scanned is determined by taking the parent's parent of
    * the description file and appending the path specified in the path attribute
-   * of the mod.
+   * of the mod. If the mod has an archive attribute instead, the zip archive
+   * found there is opened as a file system and scanned without extracting it.
+   * The archive stays open because the mod's files are read from it.
+   * <p>
+   * The directory is walked once for all content categories, entering only
+   * the directories that can contain content; see {@link ScanPlanner}. Each
+   * file is read by its category in a {@link LoadingPipeline} while the walk
+   * goes on, and the files are added to the mod in the order the walk found
+   * them.
    *
    * @param mod the mod to add files to
+   * @param diagnostics receives the problems with single files
    */
-  private void fetchFileList(Mod mod) {
+  private void fetchFileList(Mod mod, List<Diagnostic> diagnostics) {
     LOG.entry(mod);
-    String modPath = mod.getPath().replace("\"", "");
-    Path path = this.modFile.getParent().getParent().resolve(modPath);
-    
-    try {
-      Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-        private static final String OPINION_MODIFIERS_DIR = "opinion_modifiers";
+    final List<Diagnostic> walkProblems = new ArrayList<>();
+    final Optional<Path> archive = archiveOf(mod);
+
+    // all files are read before the archive is closed
+    try (FileSystem zip = archive.isPresent() ? openArchive(archive.get()) : null;
+            LoadingPipeline<LoadedFile, LoadedFile> pipeline = new LoadingPipeline<>(
+            this::load,
+            loaded -> {
+              diagnostics.addAll(loaded.diagnostics);
+              if (loaded.content != null) {
+                mod.addFile(loaded.category.getId(), loaded.content);
+              }
+            },
+            this.workers,
+            this.workers * FILES_PER_WORKER)) {
+      final Path root = zip != null ? zip.getPath("/") : directoryOf(mod);
+      this.categories.getScanPlanner().scan(root, this.listingCache, new ScanPlanner.ContentVisitor() {
 
         @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-          if (file.getParent().endsWith(OPINION_MODIFIERS_DIR)) {
-            LOG.trace("Adding opinion modifier %s", file.getFileName());
-            mod.addOpinionModifier(opinionModifierManager.fromFile(file));
+        public void visitFile(Path file, String contentDirectory) throws IOException {
+          final Optional<ContentCategory> category = categories.forDirectory(contentDirectory);
+          if (category.isPresent()) {
+            LOG.trace("Adding %s file %s", category.get().getId(), file.getFileName());
+            pipeline.submit(new LoadedFile(file, category.get()));
           }
-          return FileVisitResult.CONTINUE;
         }
-        
+
+        @Override
+        public void visitFileFailed(Path file, IOException ex) {
+          LOG.warn("Skipping file %s: %s", file, ex);
+          walkProblems.add(new Diagnostic(file, "Unable to read file: " + ex));
+        }
+
+      });
+      pipeline.finish();
+      diagnostics.addAll(walkProblems);
+    } catch (IOException ex) {
+      throw new ModReadingException(mod, ex);
+    }
+    LOG.exit();
+  }
+
+  /**
+   * Adds all files in the mod's directory to the mod object without reading
+   * them. The directory is found and walked like in
+   * {@link #fetchFileList(Mod, List)}.
+   *
+   * @param mod the mod to add files to
+   */
+  private void listFiles(Mod mod) {
+    LOG.entry(mod);
+    try {
+      final Optional<Path> archive = archiveOf(mod);
+      final Path root = archive.isPresent() ? this.archives.rootOf(archive.get()) : directoryOf(mod);
+      this.categories.getScanPlanner().scan(root, this.listingCache, new ScanPlanner.ContentVisitor() {
+
+        @Override
+        public void visitFile(Path file, String contentDirectory) {
+          categories.forDirectory(contentDirectory)
+                  .ifPresent(category -> mod.addFile(category.getId(), category.open(file, parserFactory)));
+        }
+
+        @Override
+        public void visitFileFailed(Path file, IOException ex) {
+          LOG.warn("Skipping file %s: %s", file, ex);
+        }
+
       });
     } catch (IOException ex) {
       throw new ModReadingException(mod, ex);
@@ -142,4 +280,47 @@ class ModReader extends ModFileReader {
     LOG.exit();
   }
 
+  /**
+   * @return the directory containing the mod's files
+   */
+  private Path directoryOf(Mod mod) {
+    return this.modFile.getParent().getParent().resolve(mod.getPath().replace("\"", ""));
+  }
+
+  private static FileSystem openArchive(Path archive) throws IOException {
+    LOG.debug("Opening archive %s", archive);
+    return FileSystems.newFileSystem(archive, (ClassLoader) null);
+  }
+
+  /**
+   * Worker stage of the pipeline. Problems are collected per file and added
+   * to the mod's problems in order when the file is bound.
+   */
+  private LoadedFile load(LoadedFile file) {
+    try {
+      file.content = file.category.read(file.path, this.parserFactory, file.diagnostics::add);
+    } catch (RuntimeException ex) {
+      LOG.warn("Skipping file %s: %s", file.path, ex);
+      file.diagnostics.add(new Diagnostic(file.path, "Unable to read file: " + ex));
+    }
+    return file;
+  }
+
+  /**
+   * A file on its way through the pipeline.
+   */
+  private static class LoadedFile {
+
+    LoadedFile(Path path, ContentCategory category) {
+      this.path = path;
+      this.category = category;
+    }
+
+    final Path path;
+    final ContentCategory category;
+    final List<Diagnostic> diagnostics = new ArrayList<>();
+    ModFile content;
+
+  }
+
 }
@@ -23,8 +23,8 @@
  */
 package io.github.metaluna.ck2edit.business.mod;
 
-import io.github.metaluna.ck2edit.dataaccess.parser.Node;
 import io.github.metaluna.ck2edit.util.Validator;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Objects;
 import org.apache.logging.log4j.LogManager;
@@ -38,24 +38,22 @@ class ModWriter extends ModFileWriter {
 
   // ---vvv--- PROTECTED ---vvv---
   @Override
-  protected Node print() {
+  protected void print() throws IOException {
     LOG.entry();
-    final Node result = Node.createRoot();
-
-    addSimpleValue(result, "name", mod.getName());
-    addSimpleValue(result, "path", mod.getPath());
-    addSimpleValue(result, "user_dir", mod.getUserDir());
-    addSimpleValue(result, "archive", mod.getArchive());
+    pair("name", mod.getName());
+    pair("path", mod.getPath());
+    pair("user_dir", mod.getUserDir());
+    pair("archive", mod.getArchive());
 
     if (mod.getReplacePaths() != null) {
-      mod.getReplacePaths().stream()
-              .forEach(p -> addSimpleValue(result, "replace_path", p));
+      for (String p : mod.getReplacePaths()) {
+        pair("replace_path", p);
+      }
     }
-    addSimpleValue(result, "picture", mod.getPicture());
-    addList(result, "tags", mod.getTags());
-    addList(result, "dependencies", mod.getDependencies());
-
-    return LOG.exit(result);
+    pair("picture", mod.getPicture());
+    list("tags", mod.getTags());
+    list("dependencies", mod.getDependencies());
+    LOG.exit();
   }
 
   @Override
@@ -0,0 +1,89 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the zip archives of opened mods open. The files of an opened mod are
+ * read when they are first accessed, so its archive has to stay open until
+ * the mod is closed. Each archive is opened once, however often it is asked
+ * for. The class is thread-safe.
+ */
+final class OpenArchives {
+
+  /**
+   * Opens an archive unless it is open already.
+   *
+   * @param archive the zip archive
+   * @return the root of the archive's file system
+   * @throws IOException if the archive cannot be opened
+   */
+  synchronized Path rootOf(Path archive) throws IOException {
+    LOG.entry(archive);
+    final Path key = keyOf(archive);
+    FileSystem fileSystem = this.archives.get(key);
+    if (fileSystem == null || !fileSystem.isOpen()) {
+      LOG.debug("Opening archive %s", key);
+      fileSystem = FileSystems.newFileSystem(key, (ClassLoader) null);
+      this.archives.put(key, fileSystem);
+    }
+    return LOG.exit(fileSystem.getPath("/"));
+  }
+
+  /**
+   * Closes an archive. Nothing happens if it is not open.
+   *
+   * @param archive the zip archive
+   */
+  synchronized void close(Path archive) {
+    LOG.entry(archive);
+    final FileSystem fileSystem = this.archives.remove(keyOf(archive));
+    if (fileSystem != null) {
+      try {
+        fileSystem.close();
+      } catch (IOException ex) {
+        LOG.warn("Unable to close archive '%s': %s", archive, ex);
+      }
+    }
+    LOG.exit();
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+  private final Map<Path, FileSystem> archives = new HashMap<>();
+
+  private static Path keyOf(Path archive) {
+    return archive.toAbsolutePath().normalize();
+  }
+
+}
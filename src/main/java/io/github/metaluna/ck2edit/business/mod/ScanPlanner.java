@@ -0,0 +1,218 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Plans the scan of a mod's directory. Only the directories that contain
+ * content and the directories leading to them are entered; everything else,
+ * like graphics and sound, is skipped without being listed.
+ */
+final class ScanPlanner {
+
+  /**
+   * Receives the files found by a scan.
+   */
+  interface ContentVisitor {
+
+    /**
+     * @param file a file in one of the content directories
+     * @param contentDirectory the content directory relative to the mod, e.g.
+     * <code>common/opinion_modifiers</code>
+     * @throws IOException to abort the scan
+     */
+    void visitFile(Path file, String contentDirectory) throws IOException;
+
+    /**
+     * @param file a file or directory that could not be read
+     * @param ex the cause
+     */
+    void visitFileFailed(Path file, IOException ex);
+
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contentDirectories the directories containing content, relative
+   * to the mod and separated by <code>/</code>
+   */
+  ScanPlanner(Collection<String> contentDirectories) {
+    LOG.entry(contentDirectories);
+    for (String directory : contentDirectories) {
+      this.contentDirectories.add(directory);
+      for (int i = directory.indexOf('/'); i > 0; i = directory.indexOf('/', i + 1)) {
+        this.ancestors.add(directory.substring(0, i));
+      }
+    }
+    LOG.exit();
+  }
+
+  /**
+   * Walks a mod's directory and reports the files of its content
+   * directories. Listings of content directories that have not changed since
+   * the last scan are taken from the cache.
+   *
+   * @param root the mod's directory
+   * @param cache the listings of earlier scans
+   * @param visitor receives the files
+   * @throws IOException if the root cannot be read or the visitor aborts
+   */
+  void scan(Path root, ListingCache cache, ContentVisitor visitor) throws IOException {
+    LOG.entry(root, cache, visitor);
+    Objects.requireNonNull(cache);
+    Objects.requireNonNull(visitor);
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        final String key = keyOf(root, dir);
+        if (contentDirectories.contains(key)) {
+          final FileTime modified = attrs.lastModifiedTime();
+          final Optional<List<Path>> cached = cache.get(dir, modified);
+          if (cached.isPresent()) {
+            LOG.trace("Using cached listing of %s", dir);
+            for (Path file : cached.get()) {
+              visitor.visitFile(file, key);
+            }
+            return FileVisitResult.SKIP_SUBTREE;
+          }
+          this.open.push(new Listing(key, modified));
+          return FileVisitResult.CONTINUE;
+        }
+        if (key.isEmpty() || ancestors.contains(key)) {
+          return FileVisitResult.CONTINUE;
+        }
+        LOG.trace("Skipping %s", dir);
+        return FileVisitResult.SKIP_SUBTREE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        final Listing listing = this.open.peek();
+        if (listing != null && file.getParent() != null && listing.key.equals(keyOf(root, file.getParent()))) {
+          listing.files.add(file);
+          visitor.visitFile(file, listing.key);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException ex) {
+        visitor.visitFileFailed(file, ex);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException ex) {
+        final Listing listing = this.open.peek();
+        if (listing != null && listing.key.equals(keyOf(root, dir))) {
+          this.open.pop();
+          if (ex == null) {
+            cache.put(dir, listing.modified, listing.files);
+          } else {
+            visitor.visitFileFailed(dir, ex);
+          }
+        } else if (ex != null) {
+          visitor.visitFileFailed(dir, ex);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      /** Content directories currently being listed, innermost first. */
+      private final Deque<Listing> open = new ArrayDeque<>();
+
+    });
+    LOG.exit();
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+  private final Set<String> contentDirectories = new HashSet<>();
+  private final Set<String> ancestors = new HashSet<>();
+
+  /**
+   * @return the directory relative to the root, separated by <code>/</code>
+   * on every file system. The zip file system of Java 8 ends the names of
+   * directories with a separator, which is dropped.
+   */
+  static String keyOf(Path root, Path dir) {
+    final StringBuilder result = new StringBuilder();
+    for (Path element : root.relativize(dir)) {
+      final String name = stripSeparators(element.toString(), element.getFileSystem().getSeparator());
+      if (name.isEmpty()) {
+        continue;
+      }
+      if (result.length() > 0) {
+        result.append('/');
+      }
+      result.append(name);
+    }
+    return result.toString();
+  }
+
+  private static String stripSeparators(String name, String separator) {
+    String result = name;
+    while (result.endsWith(separator) || result.endsWith("/")) {
+      result = result.substring(0, result.length() - 1);
+    }
+    return result;
+  }
+
+  /**
+   * A content directory while it is being walked.
+   */
+  private static class Listing {
+
+    Listing(String key, FileTime modified) {
+      this.key = key;
+      this.modified = modified;
+    }
+
+    final String key;
+    final FileTime modified;
+    final List<Path> files = new ArrayList<>();
+
+  }
+
+}
@@ -23,9 +23,12 @@
  */
 package io.github.metaluna.ck2edit.business.mod.localisation;
 
+import io.github.metaluna.ck2edit.dataaccess.parser.EncodingDetector;
+import io.github.metaluna.ck2edit.dataaccess.parser.TextEncoding;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -60,7 +63,10 @@ class LocalisationReader {
     final LocalisationFile result = new LocalisationFile(this.path);
 
     // read the file
-    try (BufferedReader reader = Files.newBufferedReader(this.path, CHARSET)) {
+    try (InputStream input = new BufferedInputStream(Files.newInputStream(this.path))) {
+      final TextEncoding encoding = EncodingDetector.detect(input);
+      result.setEncoding(encoding);
+      final BufferedReader reader = new BufferedReader(encoding.newReader(input));
       String line;
       // line by line
       while (null != (line = reader.readLine())) {
@@ -86,7 +92,6 @@ class LocalisationReader {
 
   // ---vvv--- PRIVATE ---vvv---
   private static final Logger LOG = LogManager.getFormatterLogger();
-  private static final Charset CHARSET = Charset.forName("Windows-1252");
   private static final String FIELD_SEPARATOR = ";";
   
   private final Path path;
@@ -23,9 +23,9 @@
  */
 package io.github.metaluna.ck2edit.business.mod.localisation;
 
+import io.github.metaluna.ck2edit.dataaccess.parser.TextEncoding;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
@@ -53,7 +53,8 @@ class LocalisationWriter {
    */
   public void write() {
     LOG.entry();
-    try (BufferedWriter writer = Files.newBufferedWriter(this.localisationFile.getPath(), CHARSET)) {
+    final TextEncoding encoding = this.localisationFile.getEncoding();
+    try (BufferedWriter writer = new BufferedWriter(encoding.newWriter(Files.newOutputStream(this.localisationFile.getPath())))) {
       writeHeader(writer);
       
       for (Localisation localisation : this.localisationFile.getLocalisations()) {
@@ -68,7 +69,6 @@ class LocalisationWriter {
 
   // ---vvv--- PRIVATE ---vvv---
   private static final Logger LOG = LogManager.getFormatterLogger();
-  private static final Charset CHARSET = Charset.forName("Windows-1252");
   private static final String NEWLINE = "\r\n";
   private static final String HEADER = "#CODE;ENGLISH;FRENCH;GERMAN;;SPANISH;;;;;;;;;x";
   private static final String COLUMN_SEPARATOR = ";";
@@ -0,0 +1,80 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod.opinionmodifier;
+
+import io.github.metaluna.ck2edit.business.mod.ContentCategory;
+import io.github.metaluna.ck2edit.business.mod.ModFile;
+import io.github.metaluna.ck2edit.dataaccess.parser.Diagnostic;
+import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Opinion modifiers in <code>common/opinion_modifiers</code>.
+ */
+public class OpinionModifierCategory implements ContentCategory {
+
+  public static final String ID = "opinion_modifiers";
+
+  @Override
+  public String getId() {
+    return ID;
+  }
+
+  @Override
+  public String getDirectory() {
+    return "common/opinion_modifiers";
+  }
+
+  @Override
+  public Class<OpinionModifierFile> getFileType() {
+    return OpinionModifierFile.class;
+  }
+
+  @Override
+  public OpinionModifierFile read(Path file, ParserFactory parserFactory, Consumer<Diagnostic> diagnostics) {
+    return new OpinionModifierManager(parserFactory).fromFile(file, diagnostics);
+  }
+
+  @Override
+  public OpinionModifierFile open(Path file, ParserFactory parserFactory) {
+    return OpinionModifierFile.lazy(file, path -> read(path, parserFactory, d -> LOG.warn("%s", d)));
+  }
+
+  @Override
+  public void write(ModFile file, ParserFactory parserFactory) {
+    new OpinionModifierManager(parserFactory).saveFile((OpinionModifierFile) file);
+  }
+
+  @Override
+  public OpinionModifierFile create(Path file) {
+    return new OpinionModifierFile(file);
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+}
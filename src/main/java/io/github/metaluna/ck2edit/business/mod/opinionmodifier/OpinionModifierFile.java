@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -53,6 +54,7 @@ public class OpinionModifierFile extends ModFileImpl {
    * @return an unmodifiable list of opinion modifiers contained in this file
    */
   public List<OpinionModifier> getOpinionModifiers() {
+    ensureLoaded();
     return Collections.unmodifiableList(this.opinionModifiers);
   }
 
@@ -65,6 +67,7 @@ public class OpinionModifierFile extends ModFileImpl {
   public void add(OpinionModifier modifier) {
     LOG.entry(modifier);
     Objects.requireNonNull(modifier);
+    ensureLoaded();
     if (this.opinionModifiers.contains(modifier)) {
       LOG.info("Modifier already in this file: %s", modifier);
     } else {
@@ -73,6 +76,26 @@ public class OpinionModifierFile extends ModFileImpl {
     LOG.exit();
   }
 
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  /**
+   * Creates a file whose opinion modifiers are read on first access.
+   *
+   * @param path the path to the file
+   * @param reader reads the file
+   * @return the file, not loaded yet
+   */
+  static OpinionModifierFile lazy(Path path, Function<Path, OpinionModifierFile> reader) {
+    LOG.entry(path, reader);
+    Objects.requireNonNull(reader);
+    final OpinionModifierFile result = new OpinionModifierFile(path);
+    result.setLoader(() -> {
+      final OpinionModifierFile loaded = reader.apply(path);
+      result.setEncoding(loaded.getEncoding());
+      loaded.getOpinionModifiers().forEach(result::add);
+    });
+    return LOG.exit(result);
+  }
+
   // ---vvv--- PRIVATE ---vvv---
   private static final Logger LOG = LogManager.getFormatterLogger();
 
@@ -23,9 +23,11 @@
  */
 package io.github.metaluna.ck2edit.business.mod.opinionmodifier;
 
+import io.github.metaluna.ck2edit.dataaccess.parser.Diagnostic;
 import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 public class OpinionModifierManager {
   
@@ -37,8 +39,21 @@ public class OpinionModifierManager {
     return new OpinionModifierReader(path, parserFactory.fromFile(path)).read();
   }
 
+  /**
+   * Reads an opinion modifier file, skipping and reporting what cannot be
+   * read.
+   *
+   * @param path the file to read
+   * @param diagnostics receives the problems found in the file
+   * @return the opinion modifiers that could be read
+   * @throws java.io.UncheckedIOException if the file cannot be read
+   */
+  public OpinionModifierFile fromFile(Path path, Consumer<Diagnostic> diagnostics) {
+    return new OpinionModifierReader(path, parserFactory.fromFile(path)).read(diagnostics);
+  }
+
   public void saveFile(OpinionModifierFile omFile) {
-    new OpinionModifierWriter(omFile).write();
+    new OpinionModifierWriter(omFile, parserFactory).write();
   }
 
   // ---vvv--- PRIVATE ---vvv---
@@ -24,12 +24,17 @@
 package io.github.metaluna.ck2edit.business.mod.opinionmodifier;
 
 import io.github.metaluna.ck2edit.business.mod.ModFileReader;
+import io.github.metaluna.ck2edit.dataaccess.parser.Diagnostic;
 import io.github.metaluna.ck2edit.dataaccess.parser.Node;
 import io.github.metaluna.ck2edit.dataaccess.parser.Parser;
+import io.github.metaluna.ck2edit.dataaccess.parser.TextEncoding;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -46,7 +51,28 @@ class OpinionModifierReader extends ModFileReader {
   public OpinionModifierFile read() {
     LOG.entry();
     Node root = parser.parse();
-    OpinionModifierFile result = parseOpinionModifiers(root);
+    OpinionModifierFile result = parseOpinionModifiers(root, null);
+    return LOG.exit(result);
+  }
+
+  /**
+   * Reads a file from disk. Statements that cannot be parsed and opinion
+   * modifiers with invalid attributes are skipped and reported.
+   *
+   * @param diagnostics receives the problems found in the file
+   * @return the opinion modifiers that could be read
+   * @throws UncheckedIOException if the file cannot be read
+   */
+  public OpinionModifierFile read(Consumer<Diagnostic> diagnostics) {
+    LOG.entry(diagnostics);
+    Objects.requireNonNull(diagnostics);
+    Node root;
+    try {
+      root = parser.parseChecked(diagnostics);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    OpinionModifierFile result = parseOpinionModifiers(root, diagnostics);
     return LOG.exit(result);
   }
 
@@ -83,22 +109,38 @@ class OpinionModifierReader extends ModFileReader {
     ATTRIBUTE_MAP.put("crime", new AttributeSetter<>(OpinionModifier::setCrime, ValueType.BOOLEAN));
   }
 
-  @SuppressWarnings("unchecked")
-  private OpinionModifierFile parseOpinionModifiers(Node root) {
+  /**
+   * @param diagnostics receives invalid opinion modifiers, which are then
+   * skipped, or <code>null</code> to fail on them
+   */
+  private OpinionModifierFile parseOpinionModifiers(Node root, Consumer<Diagnostic> diagnostics) {
     LOG.entry(root);
     final OpinionModifierFile result = new OpinionModifierFile(modFile);
+    result.setEncoding(TextEncoding.of(root));
     for (Node n : root.getChildren()) {
-      OpinionModifier modifier = new OpinionModifier(n.getName());
-      n.getChildren().parallelStream()
-            .filter(c -> ATTRIBUTE_MAP.containsKey(c.getName()))
-            .forEach(c -> {
-              AttributeSetter attribute = ATTRIBUTE_MAP.get(c.getName());
-              Object nameValue = fetchAttributeValue(attribute, c);
-              attribute.setter.accept(modifier, nameValue);
-            });
-      result.add(modifier);
+      try {
+        result.add(parseOpinionModifier(n));
+      } catch (RuntimeException ex) {
+        if (diagnostics == null) {
+          throw ex;
+        }
+        LOG.warn("Skipping opinion modifier %s: %s", n.getName(), ex);
+        diagnostics.accept(diagnose(modFile, root, n, String.format("Invalid opinion modifier '%s': %s", n.getName(), ex)));
+      }
     }
     return LOG.exit(result);
   }
+
+  @SuppressWarnings("unchecked")
+  private OpinionModifier parseOpinionModifier(Node node) {
+    OpinionModifier modifier = new OpinionModifier(node.getName());
+    ATTRIBUTE_MAP.forEach((name, attribute) -> {
+      for (Node c : node.getChildren(name)) {
+        Object nameValue = fetchAttributeValue(attribute, c);
+        ((AttributeSetter) attribute).setter.accept(modifier, nameValue);
+      }
+    });
+    return modifier;
+  }
   
 }
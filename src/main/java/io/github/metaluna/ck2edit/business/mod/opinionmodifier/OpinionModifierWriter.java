@@ -24,7 +24,8 @@
 package io.github.metaluna.ck2edit.business.mod.opinionmodifier;
 
 import io.github.metaluna.ck2edit.business.mod.ModFileWriter;
-import io.github.metaluna.ck2edit.dataaccess.parser.Node;
+import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
+import java.io.IOException;
 import java.util.Objects;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -36,26 +37,40 @@ class OpinionModifierWriter extends ModFileWriter {
 
   // ---vvv--- PROTECTED ---vvv---
   @Override
-  protected Node print() {
+  protected void print() throws IOException {
     LOG.entry();
-    final Node result = Node.createRoot();
+    print(0, getEntryCount());
+    LOG.exit();
+  }
+
+  @Override
+  protected boolean supportsRanges() {
+    return true;
+  }
 
-    for (OpinionModifier modifier : this.opinionModifierFile.getOpinionModifiers()) {
-      final Node n = Node.create(modifier.getName());
-      addSimpleValue(n, "opinion", modifier.getOpinion());
-      addSimpleValue(n, "months", modifier.getDuration());
-      addSimpleValue(n, "prison_reason", modifier.isPrisonReason());
-      addSimpleValue(n, "banish_reason", modifier.isBanishReason());
-      addSimpleValue(n, "execute_reason", modifier.isExecuteReason());
-      addSimpleValue(n, "revoke_reason", modifier.isRevokeReason());
-      addSimpleValue(n, "divorce_reason", modifier.isDivorceReason());
-      addSimpleValue(n, "inherit", modifier.isInherited());
-      addSimpleValue(n, "enemy", modifier.isEnemy());
-      addSimpleValue(n, "crime", modifier.isCrime());
-      result.addChild(n);
+  @Override
+  protected int getEntryCount() {
+    return this.opinionModifierFile.getOpinionModifiers().size();
+  }
+
+  @Override
+  protected void print(int from, int to) throws IOException {
+    LOG.entry(from, to);
+    for (OpinionModifier modifier : this.opinionModifierFile.getOpinionModifiers().subList(from, to)) {
+      beginBlock(modifier.getName());
+      pair("opinion", modifier.getOpinion());
+      pair("months", modifier.getDuration());
+      pair("prison_reason", modifier.isPrisonReason());
+      pair("banish_reason", modifier.isBanishReason());
+      pair("execute_reason", modifier.isExecuteReason());
+      pair("revoke_reason", modifier.isRevokeReason());
+      pair("divorce_reason", modifier.isDivorceReason());
+      pair("inherit", modifier.isInherited());
+      pair("enemy", modifier.isEnemy());
+      pair("crime", modifier.isCrime());
+      endBlock();
     }
-    
-    return LOG.exit(result);
+    LOG.exit();
   }
 
   @Override
@@ -69,8 +84,8 @@ class OpinionModifierWriter extends ModFileWriter {
   }
   
   // ---vvv--- PACKAGE-PRIVATE ---vvv---
-  OpinionModifierWriter(OpinionModifierFile file) {
-    super(file.getPath());
+  OpinionModifierWriter(OpinionModifierFile file, ParserFactory parserFactory) {
+    super(file.getPath(), file.getEncoding(), parserFactory);
     LOG.entry(file);
     this.opinionModifierFile = Objects.requireNonNull(file);
     LOG.exit();
@@ -0,0 +1,494 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * Splits single-byte encoded input into tokens without decoding it first.
+ * Names are only copied out of the input when a node is created and are only
+ * decoded when the node's name is requested.
+ * <p>
+ * Names, comments and strings are scanned eight bytes at a time: each byte of
+ * a word is compared in parallel against the delimiters using the
+ * "has zero byte" bit trick.
+ */
+class ByteTokenizer implements Tokenizer {
+
+  /**
+   * Opens a file for tokenizing. Large files are memory-mapped, smaller ones
+   * are read into the heap with a single read because mapping has a higher
+   * setup cost and keeps the file locked on some systems until the mapping is
+   * garbage collected. Files that are not on the default file system, e.g.
+   * entries of a zip archive, cannot be mapped and are always read into the
+   * heap.
+   *
+   * @param path the file to read
+   * @return the tokenizer
+   * @throws IOException if the file cannot be read or is too large
+   */
+  static ByteTokenizer open(Path path) throws IOException {
+    return open(path, ByteBuffer::allocate);
+  }
+
+  /**
+   * Opens a file for tokenizing, reading small files into a buffer provided
+   * by the caller. The buffer must not be reused while the tokenizer or any
+   * node referring to its input is in use.
+   *
+   * @param path the file to read
+   * @param buffers returns a heap buffer with at least the given capacity
+   * @return the tokenizer
+   * @throws IOException if the file cannot be read or is too large
+   */
+  static ByteTokenizer open(Path path, IntFunction<ByteBuffer> buffers) throws IOException {
+    if (path.getFileSystem() != FileSystems.getDefault()) {
+      return new ByteTokenizer(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      final ByteBuffer input;
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(String.format("File '%s' is too large to be mapped (%d bytes)", path, size));
+      } else if (size >= MAPPING_THRESHOLD) {
+        input = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      } else {
+        input = buffers.apply((int) size);
+        input.clear();
+        input.limit((int) size);
+        while (input.hasRemaining() && channel.read(input) >= 0) {
+          // keep reading
+        }
+        input.flip();
+      }
+      return new ByteTokenizer(input);
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param input the Windows-1252 encoded input between its position and its
+   * limit
+   */
+  ByteTokenizer(ByteBuffer input) {
+    this(Objects.requireNonNull(input).slice(), 0, input.remaining(), 1, 0);
+  }
+
+  /**
+   * Constructor for a range of the input. Offsets stay relative to the start
+   * of the buffer.
+   *
+   * @param input the Windows-1252 encoded input
+   * @param start offset of the first byte of the range
+   * @param end offset after the last byte of the range
+   * @param line the line the range starts on
+   * @param lineStart offset of the first byte of that line
+   */
+  ByteTokenizer(ByteBuffer input, int start, int end, int line, int lineStart) {
+    this.input = Objects.requireNonNull(input).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    this.pos = start;
+    this.limit = end;
+    this.line = line;
+    this.lineStart = lineStart;
+    this.tokenStart = start;
+    this.tokenEnd = start;
+    this.tokenLine = line;
+    this.tokenLineStart = lineStart;
+  }
+
+  @Override
+  public TokenType next() {
+    if (this.pushedBack) {
+      this.pushedBack = false;
+      return this.type;
+    }
+
+    skipWhitespace();
+    startToken();
+
+    if (this.pos >= this.limit) {
+      this.type = TokenType.END;
+      this.tokenEnd = this.pos;
+      return this.type;
+    }
+
+    switch (this.input.get(this.pos)) {
+      case VALUE_SEPARATOR:
+        singleByte(TokenType.EQUALS);
+        break;
+      case NESTING_START:
+        singleByte(TokenType.OPEN);
+        break;
+      case NESTING_END:
+        singleByte(TokenType.CLOSE);
+        break;
+      case COMMENT_MARKER:
+        scanComment();
+        this.tokenEnd = this.pos;
+        this.type = TokenType.COMMENT;
+        break;
+      case STRING_MARKER:
+        scanString();
+        this.type = isFollowedBySeparator() ? TokenType.KEY : TokenType.QUOTED;
+        break;
+      default:
+        scanWord();
+        this.type = isFollowedBySeparator() ? TokenType.KEY : TokenType.VALUE;
+    }
+    return this.type;
+  }
+
+  @Override
+  public void pushBack() {
+    this.pushedBack = true;
+  }
+
+  @Override
+  public boolean skipBlock() {
+    int depth = 1;
+    int p = this.pos;
+    while (p < this.limit) {
+      if (p + Long.BYTES <= this.limit) {
+        long word = this.input.getLong(p);
+        long found = equalTo(word, NESTING_STARTS)
+                | equalTo(word, NESTING_ENDS)
+                | equalTo(word, STRING_MARKERS)
+                | equalTo(word, COMMENT_MARKERS)
+                | equalTo(word, NEW_LINES);
+        if (found == 0) {
+          p += Long.BYTES;
+          continue;
+        }
+        p += firstFound(found);
+      }
+      switch (this.input.get(p)) {
+        case NESTING_START:
+          depth++;
+          p++;
+          break;
+        case NESTING_END:
+          if (--depth == 0) {
+            this.pos = p;
+            startToken();
+            singleByte(TokenType.CLOSE);
+            return false;
+          }
+          p++;
+          break;
+        case STRING_MARKER:
+          this.pos = p;
+          scanString();
+          p = this.pos;
+          break;
+        case COMMENT_MARKER:
+          this.pos = p;
+          scanComment();
+          p = this.pos;
+          break;
+        case NEW_LINE:
+          newLine(++p);
+          break;
+        default:
+          p++;
+      }
+    }
+    this.pos = p;
+    startToken();
+    this.type = TokenType.END;
+    this.tokenEnd = this.pos;
+    return true;
+  }
+
+  @Override
+  public void trackLines(LineTable lines) {
+    this.lines = lines;
+  }
+
+  @Override
+  public TokenType type() {
+    return this.type;
+  }
+
+  @Override
+  public String text() {
+    return Windows1252.decode(this.input, this.tokenStart, this.tokenEnd);
+  }
+
+  @Override
+  public int start() {
+    return this.tokenStart;
+  }
+
+  @Override
+  public int end() {
+    return this.tokenEnd;
+  }
+
+  @Override
+  public int line() {
+    return this.tokenLine;
+  }
+
+  @Override
+  public int column() {
+    return this.tokenStart - this.tokenLineStart + 1;
+  }
+
+  @Override
+  public Node node() {
+    return new Node(symbol());
+  }
+
+  @Override
+  public TextEncoding encoding() {
+    return TextEncoding.WINDOWS_1252;
+  }
+
+  @Override
+  public void close() {
+    // the file channel has already been closed after mapping
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  /**
+   * @return the whole input, shared with this tokenizer
+   */
+  ByteBuffer input() {
+    return this.input;
+  }
+
+  /**
+   * @return the interned text of the current token
+   */
+  Symbol symbol() {
+    return SymbolTable.getDefault().intern(this.input, this.tokenStart, this.tokenEnd);
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final int MAPPING_THRESHOLD = 1 << 20;
+  private static final byte VALUE_SEPARATOR = '=';
+  private static final byte COMMENT_MARKER = '#';
+  private static final byte NESTING_START = '{';
+  private static final byte NESTING_END = '}';
+  private static final byte STRING_MARKER = '"';
+  private static final byte NEW_LINE = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+  private static final long SEPARATORS = ONES * VALUE_SEPARATOR;
+  private static final long COMMENT_MARKERS = ONES * COMMENT_MARKER;
+  private static final long NESTING_STARTS = ONES * NESTING_START;
+  private static final long NESTING_ENDS = ONES * NESTING_END;
+  private static final long STRING_MARKERS = ONES * STRING_MARKER;
+  private static final long NEW_LINES = ONES * NEW_LINE;
+  private static final long CARRIAGE_RETURNS = ONES * CARRIAGE_RETURN;
+  /**
+   * all bytes up to and including the space character are whitespace
+   */
+  private static final int FIRST_NON_WHITESPACE = ' ' + 1;
+
+  private final ByteBuffer input;
+  /**
+   * offset after the last byte of the range being tokenized
+   */
+  private final int limit;
+  private int pos;
+  private int line;
+  /**
+   * offset of the first character of the current line
+   */
+  private int lineStart;
+
+  private TokenType type;
+  private boolean pushedBack;
+  private int tokenStart;
+  private int tokenEnd;
+  private int tokenLine;
+  private int tokenLineStart;
+  private LineTable lines;
+
+  private void newLine(int start) {
+    this.line++;
+    this.lineStart = start;
+    if (this.lines != null) {
+      this.lines.add(start);
+    }
+  }
+
+  private void startToken() {
+    this.tokenStart = this.pos;
+    this.tokenLine = this.line;
+    this.tokenLineStart = this.lineStart;
+  }
+
+  private void singleByte(TokenType singleType) {
+    this.pos++;
+    this.tokenEnd = this.pos;
+    this.type = singleType;
+  }
+
+  private void skipWhitespace() {
+    while (this.pos < this.limit) {
+      int c = this.input.get(this.pos) & 0xFF;
+      if (c >= FIRST_NON_WHITESPACE) {
+        return;
+      }
+      if (c == NEW_LINE) {
+        newLine(this.pos + 1);
+      }
+      this.pos++;
+    }
+  }
+
+  private void scanComment() {
+    int p = this.pos;
+    while (p + Long.BYTES <= this.limit) {
+      long word = this.input.getLong(p);
+      long found = equalTo(word, NEW_LINES) | equalTo(word, CARRIAGE_RETURNS);
+      if (found != 0) {
+        this.pos = p + firstFound(found);
+        return;
+      }
+      p += Long.BYTES;
+    }
+    while (p < this.limit) {
+      byte c = this.input.get(p);
+      if (c == NEW_LINE || c == CARRIAGE_RETURN) {
+        break;
+      }
+      p++;
+    }
+    this.pos = p;
+  }
+
+  /**
+   * Scans a quoted string including both quotes. An unterminated string ends
+   * with the input.
+   */
+  private void scanString() {
+    // opening quote
+    int p = this.pos + 1;
+    while (p < this.limit) {
+      if (p + Long.BYTES <= this.limit) {
+        long word = this.input.getLong(p);
+        long found = equalTo(word, STRING_MARKERS) | equalTo(word, NEW_LINES);
+        if (found == 0) {
+          p += Long.BYTES;
+          continue;
+        }
+        p += firstFound(found);
+      }
+      byte c = this.input.get(p++);
+      if (c == STRING_MARKER) {
+        break;
+      } else if (c == NEW_LINE) {
+        newLine(p);
+      }
+    }
+    this.pos = p;
+  }
+
+  private void scanWord() {
+    int p = this.pos;
+    while (p + Long.BYTES <= this.limit) {
+      long word = this.input.getLong(p);
+      long found = lessThan(word, FIRST_NON_WHITESPACE)
+              | equalTo(word, SEPARATORS)
+              | equalTo(word, COMMENT_MARKERS)
+              | equalTo(word, NESTING_STARTS)
+              | equalTo(word, NESTING_ENDS)
+              | equalTo(word, STRING_MARKERS);
+      if (found != 0) {
+        this.pos = p + firstFound(found);
+        return;
+      }
+      p += Long.BYTES;
+    }
+    while (p < this.limit && !isDelimiter(this.input.get(p))) {
+      p++;
+    }
+    this.pos = p;
+  }
+
+  /**
+   * Ends the current name token and looks ahead whether the next token is a
+   * value separator. Any whitespace in between is consumed.
+   *
+   * @return <code>true</code> if the name is a key
+   */
+  private boolean isFollowedBySeparator() {
+    this.tokenEnd = this.pos;
+    skipWhitespace();
+    return this.pos < this.limit && this.input.get(this.pos) == VALUE_SEPARATOR;
+  }
+
+  private static boolean isDelimiter(byte c) {
+    switch (c) {
+      case VALUE_SEPARATOR:
+      case COMMENT_MARKER:
+      case NESTING_START:
+      case NESTING_END:
+      case STRING_MARKER:
+        return true;
+      default:
+        return (c & 0xFF) < FIRST_NON_WHITESPACE;
+    }
+  }
+
+  /**
+   * Flags the bytes of the word that are equal to the byte repeated in the
+   * pattern. Only the lowest flag is exact; flags above it may be wrong.
+   */
+  private static long equalTo(long word, long pattern) {
+    long x = word ^ pattern;
+    return (x - ONES) & ~x & HIGH_BITS;
+  }
+
+  /**
+   * Flags the bytes of the word that are less than n (n &lt;= 128). Only the
+   * lowest flag is exact; flags above it may be wrong.
+   */
+  private static long lessThan(long word, int n) {
+    return (word - ONES * n) & ~word & HIGH_BITS;
+  }
+
+  /**
+   * @return the index of the first flagged byte in a little endian word
+   */
+  private static int firstFound(long found) {
+    return Long.numberOfTrailingZeros(found) >>> 3;
+  }
+
+}
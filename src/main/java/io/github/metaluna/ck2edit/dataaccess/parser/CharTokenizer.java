@@ -0,0 +1,406 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Splits a character stream into tokens. The input is read into a buffer
+ * once and scanned character by character.
+ */
+class CharTokenizer implements Tokenizer {
+
+  /**
+   * Constructor
+   *
+   * @param reader the input
+   */
+  CharTokenizer(Reader reader) {
+    this(reader, 1);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param reader the input
+   * @param firstLine the line number of the first line of the input
+   */
+  CharTokenizer(Reader reader, int firstLine) {
+    this(reader, firstLine, new char[BUFFER_SIZE], TextEncoding.WINDOWS_1252);
+  }
+
+  /**
+   * Constructor reusing a buffer. It is enlarged if a token does not fit, so
+   * the current buffer should be taken back with {@link #buffer()}.
+   *
+   * @param reader the input
+   * @param firstLine the line number of the first line of the input
+   * @param buffer the initial buffer, at least one character long
+   * @param encoding the encoding the reader decodes
+   */
+  CharTokenizer(Reader reader, int firstLine, char[] buffer, TextEncoding encoding) {
+    this.reader = Objects.requireNonNull(reader);
+    this.buffer = Objects.requireNonNull(buffer);
+    this.encoding = Objects.requireNonNull(encoding);
+    this.line = firstLine;
+    this.tokenLine = firstLine;
+  }
+
+  /**
+   * @return the buffer currently in use
+   */
+  char[] buffer() {
+    return this.buffer;
+  }
+
+  @Override
+  public TokenType next() throws IOException {
+    if (this.pushedBack) {
+      this.pushedBack = false;
+      return this.type;
+    }
+
+    // the text of the previous token is not needed anymore
+    this.mark = this.pos;
+    skipWhitespace();
+    startToken();
+
+    if (!hasMore()) {
+      this.type = TokenType.END;
+      this.tokenEnd = this.tokenStart;
+      return this.type;
+    }
+
+    switch (this.buffer[this.pos]) {
+      case VALUE_SEPARATOR:
+        singleCharacter(TokenType.EQUALS);
+        break;
+      case NESTING_START:
+        singleCharacter(TokenType.OPEN);
+        break;
+      case NESTING_END:
+        singleCharacter(TokenType.CLOSE);
+        break;
+      case COMMENT_MARKER:
+        scanComment();
+        this.tokenEnd = this.bufferOffset + this.pos;
+        this.type = TokenType.COMMENT;
+        break;
+      case STRING_MARKER:
+        scanString();
+        this.type = isFollowedBySeparator() ? TokenType.KEY : TokenType.QUOTED;
+        break;
+      default:
+        scanWord();
+        this.type = isFollowedBySeparator() ? TokenType.KEY : TokenType.VALUE;
+    }
+    return this.type;
+  }
+
+  @Override
+  public void pushBack() {
+    this.pushedBack = true;
+  }
+
+  @Override
+  public boolean skipBlock() throws IOException {
+    int depth = 1;
+    while (true) {
+      // skipped text is never needed
+      this.mark = this.pos;
+      if (!hasMore()) {
+        startToken();
+        this.type = TokenType.END;
+        this.tokenEnd = this.tokenStart;
+        return true;
+      }
+      switch (this.buffer[this.pos]) {
+        case NESTING_START:
+          depth++;
+          this.pos++;
+          break;
+        case NESTING_END:
+          if (--depth == 0) {
+            startToken();
+            singleCharacter(TokenType.CLOSE);
+            return false;
+          }
+          this.pos++;
+          break;
+        case STRING_MARKER:
+          scanString();
+          break;
+        case COMMENT_MARKER:
+          scanComment();
+          break;
+        case NEW_LINE:
+          newLine(this.bufferOffset + this.pos + 1);
+          this.pos++;
+          break;
+        default:
+          this.pos++;
+      }
+    }
+  }
+
+  @Override
+  public void trackLines(LineTable lines) {
+    this.lines = lines;
+  }
+
+  @Override
+  public TokenType type() {
+    return this.type;
+  }
+
+  @Override
+  public String text() {
+    return new String(this.buffer, this.tokenStart - this.bufferOffset, this.tokenEnd - this.tokenStart);
+  }
+
+  @Override
+  public int start() {
+    return this.tokenStart;
+  }
+
+  @Override
+  public int end() {
+    return this.tokenEnd;
+  }
+
+  @Override
+  public int line() {
+    return this.tokenLine;
+  }
+
+  @Override
+  public int column() {
+    return this.tokenStart - this.tokenLineStart + 1;
+  }
+
+  @Override
+  public Node node() {
+    return new Node(Symbol.of(text()));
+  }
+
+  @Override
+  public TextEncoding encoding() {
+    return this.encoding;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.reader.close();
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final int BUFFER_SIZE = 8192;
+  private static final char VALUE_SEPARATOR = '=';
+  private static final char COMMENT_MARKER = '#';
+  private static final char NESTING_START = '{';
+  private static final char NESTING_END = '}';
+  private static final char STRING_MARKER = '"';
+  private static final char NEW_LINE = '\n';
+  private static final char CARRIAGE_RETURN = '\r';
+
+  private final Reader reader;
+  private final TextEncoding encoding;
+  private char[] buffer;
+  /**
+   * offset of the first character in the buffer
+   */
+  private int bufferOffset;
+  /**
+   * position of the next unread character in the buffer
+   */
+  private int pos;
+  /**
+   * number of valid characters in the buffer
+   */
+  private int limit;
+  /**
+   * characters starting here must be kept when the buffer is refilled
+   */
+  private int mark;
+  private boolean eof;
+  private int line;
+  /**
+   * offset of the first character of the current line
+   */
+  private int lineStart;
+
+  private TokenType type;
+  private boolean pushedBack;
+  private int tokenStart;
+  private int tokenEnd;
+  private int tokenLine;
+  private int tokenLineStart;
+  private LineTable lines;
+
+  /**
+   * Makes sure there is at least one unread character in the buffer.
+   *
+   * @return <code>false</code> if the input is exhausted
+   * @throws IOException if the input cannot be read
+   */
+  private boolean hasMore() throws IOException {
+    while (this.pos >= this.limit) {
+      if (!fill()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads more input into the buffer. Everything before the mark is
+   * discarded. If the marked part fills the whole buffer, it is enlarged.
+   *
+   * @return <code>false</code> if the input is exhausted
+   * @throws IOException if the input cannot be read
+   */
+  private boolean fill() throws IOException {
+    if (this.eof) {
+      return false;
+    }
+    if (this.mark > 0) {
+      System.arraycopy(this.buffer, this.mark, this.buffer, 0, this.limit - this.mark);
+      this.bufferOffset += this.mark;
+      this.pos -= this.mark;
+      this.limit -= this.mark;
+      this.mark = 0;
+    }
+    if (this.limit == this.buffer.length) {
+      this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+    }
+    int read = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+    if (read < 0) {
+      this.eof = true;
+      return false;
+    }
+    this.limit += read;
+    return true;
+  }
+
+  private void newLine(int start) {
+    this.line++;
+    this.lineStart = start;
+    if (this.lines != null) {
+      this.lines.add(start);
+    }
+  }
+
+  private void startToken() {
+    this.mark = this.pos;
+    this.tokenStart = this.bufferOffset + this.pos;
+    this.tokenLine = this.line;
+    this.tokenLineStart = this.lineStart;
+  }
+
+  private void singleCharacter(TokenType singleType) {
+    this.pos++;
+    this.tokenEnd = this.bufferOffset + this.pos;
+    this.type = singleType;
+  }
+
+  private void skipWhitespace() throws IOException {
+    while (hasMore()) {
+      char c = this.buffer[this.pos];
+      if (c > ' ') {
+        return;
+      }
+      if (c == NEW_LINE) {
+        newLine(this.bufferOffset + this.pos + 1);
+      }
+      this.pos++;
+    }
+  }
+
+  private void scanComment() throws IOException {
+    while (hasMore()) {
+      char c = this.buffer[this.pos];
+      if (c == NEW_LINE || c == CARRIAGE_RETURN) {
+        return;
+      }
+      this.pos++;
+    }
+  }
+
+  /**
+   * Scans a quoted string including both quotes. An unterminated string ends
+   * with the input.
+   */
+  private void scanString() throws IOException {
+    // opening quote
+    this.pos++;
+    while (hasMore()) {
+      char c = this.buffer[this.pos++];
+      if (c == STRING_MARKER) {
+        return;
+      } else if (c == NEW_LINE) {
+        newLine(this.bufferOffset + this.pos);
+      }
+    }
+  }
+
+  private void scanWord() throws IOException {
+    while (hasMore()) {
+      char c = this.buffer[this.pos];
+      if (c <= ' ' || isDelimiter(c)) {
+        return;
+      }
+      this.pos++;
+    }
+  }
+
+  /**
+   * Ends the current name token and looks ahead whether the next token is a
+   * value separator. Any whitespace in between is consumed.
+   *
+   * @return <code>true</code> if the name is a key
+   * @throws IOException if the input cannot be read
+   */
+  private boolean isFollowedBySeparator() throws IOException {
+    this.tokenEnd = this.bufferOffset + this.pos;
+    skipWhitespace();
+    return hasMore() && this.buffer[this.pos] == VALUE_SEPARATOR;
+  }
+
+  private static boolean isDelimiter(char c) {
+    switch (c) {
+      case VALUE_SEPARATOR:
+      case COMMENT_MARKER:
+      case NESTING_START:
+      case NESTING_END:
+      case STRING_MARKER:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A lightweight view of a single node of a {@link CompactTree}. It offers the
+ * read API of {@link Node}. Views are created on demand and compare equal if
+ * they refer to the same node of the same tree.
+ */
+public final class CompactNode {
+
+  /**
+   * @return the tree this node belongs to
+   */
+  public CompactTree getTree() {
+    return this.tree;
+  }
+
+  /**
+   * @return the index of this node in its tree
+   */
+  public int getIndex() {
+    return this.index;
+  }
+
+  /**
+   * @return the name of this node
+   */
+  public String getName() {
+    return this.tree.getName(this.index);
+  }
+
+  /**
+   * @return an unmodifiable list of children or an empty list if this node is a
+   * leaf
+   */
+  public List<CompactNode> getChildren() {
+    int count = 0;
+    for (int child = this.tree.getFirstChild(this.index); child != CompactTree.NO_NODE; child = this.tree.getNextSibling(child)) {
+      count++;
+    }
+    final int[] children = new int[count];
+    int i = 0;
+    for (int child = this.tree.getFirstChild(this.index); child != CompactTree.NO_NODE; child = this.tree.getNextSibling(child)) {
+      children[i++] = child;
+    }
+    return new AbstractList<CompactNode>() {
+      @Override
+      public CompactNode get(int index) {
+        return new CompactNode(tree, children[index]);
+      }
+
+      @Override
+      public int size() {
+        return children.length;
+      }
+    };
+  }
+
+  /**
+   * @return <code>true</code> if this node has no children
+   */
+  public boolean isLeaf() {
+    return this.tree.isLeaf(this.index);
+  }
+
+  /**
+   * @return <code>true</code> if this node is the root node
+   */
+  public boolean isRoot() {
+    return this.index == CompactTree.ROOT;
+  }
+
+  /**
+   * Prints the current node and all of its sub-nodes in the same format as the
+   * input format.
+   *
+   * @param indentations the number of indentations prefixing all output
+   * @return the finished output
+   */
+  public String print(int indentations) {
+    return this.tree.print(this.index, indentations);
+  }
+
+  @Override
+  public String toString() {
+    if (!isRoot()) {
+      return print(0);
+    }
+    if (isLeaf()) {
+      return getName();
+    }
+    StringBuilder result = new StringBuilder();
+    for (int child = this.tree.getFirstChild(this.index); child != CompactTree.NO_NODE; child = this.tree.getNextSibling(child)) {
+      result.append(this.tree.print(child, 0));
+    }
+    return result.toString();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof CompactNode)) {
+      return false;
+    }
+    final CompactNode other = (CompactNode) obj;
+    return this.tree == other.tree && this.index == other.index;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * System.identityHashCode(this.tree) + this.index;
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  CompactNode(CompactTree tree, int index) {
+    this.tree = Objects.requireNonNull(tree);
+    this.index = index;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final CompactTree tree;
+  private final int index;
+
+}
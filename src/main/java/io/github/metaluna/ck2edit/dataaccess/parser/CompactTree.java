@@ -0,0 +1,206 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.Objects;
+
+/**
+ * A read-only tree stored in parallel arrays instead of linked {@link Node}
+ * objects. Nodes are identified by their index; index 0 is the root. Names
+ * are kept in a table shared by all nodes, so each distinct name is stored
+ * only once.
+ * <p>
+ * The index based methods walk the tree without creating any objects.
+ * {@link CompactNode} offers the same read API as {@link Node} on top of them.
+ */
+public final class CompactTree {
+
+  /**
+   * The index returned if there is no such node.
+   */
+  public static final int NO_NODE = -1;
+
+  /**
+   * The index of the root node.
+   */
+  public static final int ROOT = 0;
+
+  /**
+   * @return a view of the root node
+   */
+  public CompactNode getRoot() {
+    return new CompactNode(this, ROOT);
+  }
+
+  /**
+   * @return the number of nodes including the root
+   */
+  public int size() {
+    return this.nameIds.length;
+  }
+
+  /**
+   * @return the number of distinct names
+   */
+  public int getNameCount() {
+    return this.names.length;
+  }
+
+  /**
+   * @param node the index of a node
+   * @return the name of the node
+   */
+  public String getName(int node) {
+    return this.names[this.nameIds[node]];
+  }
+
+  /**
+   * @param node the index of a node
+   * @return the index of the node's entry in the name table
+   */
+  public int getNameId(int node) {
+    return this.nameIds[node];
+  }
+
+  /**
+   * @param node the index of a node
+   * @return the index of the parent or {@link #NO_NODE} for the root
+   */
+  public int getParent(int node) {
+    return this.parents[node];
+  }
+
+  /**
+   * @param node the index of a node
+   * @return the index of the first child or {@link #NO_NODE} if the node is a
+   * leaf
+   */
+  public int getFirstChild(int node) {
+    return this.firstChildren[node];
+  }
+
+  /**
+   * @param node the index of a node
+   * @return the index of the next child of the same parent or
+   * {@link #NO_NODE} if it is the last one
+   */
+  public int getNextSibling(int node) {
+    return this.nextSiblings[node];
+  }
+
+  /**
+   * @param node the index of a node
+   * @return <code>true</code> if the node has no children
+   */
+  public boolean isLeaf(int node) {
+    return this.firstChildren[node] == NO_NODE;
+  }
+
+  /**
+   * Prints a node and all of its sub-nodes in the same format as
+   * {@link Node#print(int)}.
+   *
+   * @param node the index of a node
+   * @param indentations the number of indentations prefixing all output
+   * @return the finished output
+   */
+  public String print(int node, int indentations) {
+    if (indentations < 0) {
+      throw new IllegalArgumentException(String.format("Number of indentations must not be < 0, but is %d", indentations));
+    }
+    StringBuilder result = new StringBuilder();
+    print(result, node, indentations);
+    return result.toString();
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  /**
+   * Constructor. The arrays are taken over, not copied.
+   *
+   * @param names the name table
+   * @param nameIds the index of each node's name in the name table
+   * @param parents the parent of each node
+   * @param firstChildren the first child of each node
+   * @param nextSiblings the next sibling of each node
+   */
+  CompactTree(String[] names, int[] nameIds, int[] parents, int[] firstChildren, int[] nextSiblings) {
+    this.names = Objects.requireNonNull(names);
+    this.nameIds = Objects.requireNonNull(nameIds);
+    this.parents = Objects.requireNonNull(parents);
+    this.firstChildren = Objects.requireNonNull(firstChildren);
+    this.nextSiblings = Objects.requireNonNull(nextSiblings);
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final String INDENTATION_PREFIX = "\t";
+  private static final String NEW_LINE = "\r\n";
+
+  private final String[] names;
+  private final int[] nameIds;
+  private final int[] parents;
+  private final int[] firstChildren;
+  private final int[] nextSiblings;
+
+  private void print(StringBuilder builder, int node, int indentations) {
+    indent(builder, indentations);
+    builder.append(getName(node));
+    if (isLeaf(node)) {
+      return;
+    }
+    builder.append(" = ");
+
+    final int first = this.firstChildren[node];
+    if (!isLeaf(first)) {
+      printAsComplexValue(builder, first, indentations);
+    } else if (this.nextSiblings[first] == NO_NODE) {
+      builder.append(getName(first)).append(NEW_LINE);
+    } else {
+      printAsList(builder, first);
+    }
+  }
+
+  private void printAsComplexValue(StringBuilder builder, int first, int indentations) {
+    builder.append("{ ").append(NEW_LINE);
+    for (int child = first; child != NO_NODE; child = this.nextSiblings[child]) {
+      print(builder, child, indentations + 1);
+    }
+    indent(builder, indentations);
+    builder.append("}").append(NEW_LINE);
+  }
+
+  private void printAsList(StringBuilder builder, int first) {
+    builder.append("{ ").append(getName(first));
+    for (int child = this.nextSiblings[first]; child != NO_NODE; child = this.nextSiblings[child]) {
+      builder.append(' ').append(getName(child));
+    }
+    builder.append(" }").append(NEW_LINE);
+  }
+
+  private static void indent(StringBuilder builder, int indentations) {
+    for (int i = 0; i < indentations; ++i) {
+      builder.append(INDENTATION_PREFIX);
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link CompactTree} out of the recognized tokens. Nodes are
+ * appended to growing arrays in the order they are encountered.
+ */
+class CompactTreeBuilder implements TokenListener {
+
+  CompactTreeBuilder() {
+    this.current = addNode(CompactTree.NO_NODE, ROOT_NAME);
+  }
+
+  @Override
+  public void key(Tokenizer tokens) {
+    this.lastKey = addNode(this.current, tokens.text());
+  }
+
+  @Override
+  public void value(Tokenizer tokens) {
+    addNode(this.lastKey, tokens.text());
+  }
+
+  @Override
+  public void noValue(Tokenizer tokens) {
+    // the key stays a leaf
+  }
+
+  @Override
+  public boolean startBlock(Tokenizer tokens) {
+    if (this.depth == this.openBlocks.length) {
+      this.openBlocks = Arrays.copyOf(this.openBlocks, this.depth * 2);
+    }
+    this.openBlocks[this.depth++] = this.current;
+    this.current = this.lastKey;
+    return true;
+  }
+
+  @Override
+  public void endBlock(Tokenizer tokens) {
+    this.current = this.openBlocks[--this.depth];
+  }
+
+  @Override
+  public void listValue(Tokenizer tokens) {
+    addNode(this.current, tokens.text());
+  }
+
+  /**
+   * @return the tree built so far
+   */
+  CompactTree build() {
+    return new CompactTree(this.names.toArray(new String[this.names.size()]),
+            Arrays.copyOf(this.nameIds, this.size),
+            Arrays.copyOf(this.parents, this.size),
+            Arrays.copyOf(this.firstChildren, this.size),
+            Arrays.copyOf(this.nextSiblings, this.size));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final String ROOT_NAME = "[ROOT]";
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final Map<String, Integer> nameTable = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+  private int[] nameIds = new int[INITIAL_CAPACITY];
+  private int[] parents = new int[INITIAL_CAPACITY];
+  private int[] firstChildren = new int[INITIAL_CAPACITY];
+  private int[] nextSiblings = new int[INITIAL_CAPACITY];
+  /**
+   * only needed while building to append children in constant time
+   */
+  private int[] lastChildren = new int[INITIAL_CAPACITY];
+  private int size;
+
+  private int[] openBlocks = new int[16];
+  private int depth;
+  private int current;
+  private int lastKey;
+
+  private int addNode(int parent, String name) {
+    if (this.size == this.nameIds.length) {
+      final int capacity = this.size * 2;
+      this.nameIds = Arrays.copyOf(this.nameIds, capacity);
+      this.parents = Arrays.copyOf(this.parents, capacity);
+      this.firstChildren = Arrays.copyOf(this.firstChildren, capacity);
+      this.nextSiblings = Arrays.copyOf(this.nextSiblings, capacity);
+      this.lastChildren = Arrays.copyOf(this.lastChildren, capacity);
+    }
+    final int node = this.size++;
+    this.nameIds[node] = nameId(name);
+    this.parents[node] = parent;
+    this.firstChildren[node] = CompactTree.NO_NODE;
+    this.nextSiblings[node] = CompactTree.NO_NODE;
+    this.lastChildren[node] = CompactTree.NO_NODE;
+    if (parent != CompactTree.NO_NODE) {
+      final int previous = this.lastChildren[parent];
+      if (previous == CompactTree.NO_NODE) {
+        this.firstChildren[parent] = node;
+      } else {
+        this.nextSiblings[previous] = node;
+      }
+      this.lastChildren[parent] = node;
+    }
+    return node;
+  }
+
+  private int nameId(String name) {
+    Integer id = this.nameTable.get(name);
+    if (id == null) {
+      id = this.names.size();
+      this.names.add(name);
+      this.nameTable.put(name, id);
+    }
+    return id;
+  }
+
+}
@@ -0,0 +1,289 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A node of a {@link ConcreteTree}. Besides its name it knows where it is in
+ * the source text, so that changes only touch the affected spans.
+ */
+public class ConcreteNode {
+
+  /**
+   * @return the name of this node as it appears in the source, including
+   * quotes
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Changes the name of this node. Only the name is replaced in the source.
+   *
+   * @param name the new name
+   */
+  public void setName(String name) {
+    Objects.requireNonNull(name);
+    if (isRoot()) {
+      throw new UnsupportedOperationException("The root node cannot be renamed");
+    }
+    if (name.equals(this.name)) {
+      return;
+    }
+    this.name = name;
+    if (this.namePatch == null || this.namePatch.superseded) {
+      this.namePatch = this.tree.patch(this.nameStart, this.nameEnd, name);
+    } else {
+      this.namePatch.text = name;
+    }
+  }
+
+  /**
+   * @return an unmodifiable list of the children that were parsed and have
+   * not been removed
+   */
+  public List<ConcreteNode> getChildren() {
+    return Collections.unmodifiableList(this.children);
+  }
+
+  /**
+   * @return <code>true</code> if this node has no children
+   */
+  public boolean isLeaf() {
+    return this.children.isEmpty();
+  }
+
+  /**
+   * @return <code>true</code> if this node is the root node
+   */
+  public boolean isRoot() {
+    return this.parent == null;
+  }
+
+  /**
+   * @return <code>true</code> if the children of this node are enclosed in
+   * braces in the source
+   */
+  public boolean isBlock() {
+    return this.closeStart >= 0;
+  }
+
+  /**
+   * Adds a new child at the end of this block. It is printed like
+   * {@link Node#print(int)} does and indented one level deeper than this
+   * node.
+   *
+   * @param child the new child
+   * @throws IllegalStateException if this node is not a block or the root
+   */
+  public void addChild(Node child) {
+    Objects.requireNonNull(child);
+    if (!isBlock()) {
+      throw new IllegalStateException(String.format("Cannot add '%s' to '%s' because it is not a block", child.getName(), this.name));
+    }
+    final String source = this.tree.source;
+    if (child.isLeaf()) {
+      final boolean separated = this.closeStart > 0 && Character.isWhitespace(source.charAt(this.closeStart - 1));
+      this.tree.patch(this.closeStart, this.closeStart, (separated ? "" : " ") + child.getName() + " ");
+      return;
+    }
+    final String printed = this.tree.toSourceLineBreaks(child.print(this.depth + 1));
+    int lineStart = this.closeStart;
+    while (lineStart > 0 && isBlank(source.charAt(lineStart - 1))) {
+      lineStart--;
+    }
+    if (lineStart == 0 || source.charAt(lineStart - 1) == '\n') {
+      // the closing brace is on a line of its own
+      this.tree.patch(lineStart, lineStart, printed);
+    } else if (isRoot()) {
+      this.tree.patch(this.closeStart, this.closeStart, this.tree.lineBreak() + printed);
+    } else {
+      final StringBuilder indentation = new StringBuilder();
+      for (int i = 0; i < this.depth; i++) {
+        indentation.append('\t');
+      }
+      this.tree.patch(this.closeStart, this.closeStart, this.tree.lineBreak() + printed + indentation);
+    }
+  }
+
+  /**
+   * Removes a child including its value. If it has a line of its own, the
+   * whole line is removed including a comment at its end.
+   *
+   * @param child the child to remove
+   */
+  public void removeChild(ConcreteNode child) {
+    Objects.requireNonNull(child);
+    if (!this.children.remove(child)) {
+      throw new IllegalArgumentException(String.format("'%s' is not a child of '%s'", child.getName(), this.name));
+    }
+    final String source = this.tree.source;
+    int start = child.nameStart;
+    while (start > 0 && isBlank(source.charAt(start - 1))) {
+      start--;
+    }
+    int end = child.statementEnd;
+    if (start == 0 || source.charAt(start - 1) == '\n') {
+      while (end < source.length() && isBlank(source.charAt(end))) {
+        end++;
+      }
+      // a comment after the child goes with it
+      if (end < source.length() && source.charAt(end) == '#') {
+        while (end < source.length() && source.charAt(end) != '\r' && source.charAt(end) != '\n') {
+          end++;
+        }
+      }
+      if (end < source.length() && source.charAt(end) == '\r') {
+        end++;
+      }
+      if (end < source.length() && source.charAt(end) == '\n') {
+        end++;
+      }
+    }
+    this.tree.patch(start, end, "");
+  }
+
+  /**
+   * Converts this node and its children to a tree of plain nodes.
+   *
+   * @return the new node
+   */
+  public Node toNode() {
+    final Node result = isRoot() ? Node.createRoot() : Node.create(this.name);
+    this.children.forEach(c -> result.addChild(c.toNode()));
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return this.name;
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  /**
+   * Creates the root node spanning a whole text.
+   */
+  ConcreteNode(ConcreteTree tree, String source) {
+    this.tree = tree;
+    this.parent = null;
+    this.name = "[ROOT]";
+    this.depth = -1;
+    this.nameStart = 0;
+    this.nameEnd = 0;
+    this.statementEnd = source.length();
+    this.closeStart = source.length();
+  }
+
+  /**
+   * Creates a node for a token.
+   *
+   * @param parent the parent node
+   * @param tokens the tokenizer positioned on the token
+   */
+  ConcreteNode(ConcreteNode parent, Tokenizer tokens) {
+    this.tree = parent.tree;
+    this.parent = parent;
+    this.name = tokens.text();
+    this.depth = parent.depth + 1;
+    this.nameStart = tokens.start();
+    this.nameEnd = tokens.end();
+    this.statementEnd = this.nameEnd;
+    this.closeStart = -1;
+    parent.children.add(this);
+  }
+
+  /**
+   * Replaces this node including its value by a printed node. Replacing the
+   * root replaces the whole text.
+   *
+   * @param replacement the new node
+   */
+  void replaceWith(Node replacement) {
+    if (isRoot()) {
+      this.tree.patch(0, this.statementEnd, this.tree.toSourceLineBreaks(replacement.toString()));
+      return;
+    }
+    String printed = this.tree.toSourceLineBreaks(replacement.print(0));
+    final String lineBreak = this.tree.lineBreak();
+    if (printed.endsWith(lineBreak)) {
+      printed = printed.substring(0, printed.length() - lineBreak.length());
+    }
+    if (this.depth > 0) {
+      final StringBuilder indentation = new StringBuilder(lineBreak);
+      for (int i = 0; i < this.depth; i++) {
+        indentation.append('\t');
+      }
+      printed = printed.replace(lineBreak, indentation.toString());
+    }
+    this.tree.patch(this.nameStart, this.statementEnd, printed);
+  }
+
+  /**
+   * Marks this node as having a block.
+   */
+  void openBlock() {
+    this.closeStart = this.nameEnd;
+  }
+
+  /**
+   * @param closeStart the offset of the closing brace
+   * @param statementEnd the offset after the closing brace
+   */
+  void closeBlock(int closeStart, int statementEnd) {
+    this.closeStart = closeStart;
+    this.statementEnd = statementEnd;
+  }
+
+  void setStatementEnd(int statementEnd) {
+    this.statementEnd = statementEnd;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final ConcreteTree tree;
+  private final ConcreteNode parent;
+  private final List<ConcreteNode> children = new ArrayList<>(0);
+  private final int depth;
+  private final int nameStart;
+  private final int nameEnd;
+  private String name;
+  private ConcreteTree.Patch namePatch;
+  /**
+   * the offset after the value of this node
+   */
+  private int statementEnd;
+  /**
+   * the offset of the closing brace of this node's block or -1 if it does not
+   * have one
+   */
+  private int closeStart;
+
+  private static boolean isBlank(char c) {
+    return c == ' ' || c == '\t';
+  }
+
+}
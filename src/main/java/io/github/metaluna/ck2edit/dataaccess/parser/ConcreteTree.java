@@ -0,0 +1,400 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A syntax tree that keeps the source text it was parsed from, including
+ * comments, whitespace, line breaks and quoting. Changes to its nodes are
+ * recorded as patches of the source. Writing the tree copies the source and
+ * only replaces the patched spans, so unchanged parts of a file stay the same
+ * byte for byte.
+ * <p>
+ * Patches must not overlap. A replacement of a span that contains earlier
+ * patches supersedes them, because it was printed from the changed nodes.
+ * Any other overlap is rejected with an {@link IllegalStateException}.
+ */
+public class ConcreteTree {
+
+  /**
+   * Parses a text.
+   *
+   * @param source the text
+   * @return the syntax tree of the text
+   */
+  public static ConcreteTree parse(String source) {
+    return parse(source, TextEncoding.WINDOWS_1252);
+  }
+
+  /**
+   * Parses the text of a file.
+   *
+   * @param source the text
+   * @param encoding the encoding of the file, which it is to be written in
+   * again
+   * @return the syntax tree of the text
+   */
+  public static ConcreteTree parse(String source, TextEncoding encoding) {
+    LOG.entry();
+    final ConcreteTree result = new ConcreteTree(source, encoding);
+    try (Tokenizer tokens = new CharTokenizer(new StringReader(source))) {
+      new MultiValueParser().parse(tokens, new ConcreteTreeBuilder(result.root));
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return LOG.exit(result);
+  }
+
+  /**
+   * @return the root node standing for the whole text
+   */
+  public ConcreteNode getRoot() {
+    return this.root;
+  }
+
+  /**
+   * @return the encoding of the file the text was read from
+   */
+  public TextEncoding getEncoding() {
+    return this.encoding;
+  }
+
+  /**
+   * @return <code>true</code> if any node has been changed since parsing
+   */
+  public boolean isModified() {
+    return !this.patches.isEmpty();
+  }
+
+  /**
+   * Changes the tree to match a tree of nodes with as few patches as
+   * possible. Children are matched by name. Values that differ are replaced,
+   * missing children are added at the end of their block and children that
+   * do not exist anymore are removed. If that would not give the children in
+   * the desired order, e.g. because entries or list values were reordered,
+   * the whole block is printed again, losing the comments inside it.
+   * <p>
+   * If there are many top-level nodes, they are compared and printed on the
+   * common fork-join pool, and their patches are recorded afterwards.
+   *
+   * @param desired the root of the tree to match
+   */
+  public void update(Node desired) {
+    LOG.entry(desired);
+    updateChildren(this.root, Objects.requireNonNull(desired));
+    LOG.exit();
+  }
+
+  /**
+   * Writes the patched text. Unchanged spans are copied from the source.
+   *
+   * @param out where to write the text to
+   * @throws IOException if writing fails
+   */
+  public void write(Appendable out) throws IOException {
+    LOG.entry();
+    int cursor = 0;
+    for (List<Patch> atOffset : this.patches.values()) {
+      for (Patch patch : atOffset) {
+        out.append(this.source, cursor, patch.start).append(patch.text);
+        cursor = patch.end;
+      }
+    }
+    out.append(this.source, cursor, this.source.length());
+    LOG.exit();
+  }
+
+  /**
+   * @return the patched text
+   */
+  @Override
+  public String toString() {
+    final StringBuilder result = new StringBuilder(this.source.length());
+    try {
+      write(result);
+    } catch (IOException ex) {
+      throw new AssertionError("StringBuilder does not throw", ex);
+    }
+    return result.toString();
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  /**
+   * A replacement of a span of the source.
+   */
+  static class Patch {
+
+    final int start;
+    final int end;
+    String text;
+    /**
+     * whether a later patch of a span around this one replaced it
+     */
+    boolean superseded;
+
+    Patch(int start, int end, String text) {
+      this.start = start;
+      this.end = end;
+      this.text = text;
+    }
+
+    /**
+     * @return <code>true</code> if both patches change the same text. An
+     * insertion only overlaps a span it is strictly inside of.
+     */
+    boolean overlaps(Patch other) {
+      if (this.start == this.end) {
+        return other.start < this.start && this.start < other.end;
+      }
+      if (other.start == other.end) {
+        return this.start < other.start && other.start < this.end;
+      }
+      return this.start < other.end && other.start < this.end;
+    }
+  }
+
+  final String source;
+
+  /**
+   * Records a replacement of a span of the source.
+   *
+   * @param start the offset of the first replaced character
+   * @param end the offset after the last replaced character
+   * @param text the replacement
+   * @return the patch, whose text may still be changed unless it has been
+   * superseded
+   * @throws IllegalStateException if the span overlaps an earlier patch
+   * without containing it
+   */
+  Patch patch(int start, int end, String text) {
+    final Patch result = new Patch(start, end, text);
+    final List<Patch> collecting = this.collected.get();
+    if (collecting != null) {
+      collecting.add(result);
+    } else {
+      record(result);
+    }
+    return result;
+  }
+
+  /**
+   * Converts text printed by {@link Node} to the line breaks of the source.
+   */
+  String toSourceLineBreaks(String printed) {
+    return this.lineBreak.equals(NODE_LINE_BREAK) ? printed : printed.replace(NODE_LINE_BREAK, this.lineBreak);
+  }
+
+  String lineBreak() {
+    return this.lineBreak;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+  private static final String NODE_LINE_BREAK = "\r\n";
+  private static final int NO_MATCH = -1;
+  private static final int PARALLEL_THRESHOLD = 1024;
+
+  private final ConcreteNode root;
+  private final String lineBreak;
+  private final TextEncoding encoding;
+  /**
+   * the patches by their start offset; insertions come before a replacement
+   * starting at the same offset
+   */
+  private final NavigableMap<Integer, List<Patch>> patches = new TreeMap<>();
+  /**
+   * the patches of the top-level node a thread is updating, which are
+   * recorded once all of them are done
+   */
+  private final ThreadLocal<List<Patch>> collected = new ThreadLocal<>();
+
+  private void record(Patch result) {
+    final int start = result.start;
+    final int end = result.end;
+    // patches do not overlap, so only the last ones starting before this one
+    // can reach into its span
+    final Map.Entry<Integer, List<Patch>> before = this.patches.lowerEntry(start);
+    if (before != null) {
+      for (Patch earlier : before.getValue()) {
+        if (earlier.overlaps(result)) {
+          throw overlap(earlier, result);
+        }
+      }
+    }
+    final Iterator<List<Patch>> inside = this.patches.subMap(start, true, end, false).values().iterator();
+    while (inside.hasNext()) {
+      final List<Patch> atOffset = inside.next();
+      for (Iterator<Patch> it = atOffset.iterator(); it.hasNext();) {
+        final Patch earlier = it.next();
+        if (!earlier.overlaps(result)) {
+          continue;
+        }
+        if (earlier.end > end) {
+          throw overlap(earlier, result);
+        }
+        earlier.superseded = true;
+        it.remove();
+      }
+      if (atOffset.isEmpty()) {
+        inside.remove();
+      }
+    }
+    final List<Patch> atStart = this.patches.computeIfAbsent(start, k -> new ArrayList<>(1));
+    final Patch last = atStart.isEmpty() ? null : atStart.get(atStart.size() - 1);
+    if (start == end && last != null && last.start != last.end) {
+      // insertions go before the replacement starting at the same offset
+      atStart.add(atStart.size() - 1, result);
+    } else {
+      atStart.add(result);
+    }
+  }
+
+  private static IllegalStateException overlap(Patch earlier, Patch patch) {
+    return new IllegalStateException(String.format("Change of offsets %d-%d overlaps earlier change of %d-%d",
+            patch.start, patch.end, earlier.start, earlier.end));
+  }
+
+  private ConcreteTree(String source, TextEncoding encoding) {
+    this.source = Objects.requireNonNull(source);
+    this.encoding = Objects.requireNonNull(encoding);
+    this.root = new ConcreteNode(this, source);
+    this.lineBreak = source.contains(NODE_LINE_BREAK) || !source.contains("\n") ? NODE_LINE_BREAK : "\n";
+  }
+
+  private void updateChildren(ConcreteNode existing, Node desired) {
+    final List<ConcreteNode> children = existing.getChildren();
+    final Map<String, Deque<Integer>> byName = new HashMap<>();
+    for (int i = 0; i < children.size(); i++) {
+      byName.computeIfAbsent(children.get(i).getName(), k -> new ArrayDeque<>()).add(i);
+    }
+    final List<Node> wantedChildren = desired.getChildren();
+    final int[] matches = new int[wantedChildren.size()];
+    for (int i = 0; i < matches.length; i++) {
+      final Deque<Integer> candidates = byName.get(wantedChildren.get(i).getName());
+      final Integer match = candidates == null ? null : candidates.poll();
+      matches[i] = match == null ? NO_MATCH : match;
+    }
+    if (!isInOrder(matches)) {
+      LOG.debug("Printing '%s' again because the order of its children changed", existing.getName());
+      existing.replaceWith(desired);
+      return;
+    }
+    final List<ConcreteNode> unmatched = new ArrayList<>();
+    byName.values().forEach(indices -> indices.forEach(i -> unmatched.add(children.get(i))));
+    if (existing.isRoot() && matches.length >= PARALLEL_THRESHOLD) {
+      updateInParallel(children, wantedChildren, matches);
+    }
+    for (int i = 0; i < matches.length; i++) {
+      if (matches[i] == NO_MATCH) {
+        existing.addChild(wantedChildren.get(i));
+      } else if (!existing.isRoot() || matches.length < PARALLEL_THRESHOLD) {
+        updateNode(children.get(matches[i]), wantedChildren.get(i));
+      }
+    }
+    unmatched.forEach(existing::removeChild);
+  }
+
+  /**
+   * Updates the matched top-level nodes on the common fork-join pool. Each
+   * node only patches its own span, so the patches are collected per node
+   * and recorded in order afterwards.
+   */
+  private void updateInParallel(List<ConcreteNode> children, List<Node> wantedChildren, int[] matches) {
+    final List<List<Patch>> patchesPerNode = IntStream.range(0, matches.length)
+            .parallel()
+            .mapToObj(i -> {
+              if (matches[i] == NO_MATCH) {
+                return Collections.<Patch>emptyList();
+              }
+              final List<Patch> result = new ArrayList<>();
+              this.collected.set(result);
+              try {
+                updateNode(children.get(matches[i]), wantedChildren.get(i));
+              } finally {
+                this.collected.remove();
+              }
+              return result;
+            })
+            .collect(Collectors.toList());
+    patchesPerNode.forEach(nodePatches -> nodePatches.forEach(this::record));
+  }
+
+  /**
+   * @param matches the index of the existing child matching each desired
+   * child or {@link #NO_MATCH} for a new one
+   * @return <code>true</code> if the existing children are in the desired
+   * order and new ones, which are added at the end, come last
+   */
+  private static boolean isInOrder(int[] matches) {
+    int previous = -1;
+    boolean added = false;
+    for (int match : matches) {
+      if (match == NO_MATCH) {
+        added = true;
+      } else if (added || match < previous) {
+        return false;
+      } else {
+        previous = match;
+      }
+    }
+    return true;
+  }
+
+  private void updateNode(ConcreteNode existing, Node desired) {
+    if (existing.isBlock()) {
+      updateChildren(existing, desired);
+    } else if (existing.isLeaf()) {
+      if (!desired.isLeaf()) {
+        existing.replaceWith(desired);
+      }
+    } else if (isSimpleValue(desired)) {
+      existing.getChildren().get(0).setName(desired.getChildren().get(0).getName());
+    } else {
+      existing.replaceWith(desired);
+    }
+  }
+
+  private static boolean isSimpleValue(Node node) {
+    return node.getChildren().size() == 1 && node.getChildren().get(0).isLeaf();
+  }
+
+}
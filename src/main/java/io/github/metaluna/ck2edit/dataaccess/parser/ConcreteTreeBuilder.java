@@ -0,0 +1,86 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * Builds a {@link ConcreteTree} out of the recognized tokens, remembering
+ * where each of them is in the source.
+ */
+class ConcreteTreeBuilder implements TokenListener {
+
+  /**
+   * Constructor
+   *
+   * @param root the node all top-level nodes are added to
+   */
+  ConcreteTreeBuilder(ConcreteNode root) {
+    this.current = Objects.requireNonNull(root);
+  }
+
+  @Override
+  public void key(Tokenizer tokens) {
+    this.lastKey = new ConcreteNode(this.current, tokens);
+  }
+
+  @Override
+  public void value(Tokenizer tokens) {
+    new ConcreteNode(this.lastKey, tokens);
+    this.lastKey.setStatementEnd(tokens.end());
+  }
+
+  @Override
+  public void noValue(Tokenizer tokens) {
+    // the value separator and any whitespace after it belong to the key
+    this.lastKey.setStatementEnd(tokens.start());
+  }
+
+  @Override
+  public boolean startBlock(Tokenizer tokens) {
+    this.lastKey.openBlock();
+    this.parents.push(this.current);
+    this.current = this.lastKey;
+    return true;
+  }
+
+  @Override
+  public void endBlock(Tokenizer tokens) {
+    this.current.closeBlock(tokens.start(), tokens.end());
+    this.current = this.parents.pop();
+  }
+
+  @Override
+  public void listValue(Tokenizer tokens) {
+    new ConcreteNode(this.current, tokens);
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final Deque<ConcreteNode> parents = new ArrayDeque<>();
+  private ConcreteNode current;
+  private ConcreteNode lastKey;
+
+}
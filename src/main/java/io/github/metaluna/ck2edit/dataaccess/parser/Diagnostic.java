@@ -0,0 +1,90 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A problem found while loading a file that did not stop the loading, e.g. a
+ * malformed statement that was skipped.
+ */
+public final class Diagnostic {
+
+  /**
+   * Creates a diagnostic without a position in the file.
+   *
+   * @param file the file the problem was found in
+   * @param message the description of the problem
+   */
+  public Diagnostic(Path file, String message) {
+    this(file, 0, 0, message);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param file the file the problem was found in
+   * @param line the line of the problem, starting at 1, or 0 if unknown
+   * @param column the column of the problem, starting at 1, or 0 if unknown
+   * @param message the description of the problem
+   */
+  public Diagnostic(Path file, int line, int column, String message) {
+    this.file = Objects.requireNonNull(file);
+    this.line = line;
+    this.column = column;
+    this.message = Objects.requireNonNull(message);
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  public int getLine() {
+    return line;
+  }
+
+  public int getColumn() {
+    return column;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    if (line == 0) {
+      return String.format("%s: %s", file, message);
+    }
+    return String.format("%s:%d:%d: %s", file, line, column, message);
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final Path file;
+  private final int line;
+  private final int column;
+  private final String message;
+
+}
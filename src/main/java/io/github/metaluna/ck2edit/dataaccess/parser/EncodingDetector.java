@@ -0,0 +1,171 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * Guesses the encoding of a file. A UTF-8 byte order mark decides right away.
+ * Otherwise text is taken for UTF-8 if it contains multi-byte sequences and
+ * all of them are valid; a single invalid sequence makes it Windows-1252,
+ * which is also assumed for plain ASCII. Runs of ASCII are skipped eight
+ * bytes at a time.
+ */
+public final class EncodingDetector {
+
+  /**
+   * Detects the encoding of a whole input.
+   *
+   * @param input the input; its position is not used
+   * @param start offset of the first byte
+   * @param end offset after the last byte
+   * @return the encoding
+   */
+  public static TextEncoding detect(ByteBuffer input, int start, int end) {
+    return detect(input, start, end, false);
+  }
+
+  /**
+   * Detects the encoding of a stream from its first bytes. The stream is
+   * reset to where it was afterwards.
+   *
+   * @param input the stream, which must support marks
+   * @return the encoding
+   * @throws IOException if the stream cannot be read
+   */
+  public static TextEncoding detect(InputStream input) throws IOException {
+    if (!Objects.requireNonNull(input).markSupported()) {
+      throw new IllegalArgumentException("Stream must support marks");
+    }
+    input.mark(SAMPLE_SIZE);
+    final byte[] sample = new byte[SAMPLE_SIZE];
+    int length = 0;
+    try {
+      int read;
+      while (length < sample.length && (read = input.read(sample, length, sample.length - length)) >= 0) {
+        length += read;
+      }
+    } finally {
+      input.reset();
+    }
+    return detect(ByteBuffer.wrap(sample), 0, length, length == sample.length);
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  static final byte[] UTF_8_BOM = {(byte) 0xef, (byte) 0xbb, (byte) 0xbf};
+
+  // ---vvv--- PRIVATE ---vvv---
+  /**
+   * how much of a stream is looked at
+   */
+  private static final int SAMPLE_SIZE = 64 * 1024;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+  /**
+   * Hide constructor to prevent instantiation
+   */
+  private EncodingDetector() {
+  }
+
+  /**
+   * @param truncated whether the input may end within a multi-byte sequence
+   */
+  private static TextEncoding detect(ByteBuffer input, int start, int end, boolean truncated) {
+    final ByteBuffer bytes = input.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    if (end - start >= UTF_8_BOM.length
+            && bytes.get(start) == UTF_8_BOM[0]
+            && bytes.get(start + 1) == UTF_8_BOM[1]
+            && bytes.get(start + 2) == UTF_8_BOM[2]) {
+      return TextEncoding.UTF_8_BOM;
+    }
+
+    boolean multiByte = false;
+    int pos = start;
+    while (pos < end) {
+      if (pos + Long.BYTES <= end && (bytes.getLong(pos) & HIGH_BITS) == 0) {
+        pos += Long.BYTES;
+        continue;
+      }
+      final int lead = bytes.get(pos) & 0xff;
+      if (lead < 0x80) {
+        pos++;
+        continue;
+      }
+      final int length = sequenceLength(lead);
+      if (length == 0) {
+        return TextEncoding.WINDOWS_1252;
+      }
+      if (pos + length > end) {
+        return truncated && multiByte ? TextEncoding.UTF_8 : TextEncoding.WINDOWS_1252;
+      }
+      for (int i = 1; i < length; i++) {
+        if ((bytes.get(pos + i) & 0xc0) != 0x80) {
+          return TextEncoding.WINDOWS_1252;
+        }
+      }
+      if (isOverlongOrOutOfRange(lead, bytes.get(pos + 1) & 0xff)) {
+        return TextEncoding.WINDOWS_1252;
+      }
+      multiByte = true;
+      pos += length;
+    }
+    return multiByte ? TextEncoding.UTF_8 : TextEncoding.WINDOWS_1252;
+  }
+
+  /**
+   * @return the length of the sequence started by the byte or 0 if it cannot
+   * start one
+   */
+  private static int sequenceLength(int lead) {
+    if (lead >= 0xc2 && lead <= 0xdf) {
+      return 2;
+    } else if (lead >= 0xe0 && lead <= 0xef) {
+      return 3;
+    } else if (lead >= 0xf0 && lead <= 0xf4) {
+      return 4;
+    }
+    return 0;
+  }
+
+  private static boolean isOverlongOrOutOfRange(int lead, int second) {
+    switch (lead) {
+      case 0xe0:
+        return second < 0xa0;
+      case 0xed:
+        // surrogates
+        return second > 0x9f;
+      case 0xf0:
+        return second < 0x90;
+      case 0xf4:
+        return second > 0x8f;
+      default:
+        return false;
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.Objects;
+
+/**
+ * Passes the recognized tokens on to a {@link ParseHandler}.
+ */
+class HandlerAdapter implements TokenListener, SourceLocator {
+
+  /**
+   * Constructor
+   *
+   * @param handler the handler to notify
+   */
+  HandlerAdapter(ParseHandler handler) {
+    this.handler = Objects.requireNonNull(handler);
+    this.handler.setLocator(this);
+  }
+
+  @Override
+  public void key(Tokenizer tokens) {
+    this.key = tokens.text();
+    this.keyLine = tokens.line();
+    this.keyColumn = tokens.column();
+    this.keyOffset = tokens.start();
+  }
+
+  @Override
+  public void value(Tokenizer tokens) {
+    atKey();
+    this.handler.keyValue(this.key, tokens.text());
+  }
+
+  @Override
+  public void noValue(Tokenizer tokens) {
+    atKey();
+    this.handler.startBlock(this.key);
+    this.handler.endBlock();
+  }
+
+  @Override
+  public boolean startBlock(Tokenizer tokens) {
+    atKey();
+    this.handler.startBlock(this.key);
+    return true;
+  }
+
+  @Override
+  public void endBlock(Tokenizer tokens) {
+    at(tokens);
+    this.handler.endBlock();
+  }
+
+  @Override
+  public void listValue(Tokenizer tokens) {
+    at(tokens);
+    this.handler.listValue(tokens.text());
+  }
+
+  @Override
+  public int getLine() {
+    return this.line;
+  }
+
+  @Override
+  public int getColumn() {
+    return this.column;
+  }
+
+  @Override
+  public int getOffset() {
+    return this.offset;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final ParseHandler handler;
+  private String key;
+  private int keyLine;
+  private int keyColumn;
+  private int keyOffset;
+  private int line;
+  private int column;
+  private int offset;
+
+  private void atKey() {
+    this.line = this.keyLine;
+    this.column = this.keyColumn;
+    this.offset = this.keyOffset;
+  }
+
+  private void at(Tokenizer tokens) {
+    this.line = tokens.line();
+    this.column = tokens.column();
+    this.offset = tokens.start();
+  }
+
+}
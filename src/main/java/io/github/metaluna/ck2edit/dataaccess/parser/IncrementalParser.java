@@ -0,0 +1,286 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps a tree of nodes in sync with a text that is being edited. Only the
+ * top-level statements touched by an edit are parsed again and their nodes
+ * spliced into the tree.
+ * <p>
+ * A top-level statement is a key with its value or block, a list value or an
+ * anonymous block. Any whitespace and comments after a statement belong to
+ * it. Each statement is parsed on its own, which gives the same tree as
+ * parsing the whole text because statements do not influence each other. If
+ * an edit leaves a block, string or comment open or a key without its value,
+ * the following statements are parsed again as well until the structure is
+ * stable.
+ */
+public class IncrementalParser {
+
+  /**
+   * Parses the initial text.
+   *
+   * @param text the whole text
+   */
+  public IncrementalParser(String text) {
+    LOG.entry();
+    this.text = new StringBuilder(Objects.requireNonNull(text));
+    this.root = Node.createRoot();
+    final Region region = parseRegion(0, this.text.length(), false);
+    this.starts = region.starts;
+    this.childCounts = region.childCounts;
+    this.count = region.count;
+    this.root.replaceChildren(0, 0, region.nodes);
+    LOG.exit();
+  }
+
+  /**
+   * @return the root of the tree, which stays the same across edits
+   */
+  public Node getRoot() {
+    return this.root;
+  }
+
+  /**
+   * @return the current text
+   */
+  public String getText() {
+    return this.text.toString();
+  }
+
+  /**
+   * Applies an edit to the text and updates the tree.
+   *
+   * @param offset where the edit starts
+   * @param removedLength the number of characters removed at the offset
+   * @param insertedText the text inserted at the offset
+   */
+  public void edit(int offset, int removedLength, String insertedText) {
+    LOG.entry(offset, removedLength, insertedText);
+    Objects.requireNonNull(insertedText);
+    if (offset < 0 || removedLength < 0 || offset + removedLength > this.text.length()) {
+      throw new IndexOutOfBoundsException(String.format("Edit of %d characters at %d is outside of the text of length %d", removedLength, offset, this.text.length()));
+    }
+    final int oldLength = this.text.length();
+    this.text.replace(offset, offset + removedLength, insertedText);
+    final int delta = insertedText.length() - removedLength;
+
+    // include the statement before the edit, because deleting the whitespace
+    // between two statements may join them
+    final int first = statementAt(Math.max(0, offset - 1));
+    int last = statementAt(Math.min(oldLength, offset + removedLength));
+    final int regionStart = this.count == 0 ? 0 : this.starts[first];
+    Region region;
+    while (true) {
+      final int regionEnd = last + 1 < this.count ? this.starts[last + 1] + delta : this.text.length();
+      region = parseRegion(regionStart, regionEnd, last + 1 < this.count);
+      if (!region.open) {
+        break;
+      }
+      last++;
+    }
+    LOG.debug("Reparsed statements %d to %d between offsets %d and %d", first, last, regionStart, regionStart + region.length);
+    splice(first, last, region, delta);
+    LOG.exit();
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+  private final StringBuilder text;
+  private final Node root;
+  /**
+   * the offset at which each top-level statement starts; the first one
+   * always starts at 0
+   */
+  private int[] starts;
+  /**
+   * the number of nodes each statement added to the root
+   */
+  private int[] childCounts;
+  private int count;
+
+  /**
+   * The statements of a part of the text.
+   */
+  private static class Region {
+
+    int[] starts = new int[8];
+    int[] childCounts = new int[8];
+    int count;
+    List<Node> nodes = new ArrayList<>();
+    int length;
+    /**
+     * whether the region ends with an open block or a key without a value
+     */
+    boolean open;
+
+    void add(int start, List<Node> statementNodes) {
+      if (this.count == this.starts.length) {
+        this.starts = Arrays.copyOf(this.starts, this.count * 2);
+        this.childCounts = Arrays.copyOf(this.childCounts, this.count * 2);
+      }
+      this.starts[this.count] = start;
+      this.childCounts[this.count] = statementNodes.size();
+      this.count++;
+      this.nodes.addAll(statementNodes);
+    }
+  }
+
+  /**
+   * @return the index of the statement containing an offset
+   */
+  private int statementAt(int offset) {
+    int low = 0;
+    int high = this.count - 1;
+    while (low < high) {
+      final int middle = (low + high + 1) >>> 1;
+      if (this.starts[middle] <= offset) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Splits a part of the text into top-level statements and parses each of
+   * them.
+   *
+   * @param start the offset of the first character
+   * @param end the offset after the last character
+   * @param hasMore whether more statements follow the region
+   */
+  private Region parseRegion(int start, int end, boolean hasMore) {
+    final String source = this.text.substring(start, end);
+    final Region result = new Region();
+    result.length = source.length();
+    try (Tokenizer tokens = new CharTokenizer(new StringReader(source))) {
+      int depth = 0;
+      boolean afterSeparator = false;
+      boolean cutOff = false;
+      int statementStart = -1;
+      TokenType type;
+      while ((type = tokens.next()) != TokenType.END) {
+        cutOff = tokens.end() == source.length() && isCutOff(type, tokens);
+        if (type == TokenType.COMMENT) {
+          continue;
+        }
+        // anything at the start of the region belongs to the first statement
+        final boolean startsStatement = statementStart < 0 || depth == 0 && !afterSeparator
+                && (type == TokenType.KEY || type == TokenType.VALUE || type == TokenType.QUOTED || type == TokenType.OPEN);
+        if (startsStatement) {
+          if (statementStart >= 0) {
+            result.add(start + statementStart, parseStatement(source, statementStart, tokens.start()));
+          }
+          // leading whitespace and comments belong to the first statement
+          statementStart = statementStart < 0 ? 0 : tokens.start();
+        }
+        if (type == TokenType.OPEN) {
+          depth++;
+        } else if (type == TokenType.CLOSE && depth > 0) {
+          depth--;
+        }
+        afterSeparator = type == TokenType.EQUALS;
+      }
+      if (statementStart >= 0) {
+        result.add(start + statementStart, parseStatement(source, statementStart, source.length()));
+      }
+      result.open = hasMore && (depth > 0 || afterSeparator || cutOff);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return result;
+  }
+
+  /**
+   * @return <code>true</code> if the token at the end of a region would
+   * continue into the next statement
+   */
+  private static boolean isCutOff(TokenType type, Tokenizer tokens) {
+    if (type == TokenType.COMMENT) {
+      return true;
+    }
+    if (type == TokenType.QUOTED) {
+      final String quoted = tokens.text();
+      return quoted.length() == 1 || !quoted.endsWith(Parser.STRING_MARKER);
+    }
+    return false;
+  }
+
+  private List<Node> parseStatement(String source, int start, int end) throws IOException {
+    final Node statementRoot = Node.createRoot();
+    try (Tokenizer tokens = new CharTokenizer(new StringReader(source.substring(start, end)))) {
+      new MultiValueParser().parse(tokens, statementRoot);
+    }
+    return statementRoot.getChildren();
+  }
+
+  /**
+   * Replaces statements with those of a reparsed region and shifts the
+   * statements after it.
+   */
+  private void splice(int first, int last, Region region, int delta) {
+    int fromChild = 0;
+    for (int i = 0; i < first; i++) {
+      fromChild += this.childCounts[i];
+    }
+    int toChild = fromChild;
+    final int replaced = this.count == 0 ? 0 : last - first + 1;
+    for (int i = first; i < first + replaced; i++) {
+      toChild += this.childCounts[i];
+    }
+    this.root.replaceChildren(fromChild, toChild, region.nodes);
+
+    final int newCount = this.count - replaced + region.count;
+    final int[] newStarts = this.starts.length >= newCount ? this.starts : Arrays.copyOf(this.starts, newCount * 2);
+    final int[] newChildCounts = this.childCounts.length >= newCount ? this.childCounts : Arrays.copyOf(this.childCounts, newCount * 2);
+    final int tail = this.count - first - replaced;
+    System.arraycopy(this.starts, first + replaced, newStarts, first + region.count, tail);
+    System.arraycopy(this.childCounts, first + replaced, newChildCounts, first + region.count, tail);
+    System.arraycopy(region.starts, 0, newStarts, first, region.count);
+    System.arraycopy(region.childCounts, 0, newChildCounts, first, region.count);
+    for (int i = first + region.count; i < newCount; i++) {
+      newStarts[i] += delta;
+    }
+    if (newCount > 0) {
+      newStarts[0] = 0;
+    }
+    this.starts = newStarts;
+    this.childCounts = newChildCounts;
+    this.count = newCount;
+  }
+
+}
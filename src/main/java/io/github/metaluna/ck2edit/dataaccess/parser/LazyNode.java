@@ -0,0 +1,120 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A node whose children are only parsed when they are accessed for the first
+ * time. Until then it only remembers where its block is in the input.
+ */
+class LazyNode extends Node {
+
+  /**
+   * Constructor
+   *
+   * @param name the interned name
+   */
+  LazyNode(Symbol name) {
+    super(name);
+  }
+
+  /**
+   * Sets the contents of the block between the braces that will be parsed on
+   * first access.
+   *
+   * @param input the whole input
+   * @param start offset of the first byte after the opening brace
+   * @param end offset of the closing brace
+   * @param line the line of the opening brace
+   * @param lineStart offset of the first byte of that line
+   * @param positions where to record the positions of the children or
+   * <code>null</code> if they are not needed
+   * @param problems receives the problems found in the block or
+   * <code>null</code> to let them fail
+   */
+  void setBody(ByteBuffer input, int start, int end, int line, int lineStart, SourcePositions positions,
+          MultiValueParser.Problems problems) {
+    this.positions = positions;
+    this.problems = problems;
+    this.start = start;
+    this.end = end;
+    this.line = line;
+    this.lineStart = lineStart;
+    this.input = Objects.requireNonNull(input);
+  }
+
+  /**
+   * @return <code>true</code> if there is no block left to parse
+   */
+  boolean isLoaded() {
+    return this.input == null;
+  }
+
+  @Override
+  void loadChildren() {
+    if (this.input == null) {
+      return;
+    }
+    synchronized (this) {
+      if (this.input == null) {
+        return;
+      }
+      LOG.debug("Parsing block '%s' on line %d", getName(), this.line);
+      // parse into a detached node so nobody sees a half-built list
+      final Node body = Node.createRoot();
+      try {
+        new MultiValueParser().parse(new ByteTokenizer(this.input, this.start, this.end, this.line, this.lineStart),
+                new TreeBuilder(body, this.positions), this.problems);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      adoptChildren(body);
+      this.positions = null;
+      this.problems = null;
+      this.input = null;
+    }
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+  /**
+   * the input containing the unparsed block or <code>null</code> once it has
+   * been parsed
+   */
+  private volatile ByteBuffer input;
+  private int start;
+  private int end;
+  private int line;
+  private int lineStart;
+  private SourcePositions positions;
+  private MultiValueParser.Problems problems;
+
+}
@@ -0,0 +1,97 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.Objects;
+
+/**
+ * Builds only the top level of the tree. Blocks on the top level are skipped
+ * by counting braces and their positions are handed to {@link LazyNode}s that
+ * parse them on first access.
+ */
+class LazyTreeBuilder extends TreeBuilder {
+
+  /**
+   * Constructor
+   *
+   * @param parent the node all top-level nodes are added to
+   * @param source the tokenizer whose input the blocks are parsed from later
+   * @param positions where to record the positions of the new nodes or
+   * <code>null</code> if they are not needed
+   * @param problems receives the problems found in the blocks or
+   * <code>null</code> to let them fail
+   */
+  LazyTreeBuilder(Node parent, ByteTokenizer source, SourcePositions positions, MultiValueParser.Problems problems) {
+    super(parent, positions);
+    this.source = Objects.requireNonNull(source);
+    this.problems = problems;
+  }
+
+  @Override
+  public void key(Tokenizer tokens) {
+    if (isTopLevel()) {
+      addKey(new LazyNode(this.source.symbol()), tokens);
+    } else {
+      super.key(tokens);
+    }
+  }
+
+  @Override
+  public boolean startBlock(Tokenizer tokens) {
+    if (!isTopLevel()) {
+      return super.startBlock(tokens);
+    }
+    this.bodyStart = tokens.end();
+    this.bodyLine = tokens.line();
+    this.bodyLineStart = tokens.start() - tokens.column() + 1;
+    this.skipping = true;
+    return false;
+  }
+
+  @Override
+  public void endBlock(Tokenizer tokens) {
+    if (!this.skipping) {
+      super.endBlock(tokens);
+      return;
+    }
+    this.skipping = false;
+    extend(lastKey(), tokens.end());
+    ((LazyNode) lastKey()).setBody(this.source.input(), this.bodyStart, tokens.start(), this.bodyLine, this.bodyLineStart, positions(), this.problems);
+  }
+
+  @Override
+  public void recover() {
+    this.skipping = false;
+    super.recover();
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final ByteTokenizer source;
+  private final MultiValueParser.Problems problems;
+  private boolean skipping;
+  private int bodyStart;
+  private int bodyLine;
+  private int bodyLineStart;
+
+}
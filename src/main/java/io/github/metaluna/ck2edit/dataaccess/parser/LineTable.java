@@ -0,0 +1,82 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.Arrays;
+
+/**
+ * The offsets at which the lines of a file start. Lines and columns are
+ * derived from offsets with it, so they do not have to be stored per node.
+ */
+class LineTable {
+
+  LineTable() {
+    this.starts = new int[256];
+    // the first line starts at the beginning
+    this.count = 1;
+  }
+
+  /**
+   * Appends the start of the next line.
+   *
+   * @param start the offset of the first character of the line
+   */
+  void add(int start) {
+    if (this.count == this.starts.length) {
+      this.starts = Arrays.copyOf(this.starts, this.count * 2);
+    }
+    this.starts[this.count++] = start;
+  }
+
+  /**
+   * @param offset an offset in the file
+   * @return the line containing the offset, starting at 1
+   */
+  int lineOf(int offset) {
+    int low = 0;
+    int high = this.count - 1;
+    while (low < high) {
+      final int middle = (low + high + 1) >>> 1;
+      if (this.starts[middle] <= offset) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low + 1;
+  }
+
+  /**
+   * @param line a line, starting at 1
+   * @return the offset of the first character of the line
+   */
+  int startOf(int line) {
+    return this.starts[line - 1];
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private int[] starts;
+  private int count;
+
+}
@@ -23,13 +23,20 @@
  */
 package io.github.metaluna.ck2edit.dataaccess.parser;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.Objects;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Parses one or multiple values of one line.
+ * Recognizes the structure of a stream of tokens.
+ * <p>
+ * A key followed by a value separator has either a single value or the
+ * contents of the following block. Names without a separator are list values
+ * of the enclosing block. A block without a key is not reported; its contents
+ * belong to the enclosing block.
  */
 class MultiValueParser {
 
@@ -49,176 +56,254 @@ class MultiValueParser {
     }
     Objects.requireNonNull(parent);
 
-    String value = prepare(input);
-
-    while (null != value && !value.trim().isEmpty()) {
-      value = nextNode(value, parent, lineNumber);
+    try {
+      parse(new CharTokenizer(new StringReader(input), lineNumber), parent);
+    } catch (IOException ex) {
+      // reading from a string does not fail
+      throw new UncheckedIOException(ex);
     }
     LOG.exit();
   }
 
   // ---vvv--- PACKAGE-PRIVATE ---vvv---
   /**
-   * Strips all characters coming after the comment marker from the value.
+   * Parses all tokens until the input is exhausted. Closing braces without a
+   * matching opening brace are skipped.
    *
-   * @param value the value to strip off of comments
-   * @return the cleaned up value
+   * @param tokens the input
+   * @param parent the parent node all parsed children will be added to
+   * @throws IOException if the input cannot be read
    */
-  String stripComment(String value) {
-    LOG.entry(value);
-    int comment = value.indexOf(Parser.COMMENT_MARKER);
-    String result = value;
-    if (comment > -1) {
-      LOG.trace("Comment found: '%s'", value.substring(comment));
-      result = result.substring(0, comment);
-    }
-    return LOG.exit(result);
+  void parse(Tokenizer tokens, Node parent) throws IOException {
+    parse(tokens, new TreeBuilder(parent));
+  }
+
+  /**
+   * Parses all tokens until the input is exhausted and reports them to the
+   * listener. Closing braces without a matching opening brace are skipped.
+   *
+   * @param tokens the input
+   * @param listener the listener to notify
+   * @throws IOException if the input cannot be read
+   */
+  void parse(Tokenizer tokens, TokenListener listener) throws IOException {
+    parse(tokens, listener, null);
   }
 
   /**
-   * Parses a value as a list of leaf values
+   * Parses all tokens until the input is exhausted and reports them to the
+   * listener. If problems are collected, a statement making the listener throw
+   * is skipped up to the next top-level statement and parsing continues.
    *
-   * @param input the input to parse
-   * @param parent the parent of the new nodes
+   * @param tokens the input
+   * @param listener the listener to notify
+   * @param problems receives the problems with the tokenizer positioned where
+   * they were found or <code>null</code> to only log them and let exceptions
+   * of the listener pass
+   * @throws IOException if the input cannot be read
    */
-  String parseListValue(String input, Node parent) {
-    LOG.entry(input, parent);
-    String value = input;
-    int end;
-    while (0 != (end = findEnd(value))) {
-      String name = value.substring(0, end);
-      if (Parser.NESTING_END.equals(name)) {
-        return LOG.exit(value);
+  void parse(Tokenizer tokens, TokenListener listener, Problems problems) throws IOException {
+    LOG.entry(tokens, listener);
+    boolean ended = false;
+    while (!ended) {
+      try {
+        ended = parseBlock(tokens, listener, problems);
+        if (!ended) {
+          warn(problems, tokens, String.format("Skipping unmatched '%s'", Parser.NESTING_END));
+        }
+      } catch (FailedStatement ex) {
+        if (problems == null) {
+          throw ex.getCause();
+        }
+        LOG.warn("Skipping statement on line %d: %s", ex.line, ex.getCause());
+        problems.report(ex.line, ex.column, ex.getCause().toString());
+        listener.recover();
+      } catch (RuntimeException ex) {
+        if (problems == null) {
+          throw ex;
+        }
+        warn(problems, tokens, "Skipping statement: " + ex);
+        listener.recover();
       }
-      parent.addChild(new Node(name));
-      value = value.substring(end).trim();
     }
-    return LOG.exit(value.substring(end).trim());
+    LOG.exit();
   }
 
   /**
-   * Split a string separated by the value separator. If none is present the
-   * whole value will be returned as the first array item. Regardless of the
-   * actual number of separators there will at most be two items returned.
-   *
-   * @param value the value to split
-   * @return the split values
+   * Receives the problems found while parsing.
    */
-  String[] splitValues(String value) {
-    LOG.entry(value);
-    String[] tokens = value.split(Parser.VALUE_SEPARATOR, 2);
-    LOG.exit(Arrays.toString(tokens));
-    return tokens;
+  @FunctionalInterface
+  interface Problems {
+
+    /**
+     * @param line the line of the problem
+     * @param column the column of the problem
+     * @param message the description of the problem
+     */
+    void report(int line, int column, String message);
   }
-  
+
   // ---vvv--- PRIVATE ---vvv---
   private static final Logger LOG = LogManager.getFormatterLogger();
 
   /**
-   * Strip all comments and braces from the value
-   *
-   * @param input the value to parse
-   * @return the cleaned string
+   * Carries a listener's exception out of the blocks it was thrown in, each of
+   * which is skipped on the way, together with the position it was thrown at.
+   * It has no stack trace of its own; the cause has one.
    */
-  private String prepare(String input) {
-    LOG.entry(input);
-    String result = stripComment(input);
-    result = stripBraces(result);
-    return LOG.exit(result);
+  private static class FailedStatement extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    FailedStatement(RuntimeException cause, Tokenizer tokens) {
+      super(cause.toString(), cause, false, false);
+      this.line = tokens.line();
+      this.column = tokens.column();
+    }
+
+    @Override
+    public synchronized RuntimeException getCause() {
+      return (RuntimeException) super.getCause();
+    }
+
+    private final int line;
+    private final int column;
+  }
+
+  private static void warn(Problems problems, Tokenizer tokens, String message) {
+    LOG.warn("%s on line %d", message, tokens.line());
+    if (problems != null) {
+      problems.report(tokens.line(), tokens.column(), message);
+    }
   }
 
   /**
-   * Parses the next part of the initial value. The value is first split at the
-   * value separator and two nodes will be created.
+   * Parses the contents of a block until its closing brace.
    *
-   * @param input the value to parse
-   * @param parent the parent node
-   * @param lineNumber the current line number
-   * @return the unparsed part of the input value
+   * @param tokens the input
+   * @param listener the listener to notify
+   * @return <code>true</code> if the input ended before the block was closed
+   * @throws IOException if the input cannot be read
    */
-  private String nextNode(String input, Node parent, int lineNumber) {
-    LOG.entry(input, parent);
-    String[] tokens = splitValues(input);
-
-    String result;
-    if (tokens.length == 2) {
-      result = parseSimpleValue(tokens[0].trim(), tokens[1].trim(), parent);
-    } else {
-      Node localParent = parent;
-      if (listContinues(parent)) {
-        localParent = parent.getLastChild().get();
+  private boolean parseBlock(Tokenizer tokens, TokenListener listener, Problems problems) throws IOException {
+    while (true) {
+      switch (nextToken(tokens)) {
+        case END:
+          return true;
+        case CLOSE:
+          return false;
+        case OPEN:
+          if (parseBlock(tokens, listener, problems)) {
+            return true;
+          }
+          break;
+        case KEY:
+          try {
+            listener.key(tokens);
+          } catch (RuntimeException ex) {
+            final FailedStatement failed = new FailedStatement(ex, tokens);
+            // leave the value so that parsing can continue after it
+            skipValue(tokens);
+            throw failed;
+          }
+          if (parseValue(tokens, listener, problems)) {
+            return true;
+          }
+          break;
+        case VALUE:
+        case QUOTED:
+          try {
+            listener.listValue(tokens);
+          } catch (RuntimeException ex) {
+            throw new FailedStatement(ex, tokens);
+          }
+          break;
+        case EQUALS:
+          warn(problems, tokens, String.format("Skipping '%s' without a name", Parser.VALUE_SEPARATOR));
+          break;
+        default:
+          throw new AssertionError(String.format("Unexpected token %s on line %d", tokens.type(), tokens.line()));
       }
-      result = parseListValue(input.trim(), localParent);
     }
-    return LOG.exit(result);
-  }
-
-  private static boolean listContinues(Node parent) {
-    return !parent.isLeaf() && parent.getLastChild().get().isLeaf();
   }
 
   /**
-   * Parses the first pair of values and returns the rest of the value for
-   * further processing.
+   * Parses the value following a key.
    *
-   * @param name the name of the property
-   * @param value the value of the property
-   * @param parent the parent of the new node
-   * @return the unparsed rest of the value. May be empty.
+   * @param tokens the input positioned on the key
+   * @param listener the listener to notify
+   * @return <code>true</code> if the input ended
+   * @throws IOException if the input cannot be read
    */
-  private String parseSimpleValue(String name, String value, Node parent) {
-    LOG.entry(name, value, parent);
-    Node newNode = new Node(name);
-    parent.addChild(newNode);
-
-    final int end = findEnd(value);
-    if (end > 0) {
-      Node childNode = new Node(value.substring(0, end));
-      newNode.addChild(childNode);
+  private boolean parseValue(Tokenizer tokens, TokenListener listener, Problems problems) throws IOException {
+    // skip the value separator
+    tokens.next();
+
+    switch (nextToken(tokens)) {
+      case VALUE:
+      case QUOTED:
+        try {
+          listener.value(tokens);
+        } catch (RuntimeException ex) {
+          throw new FailedStatement(ex, tokens);
+        }
+        return false;
+      case OPEN:
+        final boolean ended;
+        try {
+          ended = listener.startBlock(tokens)
+                  ? parseBlock(tokens, listener, problems)
+                  : tokens.skipBlock();
+        } catch (RuntimeException ex) {
+          final FailedStatement failed = ex instanceof FailedStatement
+                  ? (FailedStatement) ex
+                  : new FailedStatement(ex, tokens);
+          // leave the block so that parsing can continue after it
+          tokens.skipBlock();
+          throw failed;
+        }
+        listener.endBlock(tokens);
+        return ended;
+      case END:
+        listener.noValue(tokens);
+        return true;
+      default:
+        warn(problems, tokens, "Missing value of key");
+        listener.noValue(tokens);
+        tokens.pushBack();
+        return false;
     }
-    String result = value.substring(end).trim();
-    return LOG.exit(result);
   }
 
   /**
-   * Detect the end of string marked by the first whitespace character. If
-   * none is found the length of the value is returned. Whitespace inside of "
-   * will be ignored.
+   * Skips the value following a key, including all of its block.
    *
-   * @param value the value to scan
-   * @return the first occurrence of a space character or the length of the
-   * value
+   * @param tokens the input positioned on the key
    */
-  private int findEnd(final String value) {
-    LOG.entry(value);
-    int end;
-    if (value.startsWith(Parser.STRING_MARKER)) {
-      end = value.substring(1, value.length()).indexOf(Parser.STRING_MARKER);
-      if (end > -1) {
-        end += 2;
-      }
-    } else {
-      end = value.indexOf(" ");
-    }
-    
-    if (end == -1) {
-      end = value.length();
+  private static void skipValue(Tokenizer tokens) throws IOException {
+    // skip the value separator
+    tokens.next();
+    switch (nextToken(tokens)) {
+      case VALUE:
+      case QUOTED:
+        break;
+      case OPEN:
+        tokens.skipBlock();
+        break;
+      default:
+        tokens.pushBack();
     }
-    
-    int result = Math.min(end, value.length());
-    return LOG.exit(result);
   }
 
   /**
-   * Removes all braces (meaning '{' and '}') from the value.
-   *
-   * @param value the value to clean
-   * @return the cleaned up value
+   * Advances to the next token that is not a comment.
    */
-  private String stripBraces(String value) {
-    LOG.entry(value);
-    String result = value.replace(Parser.NESTING_START, "").replace(Parser.NESTING_END, "");
-    return LOG.exit(result);
+  private static TokenType nextToken(Tokenizer tokens) throws IOException {
+    TokenType result;
+    do {
+      result = tokens.next();
+    } while (result == TokenType.COMMENT);
+    return result;
   }
 
 }
@@ -23,9 +23,15 @@
  */
 package io.github.metaluna.ck2edit.dataaccess.parser;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -52,7 +58,79 @@ public class Node {
    * @return the name of this node
    */
   public String getName() {
-    return this.name;
+    return this.name.toString();
+  }
+
+  /**
+   * @return the interned name of this node
+   */
+  public Symbol getSymbol() {
+    if (this.name instanceof Symbol) {
+      return (Symbol) this.name;
+    }
+    return Symbol.of((String) this.name);
+  }
+
+  /**
+   * @return what kind of value the name of this node is
+   */
+  public ValueKind getValueKind() {
+    return getSymbol().getKind();
+  }
+
+  /**
+   * @return the name of this node as an integer
+   * @throws NumberFormatException if the name is not an integer or too large
+   */
+  public int getIntValue() {
+    final Symbol symbol = getSymbol();
+    final long result = symbol.getValue();
+    if (symbol.getKind() != ValueKind.INTEGER || (int) result != result) {
+      throw new NumberFormatException(String.format("Value '%s' is not an integer", symbol));
+    }
+    return (int) result;
+  }
+
+  /**
+   * @return the name of this node as a fixed-point number in thousandths
+   * @throws NumberFormatException if the name is not a number
+   */
+  public long getFixedPointValue() {
+    final Symbol symbol = getSymbol();
+    if (symbol.getKind() == ValueKind.INTEGER) {
+      return symbol.getValue() * 1000;
+    } else if (symbol.getKind() == ValueKind.DECIMAL) {
+      return symbol.getValue();
+    }
+    throw new NumberFormatException(String.format("Value '%s' is not a number", symbol));
+  }
+
+  /**
+   * @return the name of this node as a decimal number
+   * @throws NumberFormatException if the name is not a number
+   */
+  public double getDecimalValue() {
+    return getFixedPointValue() / 1000.0;
+  }
+
+  /**
+   * @return <code>true</code> if the name of this node is "yes"
+   */
+  public boolean getBooleanValue() {
+    final Symbol symbol = getSymbol();
+    return symbol.getKind() == ValueKind.BOOLEAN && symbol.getValue() != 0;
+  }
+
+  /**
+   * @return the name of this node as a date in the form <code>yyyymmdd</code>
+   * @throws NumberFormatException if the name is not a date
+   */
+  public int getDateValue() {
+    final Symbol symbol = getSymbol();
+    if (symbol.getKind() != ValueKind.DATE) {
+      throw new NumberFormatException(String.format("Value '%s' is not a date", symbol));
+    }
+    return (int) symbol.getValue();
   }
 
   /**
@@ -61,6 +139,7 @@ public class Node {
    * @see #isLeaf()
    */
   public List<Node> getChildren() {
+    loadChildren();
     if (this.children != null) {
       return Collections.unmodifiableList(this.children);
     } else {
@@ -68,6 +147,51 @@ public class Node {
     }
   }
 
+  /**
+   * Finds the first child with a name. Blocks with many children are looked
+   * up in an index that is built on the first lookup.
+   *
+   * @param name the name of the child
+   * @return the first child with the name or an empty optional
+   */
+  public Optional<Node> getChild(String name) {
+    LOG.entry(name);
+    final List<Node> result = getChildren(name);
+    return LOG.exit(result.isEmpty() ? Optional.empty() : Optional.of(result.get(0)));
+  }
+
+  /**
+   * Finds all children with a name. Blocks with many children are looked up
+   * in an index that is built on the first lookup.
+   *
+   * @param name the name of the children
+   * @return an unmodifiable list of the children with the name in their
+   * original order
+   */
+  public List<Node> getChildren(String name) {
+    LOG.entry(name);
+    Objects.requireNonNull(name);
+    loadChildren();
+    if (this.children == null) {
+      return LOG.exit(Collections.emptyList());
+    }
+    if (this.children.size() < INDEX_THRESHOLD) {
+      final List<Node> result = this.children.stream()
+              .filter(c -> c.getName().equals(name))
+              .collect(Collectors.toList());
+      return LOG.exit(Collections.unmodifiableList(result));
+    }
+    // built in a local, so threads sharing a frozen node only ever see a
+    // complete index
+    Map<String, List<Node>> byName = this.index;
+    if (byName == null) {
+      byName = buildIndex();
+      this.index = byName;
+    }
+    final List<Node> result = byName.get(name);
+    return LOG.exit(result == null ? Collections.emptyList() : Collections.unmodifiableList(result));
+  }
+
   /**
    * @return the last child node or an empty optional.
    */
@@ -83,9 +207,19 @@ public class Node {
    * @return <code>true</code> if this node has no children
    */
   public boolean isLeaf() {
+    loadChildren();
     return this.children == null || this.children.isEmpty();
   }
 
+  /**
+   * @return <code>true</code> if this node may be shared and therefore cannot
+   * be changed
+   * @see SubtreeInterner
+   */
+  public boolean isFrozen() {
+    return this.frozen;
+  }
+
   /**
    * @return <code>true</code> if this node is the root node
    */
@@ -101,34 +235,75 @@ public class Node {
    * @return the finished output
    */
   public String print(int indentations) {
+    LOG.entry(indentations);
+    StringBuilder result = new StringBuilder();
+    try {
+      print(result, indentations);
+    } catch (IOException ex) {
+      // appending to a string builder does not fail
+      throw new UncheckedIOException(ex);
+    }
+    return LOG.exit(result.toString());
+  }
+
+  /**
+   * Prints the current node and all of its sub-nodes straight to the output.
+   * The tree is walked once and no text is built up in between, so the
+   * output should be buffered.
+   *
+   * @param out where to write to
+   * @param indentations the number of indentations prefixing all output
+   * @throws IOException if writing fails
+   * @see #print(int)
+   */
+  public void print(Appendable out, int indentations) throws IOException {
     LOG.entry(indentations);
     if (indentations < 0) {
       throw new IllegalArgumentException(String.format("Number of indentations must not be < 0, but is %d", indentations));
     }
 
-    StringBuilder result = new StringBuilder();
     // add indentations
-    indent(result, indentations);
+    indent(out, indentations);
 
-    result.append(this.name);
+    out.append(this.getName());
 
     if (!this.isLeaf()) {
-      result.append(" = ");
+      out.append(" = ");
 
       // add children
       boolean isSimpleValue = this.children.size() == 1 && this.children.get(0).isLeaf();
       boolean isList = this.children.size() > 1 && this.children.get(0).isLeaf();
 
       if (isList) {
-        printAsList(result);
+        printAsList(out);
       } else if (!isSimpleValue) {
-        printAsComplexValue(result, indentations);
+        printAsComplexValue(out, indentations);
       } else {
-        printAsSimpleValue(result);
+        printAsSimpleValue(out);
       }
     }
+    LOG.exit();
+  }
 
-    return LOG.exit(result.toString());
+  /**
+   * Writes the whole tree in the same format as {@link #toString()}, but
+   * straight to the output.
+   *
+   * @param out where to write to
+   * @throws IOException if writing fails
+   */
+  public void write(Appendable out) throws IOException {
+    LOG.entry();
+    if (!this.isRoot) {
+      print(out, 0);
+    } else if (!isLeaf()) {
+      for (Node child : this.children) {
+        child.print(out, 0);
+      }
+    } else {
+      out.append(this.getName());
+    }
+    LOG.exit();
   }
 
   /**
@@ -139,12 +314,20 @@ public class Node {
   public Node addChild(Node child) {
     LOG.entry(this.name, child);
     Objects.requireNonNull(child);
+    if (this.frozen) {
+      throw new UnsupportedOperationException(String.format("Node '%s' is shared and must not be changed", getName()));
+    }
+    loadChildren();
 
     if (this.children == null) {
       this.children = new ArrayList<>();
     }
     this.children.add(child);
-    return LOG.exit(this);
+    if (this.index != null) {
+      this.index.computeIfAbsent(child.getName(), k -> new ArrayList<>(1)).add(child);
+    }
+    LOG.exit();
+    return this;
   }
 
   /**
@@ -155,7 +338,8 @@ public class Node {
   public Node addChild(String name) {
     LOG.entry(name);
     this.addChild(new Node(name));
-    return LOG.exit(this);
+    LOG.exit();
+    return this;
   }
 
   /**
@@ -170,7 +354,8 @@ public class Node {
     Objects.requireNonNull(value);
     final Node n = Node.create(name).addChild(value);
     this.addChild(n);
-    return LOG.exit(this);
+    LOG.exit();
+    return this;
   }
 
   /**
@@ -191,62 +376,168 @@ public class Node {
       values.stream().forEach(v -> n.addChild(v));
       this.addChild(n);
     }
-    return LOG.exit(this);
+    LOG.exit();
+    return this;
   }
   
   @Override
   public String toString() {
     LOG.entry();
-    if (this.isRoot) {
-      if (!isLeaf()) {
-        return this.children.stream()
-                .map(c -> c.print(0))
-                .collect(Collectors.joining());
-      } else {
-        return this.name;
-      }
-    } else {
-      return print(0);
+    StringBuilder result = new StringBuilder();
+    try {
+      write(result);
+    } catch (IOException ex) {
+      // appending to a string builder does not fail
+      throw new UncheckedIOException(ex);
     }
+    return LOG.exit(result.toString());
   }
   
   // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  static final String ROOT_NAME = "[ROOT]";
+
   Node(String name) {
     this(name, false);
   }
 
+  Node(String name, boolean isRoot) {
+    LOG.entry(name, isRoot);
+    this.name = Objects.requireNonNull(name);
+    if (Parser.RESTRICTED_CHARACTERS.contains(name.trim())) {
+      throw new IllegalArgumentException(String.format("Name must not be a restricted character but is '%s'", name));
+    }
+    this.isRoot = isRoot;
+    this.frozen = false;
+    LOG.exit();
+  }
+
+  /**
+   * Creates a node whose name will only be decoded when it is requested.
+   *
+   * @param rawName the Windows-1252 encoded name
+   */
+  Node(byte[] rawName) {
+    this(SymbolTable.getDefault().intern(ByteBuffer.wrap(rawName), 0, rawName.length));
+  }
+
+  /**
+   * Creates a node with an interned name.
+   *
+   * @param name the name
+   */
+  Node(Symbol name) {
+    this.name = Objects.requireNonNull(name);
+    this.isRoot = false;
+    this.frozen = false;
+  }
+
+  /**
+   * Creates a frozen node.
+   *
+   * @param name the name
+   * @param children the children, not copied, or an empty array for a leaf
+   * @param isRoot whether the node is a root node
+   */
+  Node(Object name, Node[] children, boolean isRoot) {
+    this.name = Objects.requireNonNull(name);
+    this.isRoot = isRoot;
+    this.frozen = true;
+    if (children.length > 0) {
+      this.children = Arrays.asList(children);
+    }
+  }
+
+  /**
+   * Called before the children are accessed. Nodes that create their children
+   * on demand do so here.
+   */
+  void loadChildren() {
+  }
+
+  /**
+   * @return the index of this node in the {@link SourcePositions} of its
+   * tree or -1 if it was not parsed
+   */
+  int getPosition() {
+    return this.position;
+  }
+
+  void setPosition(int position) {
+    this.position = position;
+  }
+
+  /**
+   * Takes over the children of another node without loading them.
+   *
+   * @param other the node whose children are taken over
+   */
+  void adoptChildren(Node other) {
+    this.children = other.children;
+  }
+
+  /**
+   * Replaces a range of children.
+   *
+   * @param from index of the first child to replace
+   * @param to index after the last child to replace
+   * @param replacement the new children
+   */
+  void replaceChildren(int from, int to, List<Node> replacement) {
+    if (this.frozen) {
+      throw new UnsupportedOperationException(String.format("Node '%s' is shared and must not be changed", getName()));
+    }
+    loadChildren();
+    if (this.children == null) {
+      this.children = new ArrayList<>();
+    }
+    this.children.subList(from, to).clear();
+    this.children.addAll(from, replacement);
+    this.index = null;
+  }
+
   // ---vvv--- PRIVATE ---vvv---
   private static final Logger LOG = LogManager.getFormatterLogger();
-  private static final String ROOT_NAME = "[ROOT]";
   private static final String INDENTATION_PREFIX = "\t";
   private static final String NEW_LINE = "\r\n";
+  /**
+   * the number of children from which on lookups by name use an index
+   */
+  private static final int INDEX_THRESHOLD = 16;
 
-  private final String name;
+  /**
+   * either the name or its {@link Symbol} if the node was parsed
+   */
+  private final Object name;
   private final boolean isRoot;
+  private final boolean frozen;
 
   private List<Node> children;
+  /**
+   * the children by name; only built for wide blocks when they are first
+   * searched. Volatile because frozen nodes are shared between threads.
+   */
+  private volatile Map<String, List<Node>> index;
+  private int position = -1;
 
-  private Node(String name, boolean isRoot) {
-    LOG.entry(name, isRoot);
-    this.name = Objects.requireNonNull(name);
-    if (Parser.RESTRICTED_CHARACTERS.contains(name.trim())) {
-      throw new IllegalArgumentException(String.format("Name must not be a restricted character but is '%s'", name));
+  private Map<String, List<Node>> buildIndex() {
+    final Map<String, List<Node>> result = new HashMap<>();
+    for (Node child : this.children) {
+      result.computeIfAbsent(child.getName(), k -> new ArrayList<>(1)).add(child);
     }
-    this.isRoot = isRoot;
-    LOG.exit();
+    return result;
   }
 
   /**
-   * Adds the current indentation level to the string builder by repeatedly
+   * Adds the current indentation level to the output by repeatedly
    * outputting the indentation prefix.
    *
-   * @param builder the string builder to append to
+   * @param out the output to append to
    * @param indentations the number of indentations
    */
-  private void indent(StringBuilder builder, int indentations) {
-    LOG.entry(builder, indentations);
+  private void indent(Appendable out, int indentations) throws IOException {
+    LOG.entry(indentations);
     for (int i = 0; i < indentations; ++i) {
-      builder.append(INDENTATION_PREFIX);
+      out.append(INDENTATION_PREFIX);
     }
     LOG.exit();
   }
@@ -254,11 +545,11 @@ public class Node {
   /**
    * Print as a simple value.
    *
-   * @param builder the string builder to append to
+   * @param out the output to append to
    */
-  private void printAsSimpleValue(StringBuilder builder) {
-    LOG.entry(builder);
-    builder.append(this.children.get(0).getName())
+  private void printAsSimpleValue(Appendable out) throws IOException {
+    LOG.entry();
+    out.append(this.children.get(0).getName())
             .append(NEW_LINE);
     LOG.exit();
   }
@@ -268,39 +559,40 @@ public class Node {
    * the children is enclosed in braces. Also the current number of indentations
    * is increased by one.
    *
-   * @param builder the string builder to append to
+   * @param out the output to append to
    * @param indentations the current level of indentations
    */
-  private void printAsComplexValue(StringBuilder builder, int indentations) {
-    LOG.entry(builder, indentations);
+  private void printAsComplexValue(Appendable out, int indentations) throws IOException {
+    LOG.entry(indentations);
     // opening brackets
-    builder.append("{ ").append(NEW_LINE);
+    out.append("{ ").append(NEW_LINE);
 
     // print children
     int nextIndentation = indentations + 1;
-    builder.append(this.children.stream()
-            .map(c -> c.print(nextIndentation))
-            .collect(Collectors.joining())
-    );
+    for (Node child : this.children) {
+      child.print(out, nextIndentation);
+    }
     // closing brackets
-    indent(builder, indentations);
-    builder.append("}").append(NEW_LINE);
+    indent(out, indentations);
+    out.append("}").append(NEW_LINE);
     LOG.exit();
   }
 
   /**
    * Print as a list of leaves, i.e. { a b c }
    *
-   * @param builder the string builder to append to
-   */
-  private void printAsList(StringBuilder builder) {
-    LOG.entry(builder);
-    builder.append("{ ")
-            .append(this.children.stream()
-                    .map(c -> c.getName())
-                    .collect(Collectors.joining(" "))
-            )
-            .append(" }")
+   * @param out the output to append to
+   */
+  private void printAsList(Appendable out) throws IOException {
+    LOG.entry();
+    out.append("{ ");
+    for (int i = 0; i < this.children.size(); i++) {
+      if (i > 0) {
+        out.append(' ');
+      }
+      out.append(this.children.get(i).getName());
+    }
+    out.append(" }")
             .append(NEW_LINE);
     LOG.exit();
   }
@@ -0,0 +1,361 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps parsed trees on disk so that unchanged files do not have to be parsed
+ * again. An entry is written per file and remembers the file's path, size,
+ * modification time and CRC-32 checksum. It is used if size and modification
+ * time still match, or if only the modification time differs but the
+ * checksum is the same. These are recorded in a {@link Stamp} before the file
+ * is parsed, so that a change while parsing makes the entry stale.
+ * <p>
+ * Entries are stored in a compact binary format: the file's encoding, a
+ * table of all distinct names and the tree in pre-order, each node being the
+ * index of its name and the number of its children as variable-length
+ * integers.
+ * <p>
+ * The cache never fails a parse. Entries that cannot be read or written are
+ * treated as misses. Trees loaded from the cache are fully loaded and carry
+ * no {@link SourcePositions}. Trees with blocks that have not been parsed yet
+ * are not stored, as writing them would parse the whole file.
+ */
+public final class ParseCache {
+
+  /**
+   * Constructor
+   *
+   * @param directory where the entries are stored; it is created on the first
+   * write
+   */
+  public ParseCache(Path directory) {
+    this.directory = Objects.requireNonNull(directory);
+  }
+
+  /**
+   * Looks up the tree of a file.
+   *
+   * @param file the parsed file
+   * @return the cached tree or an empty optional if there is no valid entry
+   */
+  public Optional<Node> load(Path file) {
+    LOG.entry(file);
+    final Path entry = entryOf(file);
+    try {
+      final byte[] data = Files.readAllBytes(entry);
+      final Decoder decoder = new Decoder(data);
+      if (!decoder.readHeader(file)) {
+        LOG.debug("Stale cache entry for '%s'", file);
+        return LOG.exit(Optional.empty());
+      }
+      final Node result = decoder.readTree();
+      // the tree itself is not logged, it may be huge
+      LOG.exit();
+      return Optional.of(result);
+    } catch (NoSuchFileException ex) {
+      return LOG.exit(Optional.empty());
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("Unable to read cache entry '%s': %s", entry, ex);
+      return LOG.exit(Optional.empty());
+    }
+  }
+
+  /**
+   * Records the state of a file before it is parsed.
+   *
+   * @param file the file about to be parsed
+   * @return the stamp to store the tree with or an empty optional if the file
+   * cannot be read
+   */
+  public Optional<Stamp> stamp(Path file) {
+    LOG.entry(file);
+    try {
+      final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      return LOG.exit(Optional.of(new Stamp(file, attributes.size(), attributes.lastModifiedTime().toMillis(), checksum(file))));
+    } catch (IOException ex) {
+      LOG.warn("Unable to read '%s' for caching: %s", file, ex);
+      return LOG.exit(Optional.empty());
+    }
+  }
+
+  /**
+   * Stores the tree of a file, replacing any previous entry. Nothing is stored
+   * if blocks of the tree were parsed on first access, even if all of them
+   * have been accessed since.
+   *
+   * @param stamp the state of the file before it was parsed
+   * @param root the root of its tree
+   */
+  public void store(Stamp stamp, Node root) {
+    Objects.requireNonNull(stamp);
+    Objects.requireNonNull(root);
+    final Path file = stamp.file;
+    // checked before logging anything, as printing the tree would parse it
+    final boolean complete = isComplete(root);
+    LOG.entry(file);
+    if (!complete) {
+      LOG.debug("Not caching '%s' because it was parsed lazily", file);
+      LOG.exit();
+      return;
+    }
+    final Path entry = entryOf(file);
+    try {
+      final ByteArrayOutputStream tree = new ByteArrayOutputStream();
+      final Map<String, Integer> names = new HashMap<>();
+      final List<String> nameTable = new ArrayList<>();
+      writeChildren(tree, root, names, nameTable);
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(tree.size() + 64 + nameTable.size() * 16);
+      writeVarint(out, MAGIC);
+      writeVarint(out, VERSION);
+      writeString(out, identityOf(file));
+      writeVarint(out, stamp.size);
+      writeVarint(out, stamp.modified);
+      writeVarint(out, stamp.checksum);
+      writeVarint(out, TextEncoding.of(root).ordinal());
+      writeVarint(out, nameTable.size());
+      for (String name : nameTable) {
+        writeString(out, name);
+      }
+      tree.writeTo(out);
+
+      Files.createDirectories(this.directory);
+      final Path temp = Files.createTempFile(this.directory, null, TEMP_SUFFIX);
+      try {
+        Files.write(temp, out.toByteArray());
+        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException ex) {
+      LOG.warn("Unable to write cache entry '%s': %s", entry, ex);
+    }
+    LOG.exit();
+  }
+
+  /**
+   * The size, modification time and checksum of a file at one point in time.
+   */
+  public static final class Stamp {
+
+    // ---vvv--- PRIVATE ---vvv---
+    private Stamp(Path file, long size, long modified, long checksum) {
+      this.file = file;
+      this.size = size;
+      this.modified = modified;
+      this.checksum = checksum;
+    }
+
+    private final Path file;
+    private final long size;
+    private final long modified;
+    private final long checksum;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+  private static final int MAGIC = 0x434b3254;
+  private static final int VERSION = 2;
+  private static final String ENTRY_SUFFIX = ".tree";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final Path directory;
+
+  private Path entryOf(Path file) {
+    final String key = identityOf(file);
+    final CRC32 crc = new CRC32();
+    crc.update(key.getBytes(StandardCharsets.UTF_8));
+    return this.directory.resolve(String.format("%08x%08x%s", key.hashCode(), crc.getValue(), ENTRY_SUFFIX));
+  }
+
+  /**
+   * @return a name of the file that is unique across file systems, so that
+   * entries of different zip archives do not collide
+   */
+  private static String identityOf(Path file) {
+    return file.toAbsolutePath().normalize().toUri().toString();
+  }
+
+  /**
+   * @return <code>false</code> if the tree was parsed lazily or a top-level
+   * block is still waiting to be parsed
+   */
+  private static boolean isComplete(Node root) {
+    if (root instanceof SourceRoot && ((SourceRoot) root).isDeferred()) {
+      return false;
+    }
+    for (Node child : root.getChildren()) {
+      if (child instanceof LazyNode && !((LazyNode) child).isLoaded()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long checksum(Path file) throws IOException {
+    final CRC32 crc = new CRC32();
+    crc.update(Files.readAllBytes(file));
+    return crc.getValue();
+  }
+
+  private static void writeChildren(OutputStream out, Node parent, Map<String, Integer> names, List<String> nameTable) throws IOException {
+    final List<Node> children = parent.getChildren();
+    writeVarint(out, children.size());
+    for (Node child : children) {
+      final String name = child.getName();
+      Integer index = names.get(name);
+      if (index == null) {
+        index = nameTable.size();
+        names.put(name, index);
+        nameTable.add(name);
+      }
+      writeVarint(out, index);
+      writeChildren(out, child, names, nameTable);
+    }
+  }
+
+  private static void writeString(OutputStream out, String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarint(out, bytes.length);
+    out.write(bytes);
+  }
+
+  private static void writeVarint(OutputStream out, long value) throws IOException {
+    while ((value & ~0x7fL) != 0) {
+      out.write((int) (value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  /**
+   * Reads an entry from memory.
+   */
+  private static class Decoder {
+
+    Decoder(byte[] data) {
+      this.data = data;
+    }
+
+    /**
+     * Reads the header and the name table.
+     *
+     * @param file the file the entry is expected to belong to
+     * @return <code>false</code> if the entry does not match the file
+     * @throws IOException if the file cannot be read
+     */
+    boolean readHeader(Path file) throws IOException {
+      if (readVarint() != MAGIC || readVarint() != VERSION) {
+        return false;
+      }
+      if (!readString().equals(identityOf(file))) {
+        return false;
+      }
+      final long size = readVarint();
+      final long modified = readVarint();
+      final long crc = readVarint();
+      this.encoding = TextEncoding.values()[(int) readVarint()];
+      final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      if (attributes.size() != size) {
+        return false;
+      }
+      if (attributes.lastModifiedTime().toMillis() != modified && checksum(file) != crc) {
+        return false;
+      }
+
+      final SymbolTable symbols = SymbolTable.getDefault();
+      this.names = new Symbol[(int) readVarint()];
+      for (int i = 0; i < this.names.length; i++) {
+        this.names[i] = symbols.intern(readString());
+      }
+      return true;
+    }
+
+    Node readTree() {
+      final Node root = new SourceRoot(this.encoding);
+      readChildren(root);
+      if (this.pos != this.data.length) {
+        throw new IllegalStateException("Trailing data after tree");
+      }
+      return root;
+    }
+
+    // ---vvv--- PRIVATE ---vvv---
+    private final byte[] data;
+    private int pos;
+    private Symbol[] names;
+    private TextEncoding encoding;
+
+    private void readChildren(Node parent) {
+      for (long count = readVarint(); count > 0; count--) {
+        final Node child = new Node(this.names[(int) readVarint()]);
+        readChildren(child);
+        parent.addChild(child);
+      }
+    }
+
+    private String readString() {
+      final int length = (int) readVarint();
+      if (length < 0 || length > this.data.length - this.pos) {
+        throw new IllegalStateException("String exceeds entry");
+      }
+      final String result = new String(this.data, this.pos, length, StandardCharsets.UTF_8);
+      this.pos += length;
+      return result;
+    }
+
+    private long readVarint() {
+      long result = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        final byte b = this.data[this.pos++];
+        result |= (long) (b & 0x7f) << shift;
+        if (b >= 0) {
+          return result;
+        }
+      }
+      throw new IllegalStateException("Malformed variable-length integer");
+    }
+
+  }
+
+}
@@ -0,0 +1,81 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+/**
+ * Receives the contents of a file while it is being parsed. No node tree is
+ * built, so files can be scanned in constant memory.
+ * <p>
+ * A key with a single value is reported by {@link #keyValue(String, String)}.
+ * A key followed by a block is reported by {@link #startBlock(String)}, the
+ * block's contents and {@link #endBlock()}. Names inside a block that are not
+ * followed by a value separator are reported by {@link #listValue(String)}.
+ * A key without any value is reported as an empty block.
+ * <p>
+ * All methods do nothing by default.
+ */
+public interface ParseHandler {
+
+  /**
+   * Called once before any other method.
+   *
+   * @param locator reports the position of the current event in the file.
+   * Only valid during the callbacks of this handler.
+   */
+  default void setLocator(SourceLocator locator) {
+  }
+
+  /**
+   * A key followed by a block, i.e. <code>key = {</code>
+   *
+   * @param key the name of the key
+   */
+  default void startBlock(String key) {
+  }
+
+  /**
+   * The end of the block most recently started.
+   */
+  default void endBlock() {
+  }
+
+  /**
+   * A key with a single value, i.e. <code>key = value</code>
+   *
+   * @param key the name of the key
+   * @param value the value. Strings still contain their quotes.
+   */
+  default void keyValue(String key, String value) {
+  }
+
+  /**
+   * A name that is not followed by a value separator, i.e. an item of
+   * <code>key = { item1 item2 }</code>
+   *
+   * @param value the name. Strings still contain their quotes.
+   */
+  default void listValue(String value) {
+  }
+
+}
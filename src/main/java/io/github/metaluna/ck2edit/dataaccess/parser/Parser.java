@@ -23,19 +23,19 @@
  */
 package io.github.metaluna.ck2edit.dataaccess.parser;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * A parser accepts a single file and produces a tree of values.
+ * A parser accepts a single file and produces a tree of values. The work is
+ * done by a {@link ParserEngine}, which may be shared with other parsers.
  */
 public class Parser {
 
@@ -45,21 +45,63 @@ public class Parser {
    * @return the root node or empty if the file is empty
    */
   public Node parse() {
-    LOG.entry();
-    final Node root = Node.createRoot();
-
-    try (BufferedReader reader = Files.newBufferedReader(path, CHARSET)) {
-      parseNested(reader, root);
-    } catch (IOException ex) {
-      LOG.catching(ex);
-    } catch (Exception ex) {
-      LOG.error("Exception on line #%d: %s", lineNumber, ex);
-      throw ex;
-    }
+    return this.engine.parse(this.path);
+  }
+
+  /**
+   * Parse the file, skipping statements that cannot be parsed instead of
+   * failing.
+   *
+   * @param diagnostics receives the problems found in the file
+   * @return the root node or empty if the file is empty
+   * @see ParserEngine#parse(Path, Consumer)
+   */
+  public Node parse(Consumer<Diagnostic> diagnostics) {
+    return this.engine.parse(this.path, Objects.requireNonNull(diagnostics));
+  }
 
-    LOG.debug("Finished parsing on line %d", lineNumber);
+  /**
+   * Parse the file, skipping statements that cannot be parsed, but fail if it
+   * cannot be read.
+   *
+   * @param diagnostics receives the problems found in the file
+   * @return the root node or empty if the file is empty
+   * @throws IOException if the file cannot be read
+   * @see ParserEngine#parseChecked(Path, Consumer)
+   */
+  public Node parseChecked(Consumer<Diagnostic> diagnostics) throws IOException {
+    return this.engine.parseChecked(this.path, Objects.requireNonNull(diagnostics));
+  }
 
-    return LOG.exit(root);
+  /**
+   * Parse the file into a compact, array-backed tree. It needs a fraction of
+   * the memory of a tree of nodes but cannot be modified.
+   *
+   * @return the tree; its root is a leaf if the file is empty
+   */
+  public CompactTree parseCompact() {
+    return this.engine.parseCompact(this.path);
+  }
+
+  /**
+   * Parse the file into a syntax tree that keeps comments and formatting, so
+   * that it can be written again with only the changed parts replaced.
+   *
+   * @return the syntax tree
+   * @throws IOException if the file cannot be read
+   */
+  public ConcreteTree parseConcrete() throws IOException {
+    return this.engine.parseConcrete(this.path);
+  }
+
+  /**
+   * Parse the file without building a tree of nodes. The contents are
+   * reported to the handler instead.
+   *
+   * @param handler the handler receiving the contents of the file
+   */
+  public void parse(ParseHandler handler) {
+    this.engine.parse(this.path, handler);
   }
 
   // ---vvv--- PACKAGE-PRIVATE ---vvv---
@@ -82,95 +124,53 @@ public class Parser {
    * @param mvParser the parser to scan values
    */
   Parser(Path path, MultiValueParser mvParser) {
-    LOG.entry(path);
-    this.path = Objects.requireNonNull(path);
-    if (!Files.exists(path)) {
-      throw new IllegalArgumentException(String.format("File '%s' does not exist", path));
-    }
-    this.valueParser = Objects.requireNonNull(mvParser);
-    LOG.exit();
+    this(path, mvParser, ParserFactory.Mode.STREAM);
   }
 
-  // ---vvv--- PRIVATE ---vvv---
-  private static final Logger LOG = LogManager.getFormatterLogger();
-  private static final Charset CHARSET = Charset.forName("Windows-1252");
-
-  private final Path path;
-  private final MultiValueParser valueParser;
-
   /**
-   * Line counter
+   * Constructor
+   *
+   * @param path the file to read
+   * @param mvParser the parser to scan values
+   * @param mode the way the file is read
    */
-  private int lineNumber;
+  Parser(Path path, MultiValueParser mvParser, ParserFactory.Mode mode) {
+    this(path, mvParser, mode, null);
+  }
 
   /**
-   * Reads the next line.
+   * Constructor
    *
-   * @param reader the reader providing the input
-   * @param parent the parent all new nodes are attached to
-   * @return <code>true</code> if a closing brace was encountered or the file
-   * ended
-   * @throws IOException if there is an error reading the input
+   * @param path the file to read
+   * @param mvParser the parser to scan values
+   * @param mode the way the file is read
+   * @param cache where trees of unchanged files are looked up and stored or
+   * <code>null</code> to always parse the file
    */
-  private boolean parseNextLine(BufferedReader reader, Node parent) throws IOException {
-    LOG.entry(reader, lineNumber+1, parent);
-    String line = nextLine(reader);
-    if (line == null) {
-      return true;
-    }
-
-    line = valueParser.stripComment(line).trim();
-
-    if (line.isEmpty()) {
-      // skip empty line
-      return LOG.exit(false);
-    } else if (line.startsWith(NESTING_END)) {
-      // signal that there are no more children of this parent
-      return LOG.exit(true);
-    } else if (line.startsWith(NESTING_START)) {
-      // add to previous property
-      parseNested(reader, parent.getLastChild().get());
-      return LOG.exit(false);
-    }
-
-    String[] tokens = valueParser.splitValues(line);
-
-    if (tokens.length == 1) {
-      String unparsed = valueParser.parseListValue(line, parent);
-      if (NESTING_END.equals(unparsed)) {
-        return LOG.exit(true);
-      } else {
-        return LOG.exit(false);
-      }
-    } else {
-      final String name = tokens[0].trim();
-      Node newNode = new Node(name);
-      parent.addChild(newNode);
-
-      final String value = tokens[1].trim();
-      if (value.equals(NESTING_START)) {
-        parseNested(reader, newNode);
-      } else if (!value.isEmpty()) {
-        valueParser.parse(value, newNode, lineNumber);
-      }
-
-      return LOG.exit(false);
-    }
+  Parser(Path path, MultiValueParser mvParser, ParserFactory.Mode mode, ParseCache cache) {
+    this(path, new ParserEngine(Objects.requireNonNull(mvParser), mode, cache));
   }
 
-  private void parseNested(BufferedReader reader, Node newNode) throws IOException {
-    LOG.entry(reader, newNode);
-    boolean nestingEnded = false;
-    while (!nestingEnded) {
-      nestingEnded = parseNextLine(reader, newNode);
+  /**
+   * Constructor
+   *
+   * @param path the file to read
+   * @param engine the engine doing the parsing
+   */
+  Parser(Path path, ParserEngine engine) {
+    LOG.entry(path, engine);
+    this.path = Objects.requireNonNull(path);
+    if (!Files.exists(path)) {
+      throw new IllegalArgumentException(String.format("File '%s' does not exist", path));
     }
+    this.engine = Objects.requireNonNull(engine);
     LOG.exit();
   }
 
-  private String nextLine(BufferedReader reader) throws IOException {
-    String line = reader.readLine();
-    lineNumber++;
-    return line;
-  }
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+  private final Path path;
+  private final ParserEngine engine;
 
 }
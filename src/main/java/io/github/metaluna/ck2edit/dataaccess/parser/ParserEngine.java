@@ -0,0 +1,346 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.BiFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Parses files. An engine keeps no state per file and may be shared by any
+ * number of threads. Each thread reuses its own read buffers, so parsing many
+ * files does not allocate them again for every file.
+ */
+public final class ParserEngine {
+
+  /**
+   * Creates an engine that decodes files while reading them.
+   */
+  public ParserEngine() {
+    this(ParserFactory.Mode.STREAM, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param mode the way files are read
+   * @param cache where trees of unchanged files are looked up and stored or
+   * <code>null</code> to always parse files
+   */
+  public ParserEngine(ParserFactory.Mode mode, ParseCache cache) {
+    this(new MultiValueParser(), mode, cache);
+  }
+
+  /**
+   * Parse a file
+   *
+   * @param path the file to read
+   * @return the root node or empty if the file is empty
+   */
+  public Node parse(Path path) {
+    return parse(path, (Consumer<Diagnostic>) null);
+  }
+
+  /**
+   * Parse a file, skipping statements that cannot be parsed instead of
+   * failing. Parsing continues with the next top-level statement.
+   *
+   * @param path the file to read
+   * @param diagnostics receives the problems found in the file or
+   * <code>null</code> to fail on the first statement that cannot be parsed.
+   * Files with problems are not cached, so they are reported on every parse.
+   * In lazy mode, problems inside a block are reported when the block is
+   * first accessed.
+   * @return the root node or empty if the file is empty
+   */
+  public Node parse(Path path, Consumer<Diagnostic> diagnostics) {
+    LOG.entry(path);
+    final Node result = parseTree(Objects.requireNonNull(path), diagnostics, false);
+    // printing the tree would parse the blocks of a lazy one
+    LOG.exit();
+    return result;
+  }
+
+  /**
+   * Parse a file, skipping statements that cannot be parsed, but fail if the
+   * file cannot be read instead of reporting it.
+   *
+   * @param path the file to read
+   * @param diagnostics receives the problems found in the file
+   * @return the root node or empty if the file is empty
+   * @throws IOException if the file cannot be read
+   * @see #parse(Path, Consumer)
+   */
+  public Node parseChecked(Path path, Consumer<Diagnostic> diagnostics) throws IOException {
+    LOG.entry(path);
+    Objects.requireNonNull(path);
+    Objects.requireNonNull(diagnostics);
+    final Node result;
+    try {
+      result = parseTree(path, diagnostics, true);
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    LOG.exit();
+    return result;
+  }
+
+  /**
+   * Parse a file into a compact, array-backed tree.
+   *
+   * @param path the file to read
+   * @return the tree; its root is a leaf if the file is empty
+   * @see Parser#parseCompact()
+   */
+  public CompactTree parseCompact(Path path) {
+    LOG.entry(path);
+    final CompactTreeBuilder builder = new CompactTreeBuilder();
+    parse(Objects.requireNonNull(path), null, false, (tokens, problems) -> builder);
+    return LOG.exit(builder.build());
+  }
+
+  /**
+   * Parse a file into a syntax tree that keeps comments and formatting.
+   *
+   * @param path the file to read
+   * @return the syntax tree
+   * @throws IOException if the file cannot be read
+   * @see Parser#parseConcrete()
+   */
+  public ConcreteTree parseConcrete(Path path) throws IOException {
+    LOG.entry(path);
+    final byte[] bytes = Files.readAllBytes(path);
+    final TextEncoding encoding = EncodingDetector.detect(ByteBuffer.wrap(bytes), 0, bytes.length);
+    return LOG.exit(ConcreteTree.parse(encoding.decode(bytes), encoding));
+  }
+
+  /**
+   * Parse a file without building a tree of nodes.
+   *
+   * @param path the file to read
+   * @param handler the handler receiving the contents of the file
+   */
+  public void parse(Path path, ParseHandler handler) {
+    LOG.entry(path, handler);
+    Objects.requireNonNull(handler);
+    parse(Objects.requireNonNull(path), null, false, (tokens, problems) -> new HandlerAdapter(handler));
+    LOG.exit();
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  ParserEngine(MultiValueParser valueParser, ParserFactory.Mode mode, ParseCache cache) {
+    this.valueParser = Objects.requireNonNull(valueParser);
+    this.mode = Objects.requireNonNull(mode);
+    this.cache = cache;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+  private final MultiValueParser valueParser;
+  private final ParserFactory.Mode mode;
+  private final ParseCache cache;
+  private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+  private boolean isLazy() {
+    return this.mode == ParserFactory.Mode.LAZY || this.mode == ParserFactory.Mode.PARALLEL;
+  }
+
+  /**
+   * @param mustRead whether to fail with an {@link UncheckedIOException} if
+   * the file cannot be read instead of reporting it
+   */
+  private Node parseTree(Path path, Consumer<Diagnostic> diagnostics, boolean mustRead) {
+    Optional<ParseCache.Stamp> stamp = Optional.empty();
+    if (this.cache != null) {
+      final Optional<Node> cached = this.cache.load(path);
+      if (cached.isPresent()) {
+        return cached.get();
+      }
+      if (this.mode != ParserFactory.Mode.LAZY) {
+        // a lazily parsed tree cannot be stored without parsing all of it
+        stamp = this.cache.stamp(path);
+      }
+    }
+    final Reporter reporter = diagnostics == null ? null : new Reporter(diagnostics);
+    final SourcePositions positions = new SourcePositions();
+    final SourceRoot root = new SourceRoot(positions);
+    final boolean complete = parse(path, reporter, mustRead, (tokens, problems) -> {
+      tokens.trackLines(positions.lines());
+      root.setEncoding(tokens.encoding());
+      if (isLazy() && tokens instanceof ByteTokenizer) {
+        root.setDeferred(this.mode == ParserFactory.Mode.LAZY);
+        return new LazyTreeBuilder(root, (ByteTokenizer) tokens, positions, problems);
+      } else {
+        return new TreeBuilder(root, positions);
+      }
+    });
+    if (this.mode == ParserFactory.Mode.PARALLEL) {
+      // the blocks are independent and keep their place in the root
+      root.getChildren().parallelStream().forEach(Node::loadChildren);
+    }
+    if (stamp.isPresent() && complete && (reporter == null || !reporter.found)) {
+      this.cache.store(stamp.get(), root);
+    }
+    return root;
+  }
+
+  /**
+   * @param diagnostics receives the problems or <code>null</code> to let
+   * exceptions pass
+   * @param mustRead whether to fail with an {@link UncheckedIOException} if
+   * the file cannot be read
+   * @return <code>true</code> if the whole file could be read
+   */
+  private boolean parse(Path path, Consumer<Diagnostic> diagnostics, boolean mustRead,
+          BiFunction<Tokenizer, MultiValueParser.Problems, TokenListener> listenerFactory) {
+    final Buffers threadBuffers = this.buffers.get();
+    // a handler may parse another file from within a callback
+    final Buffers reused = threadBuffers.inUse ? new Buffers() : threadBuffers;
+    reused.inUse = true;
+    Tokenizer opened = null;
+    try (Tokenizer tokens = openTokenizer(path, reused)) {
+      opened = tokens;
+      try {
+        final MultiValueParser.Problems problems = diagnostics == null
+                ? null
+                : (line, column, message) -> diagnostics.accept(new Diagnostic(path, line, column, message));
+        this.valueParser.parse(tokens, listenerFactory.apply(tokens, problems), problems);
+      } catch (RuntimeException ex) {
+        LOG.error("Exception on line #%d: %s", tokens.line(), ex);
+        throw ex;
+      }
+      LOG.debug("Finished parsing on line %d", tokens.line());
+      return true;
+    } catch (IOException ex) {
+      if (mustRead) {
+        throw new UncheckedIOException(ex);
+      }
+      LOG.catching(ex);
+      if (diagnostics != null) {
+        diagnostics.accept(new Diagnostic(path, "Unable to read file: " + ex));
+      }
+      return false;
+    } finally {
+      if (opened instanceof CharTokenizer) {
+        reused.keep(((CharTokenizer) opened).buffer());
+      }
+      reused.inUse = false;
+    }
+  }
+
+  /**
+   * Opens a tokenizer for the file's encoding. Byte-level tokenizing requires
+   * Windows-1252, so files in other encodings are always decoded while
+   * reading. In stream mode the encoding is detected from the start of the
+   * file, otherwise from all of it.
+   */
+  private Tokenizer openTokenizer(Path path, Buffers reused) throws IOException {
+    if (this.mode != ParserFactory.Mode.STREAM) {
+      // lazy nodes keep referring to the input, so it must not be reused
+      final ByteTokenizer tokens = isLazy() ? ByteTokenizer.open(path) : ByteTokenizer.open(path, reused::bytes);
+      final ByteBuffer input = tokens.input();
+      if (EncodingDetector.detect(input, 0, input.limit()) == TextEncoding.WINDOWS_1252) {
+        return tokens;
+      }
+      LOG.debug("Decoding '%s' while reading because it is not Windows-1252 encoded", path);
+    }
+    final InputStream input = new BufferedInputStream(Files.newInputStream(path));
+    final TextEncoding encoding = EncodingDetector.detect(input);
+    return new CharTokenizer(encoding.newReader(input), 1, reused.chars, encoding);
+  }
+
+  /**
+   * Passes on diagnostics and remembers if there were any. The blocks of a
+   * file may be parsed by several threads, which report one at a time.
+   */
+  private static class Reporter implements Consumer<Diagnostic> {
+
+    Reporter(Consumer<Diagnostic> diagnostics) {
+      this.diagnostics = diagnostics;
+    }
+
+    boolean found;
+
+    @Override
+    public synchronized void accept(Diagnostic problem) {
+      this.found = true;
+      this.diagnostics.accept(problem);
+    }
+
+    // ---vvv--- PRIVATE ---vvv---
+    private final Consumer<Diagnostic> diagnostics;
+  }
+
+  /**
+   * The read buffers of a thread.
+   */
+  private static class Buffers {
+
+    char[] chars = new char[INITIAL_CHARS];
+    boolean inUse;
+
+    /**
+     * @param capacity the required capacity
+     * @return the byte buffer, grown if necessary
+     */
+    ByteBuffer bytes(int capacity) {
+      if (this.bytes == null || this.bytes.capacity() < capacity) {
+        this.bytes = ByteBuffer.allocate(Math.max(capacity, INITIAL_BYTES));
+      }
+      return this.bytes;
+    }
+
+    /**
+     * Takes back a character buffer that may have been enlarged. Very large
+     * buffers are dropped so that one huge token does not pin memory.
+     *
+     * @param used the buffer
+     */
+    void keep(char[] used) {
+      if (used.length <= MAX_CHARS) {
+        this.chars = used;
+      }
+    }
+
+    // ---vvv--- PRIVATE ---vvv---
+    private static final int INITIAL_CHARS = 8192;
+    private static final int INITIAL_BYTES = 64 * 1024;
+    private static final int MAX_CHARS = 1 << 20;
+
+    private ByteBuffer bytes;
+
+  }
+
+}
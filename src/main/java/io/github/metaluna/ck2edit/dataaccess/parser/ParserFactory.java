@@ -27,8 +27,74 @@ import java.nio.file.Path;
 
 public class ParserFactory {
 
+  /**
+   * Specifies how parsers read their files.
+   */
+  public enum Mode {
+
+    /**
+     * Decode the file to characters while reading it.
+     */
+    STREAM,
+    /**
+     * Memory-map the file and scan the raw Windows-1252 bytes. Names will only
+     * be decoded when they are requested.
+     */
+    MAPPED,
+    /**
+     * Like {@link #MAPPED}, but only the top level of the file is parsed
+     * right away. The contents of a top-level block are parsed when the
+     * children of its node are requested for the first time, so the file's
+     * contents are kept in memory as long as any of them is unparsed.
+     */
+    LAZY,
+    /**
+     * Like {@link #LAZY}, but all top-level blocks are parsed concurrently
+     * right after the top level. Meant for single large files.
+     */
+    PARALLEL
+  }
+
+  /**
+   * Creates a factory producing parsers that decode their files while reading.
+   */
+  public ParserFactory() {
+    this(Mode.STREAM);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param mode the way the produced parsers read their files
+   */
+  public ParserFactory(Mode mode) {
+    this(mode, null);
+  }
+
+  /**
+   * Creates a factory producing parsers that look up the trees of unchanged
+   * files in a cache before parsing them.
+   *
+   * @param mode the way the produced parsers read their files
+   * @param cache the cache shared by all produced parsers or <code>null</code>
+   * to always parse
+   */
+  public ParserFactory(Mode mode, ParseCache cache) {
+    this.engine = new ParserEngine(mode, cache);
+  }
+
   public Parser fromFile(Path path) {
-    return new Parser(path, new MultiValueParser());
+    return new Parser(path, engine);
   }
 
+  /**
+   * @return the engine shared by all produced parsers
+   */
+  public ParserEngine getEngine() {
+    return engine;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final ParserEngine engine;
+
 }
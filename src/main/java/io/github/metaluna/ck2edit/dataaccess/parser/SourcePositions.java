@@ -0,0 +1,165 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Where the nodes of a parsed file are in its source. Each node only stores
+ * an index into this table, which holds the start and end offset of each node
+ * as two ints. Lines and columns are derived from the offsets with a table of
+ * line starts, so they cost nothing per node.
+ * <p>
+ * The span of a key covers its value or block; the span of any other node
+ * covers its token. Offsets count characters of the decoded file, which are
+ * the bytes of a Windows-1252 encoded file,
+ * lines and columns start at 1. End positions are exclusive. The table must
+ * only be asked about nodes of its own tree.
+ */
+public final class SourcePositions {
+
+  /**
+   * @param root the root node returned by a parser
+   * @return the positions of the root's nodes or an empty optional if the
+   * tree was not parsed from a file
+   */
+  public static Optional<SourcePositions> of(Node root) {
+    if (root instanceof SourceRoot) {
+      return Optional.ofNullable(((SourceRoot) root).getPositions());
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * @param node a node of the tree this table belongs to
+   * @return <code>true</code> if this table knows the position of the node
+   */
+  public boolean contains(Node node) {
+    final int index = node.getPosition();
+    return index >= 0 && index < this.size;
+  }
+
+  public int getStartOffset(Node node) {
+    return spans(node)[offsetIndex(node)];
+  }
+
+  public int getEndOffset(Node node) {
+    return spans(node)[offsetIndex(node) + 1];
+  }
+
+  public int getStartLine(Node node) {
+    return this.lines.lineOf(getStartOffset(node));
+  }
+
+  public int getStartColumn(Node node) {
+    return columnOf(getStartOffset(node));
+  }
+
+  public int getEndLine(Node node) {
+    return this.lines.lineOf(getEndOffset(node));
+  }
+
+  public int getEndColumn(Node node) {
+    return columnOf(getEndOffset(node));
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  SourcePositions() {
+    this.lines = new LineTable();
+    this.pages = new int[1][];
+    this.pages[0] = new int[PAGE_SIZE * STRIDE];
+  }
+
+  LineTable lines() {
+    return this.lines;
+  }
+
+  /**
+   * Records the span of a node. Nodes of lazily parsed blocks may be added
+   * from several threads.
+   *
+   * @param node the node
+   * @param start the offset of its first character
+   * @param end the offset after its last character
+   */
+  synchronized void add(Node node, int start, int end) {
+    final int index = this.size;
+    final int page = index / PAGE_SIZE;
+    if (page == this.pages.length) {
+      final int[][] grown = Arrays.copyOf(this.pages, page * 2);
+      for (int i = page; i < grown.length; i++) {
+        grown[i] = new int[PAGE_SIZE * STRIDE];
+      }
+      this.pages = grown;
+    }
+    final int[] spans = this.pages[page];
+    final int offset = (index % PAGE_SIZE) * STRIDE;
+    spans[offset] = start;
+    spans[offset + 1] = end;
+    this.size = index + 1;
+    node.setPosition(index);
+  }
+
+  /**
+   * Moves the end of a node's span, e.g. once its block has been closed.
+   *
+   * @param node the node
+   * @param end the offset after its last character
+   */
+  synchronized void setEnd(Node node, int end) {
+    final int index = node.getPosition();
+    if (index < 0) {
+      return;
+    }
+    this.pages[index / PAGE_SIZE][(index % PAGE_SIZE) * STRIDE + 1] = end;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final int STRIDE = 2;
+  private static final int PAGE_SIZE = 4096;
+
+  private final LineTable lines;
+  /**
+   * pages are never moved once they are allocated
+   */
+  private volatile int[][] pages;
+  private volatile int size;
+
+  private int[] spans(Node node) {
+    if (!contains(node)) {
+      throw new IllegalArgumentException(String.format("No position known for node '%s'", node.getName()));
+    }
+    return this.pages[node.getPosition() / PAGE_SIZE];
+  }
+
+  private static int offsetIndex(Node node) {
+    return (node.getPosition() % PAGE_SIZE) * STRIDE;
+  }
+
+  private int columnOf(int offset) {
+    return offset - this.lines.startOf(this.lines.lineOf(offset)) + 1;
+  }
+
+}
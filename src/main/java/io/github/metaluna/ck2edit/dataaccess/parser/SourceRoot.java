@@ -0,0 +1,87 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.Objects;
+
+/**
+ * The root of a parsed file. It keeps the positions of the file's nodes and
+ * the encoding the file was read in.
+ */
+class SourceRoot extends Node {
+
+  /**
+   * Constructor
+   *
+   * @param positions the positions of the nodes that will be added
+   */
+  SourceRoot(SourcePositions positions) {
+    super(ROOT_NAME, true);
+    this.positions = Objects.requireNonNull(positions);
+  }
+
+  /**
+   * Creates a root without positions, e.g. for a tree that was not parsed.
+   *
+   * @param encoding the encoding of the file
+   */
+  SourceRoot(TextEncoding encoding) {
+    super(ROOT_NAME, true);
+    this.positions = null;
+    this.encoding = Objects.requireNonNull(encoding);
+  }
+
+  /**
+   * @return the positions or <code>null</code> if they are not known
+   */
+  SourcePositions getPositions() {
+    return this.positions;
+  }
+
+  TextEncoding getEncoding() {
+    return this.encoding;
+  }
+
+  void setEncoding(TextEncoding encoding) {
+    this.encoding = Objects.requireNonNull(encoding);
+  }
+
+  /**
+   * @return <code>true</code> if blocks are parsed on first access, so the
+   * tree may have problems that have not been reported yet
+   */
+  boolean isDeferred() {
+    return this.deferred;
+  }
+
+  void setDeferred(boolean deferred) {
+    this.deferred = deferred;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final SourcePositions positions;
+  private TextEncoding encoding = TextEncoding.WINDOWS_1252;
+  private boolean deferred;
+
+}
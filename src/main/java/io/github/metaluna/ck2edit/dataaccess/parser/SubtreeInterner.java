@@ -0,0 +1,133 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Makes identical subtrees share a single frozen copy. Two subtrees are
+ * identical if their names and children are, so the same block repeated in
+ * many places or files is only kept once. Interned nodes of the same
+ * interner are equal if and only if they are the same instance.
+ * <p>
+ * An interner is thread-safe and is meant to be shared by all files that are
+ * loaded together.
+ */
+public class SubtreeInterner {
+
+  /**
+   * Returns the shared copy of a subtree. The subtree itself is left
+   * untouched. Root nodes are copied but never shared because they stand for
+   * a whole file.
+   *
+   * @param node the root of the subtree
+   * @return the frozen copy of the subtree
+   * @see Node#isFrozen()
+   */
+  public Node intern(Node node) {
+    Objects.requireNonNull(node);
+    // only the name, printing the subtree on every level would be quadratic
+    LOG.entry(node.getName());
+    final List<Node> children = node.getChildren();
+    final Node[] internedChildren = new Node[children.size()];
+    for (int i = 0; i < internedChildren.length; i++) {
+      internedChildren[i] = intern(children.get(i));
+    }
+    final Node result;
+    if (node.isRoot()) {
+      result = new Node(node.getName(), internedChildren, true);
+    } else {
+      final Key key = new Key(node.getSymbol(), internedChildren);
+      result = this.subtrees.computeIfAbsent(key, k -> new Node(k.name, k.children, false));
+    }
+    LOG.exit();
+    return result;
+  }
+
+  /**
+   * @return the number of distinct subtrees
+   */
+  public int size() {
+    return this.subtrees.size();
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+  private final Map<Key, Node> subtrees = new ConcurrentHashMap<>();
+
+  /**
+   * Identifies a subtree by its name and its already interned children, so
+   * comparing identities is enough. The array of children is shared with the
+   * interned node.
+   */
+  private static final class Key {
+
+    Key(Symbol name, Node[] children) {
+      this.name = name;
+      this.children = children;
+      int result = System.identityHashCode(name);
+      for (Node child : children) {
+        result = 31 * result + System.identityHashCode(child);
+      }
+      this.hash = result;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      if (this.hash != other.hash || this.name != other.name || this.children.length != other.children.length) {
+        return false;
+      }
+      for (int i = 0; i < this.children.length; i++) {
+        if (this.children[i] != other.children[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private final Symbol name;
+    private final Node[] children;
+    private final int hash;
+
+  }
+
+}
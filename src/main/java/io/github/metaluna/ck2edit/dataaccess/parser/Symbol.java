@@ -0,0 +1,127 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An interned name. Symbols keep their name in its single-byte Windows-1252
+ * form and decode it whenever it is requested as a string. There is
+ * only one symbol per name in a {@link SymbolTable}, so symbols of the same
+ * table can be compared by identity.
+ */
+public final class Symbol {
+
+  /**
+   * Interns a name in the shared symbol table.
+   *
+   * @param name the name
+   * @return the symbol of the name
+   * @see SymbolTable#getDefault()
+   */
+  public static Symbol of(String name) {
+    return SymbolTable.getDefault().intern(name);
+  }
+
+  /**
+   * @return the number of bytes of the encoded name
+   */
+  public int length() {
+    return this.bytes.length;
+  }
+
+  /**
+   * @return what kind of value this name is
+   */
+  public ValueKind getKind() {
+    return this.kind;
+  }
+
+  /**
+   * Returns the decoded value. Integers are returned as they are, decimals in
+   * thousandths, booleans as 1 or 0 and dates as <code>yyyymmdd</code>.
+   *
+   * @return the value or 0 for text
+   */
+  public long getValue() {
+    return this.value;
+  }
+
+  /**
+   * @return the decoded name
+   */
+  @Override
+  public String toString() {
+    return this.text != null ? this.text : Windows1252.decode(this.bytes, 0, this.bytes.length);
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  /**
+   * Constructor
+   *
+   * @param bytes the Windows-1252 encoded name, not copied
+   * @param hash the hash of the encoded name
+   * @param text the name if it cannot be encoded in Windows-1252, otherwise
+   * <code>null</code> to decode it on demand
+   */
+  Symbol(byte[] bytes, int hash, String text) {
+    this.bytes = bytes;
+    this.hash = hash;
+    this.text = text;
+    final ValueDecoder decoder = new ValueDecoder(bytes);
+    this.kind = decoder.getKind();
+    this.value = decoder.getValue();
+  }
+
+  int hash() {
+    return this.hash;
+  }
+
+  /**
+   * @param input the buffer containing the name to compare with
+   * @param start offset of the first byte of the name
+   * @param length the number of bytes of the name
+   * @return <code>true</code> if the name in the buffer equals this symbol
+   */
+  boolean matches(ByteBuffer input, int start, int length) {
+    if (length != this.bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (input.get(start + i) != this.bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final byte[] bytes;
+  private final int hash;
+  private final ValueKind kind;
+  private final long value;
+  /** the name if it cannot be decoded from the bytes or <code>null</code> */
+  private final String text;
+
+}
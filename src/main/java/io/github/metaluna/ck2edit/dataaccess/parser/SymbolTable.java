@@ -0,0 +1,210 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * A thread-safe table of {@link Symbol}s. Names are looked up directly in the
+ * encoded input, so a name that is already known does not allocate anything.
+ * <p>
+ * The table is split into segments that are locked independently, so files
+ * can be parsed in parallel. Symbols are only referenced weakly, so the names
+ * of files that are no longer used do not stay in memory.
+ */
+public final class SymbolTable {
+
+  /**
+   * @return the table shared by all parsers
+   */
+  public static SymbolTable getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Constructor
+   */
+  public SymbolTable() {
+    this.segments = new Segment[SEGMENT_COUNT];
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      this.segments[i] = new Segment();
+    }
+  }
+
+  /**
+   * Interns a name. Names that cannot be encoded in Windows-1252 only occur in
+   * files in other encodings; they get a symbol of their own that is not added
+   * to the table.
+   *
+   * @param name the name
+   * @return the symbol of the name
+   */
+  public Symbol intern(String name) {
+    Objects.requireNonNull(name);
+    final byte[] bytes = name.getBytes(Windows1252.CHARSET);
+    if (!Windows1252.decode(bytes, 0, bytes.length).equals(name)) {
+      return new Symbol(bytes, hash(ByteBuffer.wrap(bytes), 0, bytes.length), name);
+    }
+    return intern(ByteBuffer.wrap(bytes), 0, bytes.length);
+  }
+
+  /**
+   * Interns a Windows-1252 encoded name.
+   *
+   * @param input the buffer containing the name
+   * @param start offset of the first byte of the name
+   * @param end offset after the last byte of the name
+   * @return the symbol of the name
+   */
+  public Symbol intern(ByteBuffer input, int start, int end) {
+    Objects.requireNonNull(input);
+    final int length = end - start;
+    final int hash = hash(input, start, length);
+    return this.segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)].intern(input, start, length, hash);
+  }
+
+  /**
+   * @return the number of symbols in the table; symbols that are no longer
+   * used may still be counted until they are collected
+   */
+  public int size() {
+    int result = 0;
+    for (Segment segment : this.segments) {
+      result += segment.size();
+    }
+    return result;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final int SEGMENT_COUNT = 32;
+  private static final SymbolTable DEFAULT = new SymbolTable();
+
+  private final Segment[] segments;
+
+  private static int hash(ByteBuffer input, int start, int length) {
+    int result = 0;
+    for (int i = start; i < start + length; i++) {
+      result = 31 * result + input.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * A chained hash table of weakly referenced symbols. Entries whose symbol
+   * has been collected are removed on the next call.
+   */
+  private static final class Segment {
+
+    synchronized Symbol intern(ByteBuffer input, int start, int length, int hash) {
+      expungeCollected();
+      final int i = indexOf(hash, this.table.length);
+      for (Entry entry = this.table[i]; entry != null; entry = entry.next) {
+        final Symbol candidate = entry.get();
+        if (candidate != null && entry.hash == hash && candidate.matches(input, start, length)) {
+          return candidate;
+        }
+      }
+
+      final byte[] bytes = new byte[length];
+      for (int j = 0; j < length; j++) {
+        bytes[j] = input.get(start + j);
+      }
+      final Symbol result = new Symbol(bytes, hash, null);
+      this.table[i] = new Entry(result, this.collected, this.table[i]);
+      if (++this.size > this.table.length) {
+        grow();
+      }
+      return result;
+    }
+
+    synchronized int size() {
+      expungeCollected();
+      return this.size;
+    }
+
+    private final ReferenceQueue<Symbol> collected = new ReferenceQueue<>();
+    private Entry[] table = new Entry[64];
+    private int size;
+
+    private void expungeCollected() {
+      for (Reference<? extends Symbol> ref = this.collected.poll(); ref != null; ref = this.collected.poll()) {
+        final Entry stale = (Entry) ref;
+        final int i = indexOf(stale.hash, this.table.length);
+        Entry previous = null;
+        for (Entry entry = this.table[i]; entry != null; previous = entry, entry = entry.next) {
+          if (entry == stale) {
+            if (previous == null) {
+              this.table[i] = entry.next;
+            } else {
+              previous.next = entry.next;
+            }
+            this.size--;
+            break;
+          }
+        }
+      }
+    }
+
+    private void grow() {
+      final Entry[] old = this.table;
+      this.table = new Entry[old.length * 2];
+      for (Entry head : old) {
+        Entry next;
+        for (Entry entry = head; entry != null; entry = next) {
+          next = entry.next;
+          final int i = indexOf(entry.hash, this.table.length);
+          entry.next = this.table[i];
+          this.table[i] = entry;
+        }
+      }
+    }
+
+    /**
+     * The low bits select the segment, so the slot is taken from the high
+     * bits.
+     */
+    private static int indexOf(int hash, int length) {
+      return ((hash * 0x9E3779B9) >>> 7) & (length - 1);
+    }
+
+  }
+
+  private static final class Entry extends WeakReference<Symbol> {
+
+    Entry(Symbol symbol, ReferenceQueue<Symbol> queue, Entry next) {
+      super(symbol, queue);
+      this.hash = symbol.hash();
+      this.next = next;
+    }
+
+    final int hash;
+    Entry next;
+
+  }
+
+}
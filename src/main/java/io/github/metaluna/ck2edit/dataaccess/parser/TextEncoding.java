@@ -0,0 +1,142 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The encodings script and localisation files are written in.
+ */
+public enum TextEncoding {
+
+  /**
+   * The encoding of the game's own files.
+   */
+  WINDOWS_1252(Windows1252.CHARSET, false),
+  /**
+   * UTF-8 without a byte order mark.
+   */
+  UTF_8(StandardCharsets.UTF_8, false),
+  /**
+   * UTF-8 starting with a byte order mark.
+   */
+  UTF_8_BOM(StandardCharsets.UTF_8, true);
+
+  /**
+   * @param root the root node returned by a parser
+   * @return the encoding the tree was read in; Windows-1252 if it was not
+   * parsed from a file
+   */
+  public static TextEncoding of(Node root) {
+    if (root instanceof SourceRoot) {
+      return ((SourceRoot) root).getEncoding();
+    }
+    return WINDOWS_1252;
+  }
+
+  public Charset getCharset() {
+    return charset;
+  }
+
+  public boolean hasByteOrderMark() {
+    return byteOrderMark;
+  }
+
+  /**
+   * Decodes a whole file. A byte order mark at its start is skipped.
+   *
+   * @param bytes the contents of the file
+   * @return the text
+   */
+  public String decode(byte[] bytes) {
+    if (this == WINDOWS_1252) {
+      return Windows1252.decode(bytes, 0, bytes.length);
+    }
+    final int start = hasByteOrderMark(bytes) ? EncodingDetector.UTF_8_BOM.length : 0;
+    return new String(bytes, start, bytes.length - start, this.charset);
+  }
+
+  /**
+   * Creates a reader decoding a stream in this encoding. A byte order mark at
+   * the start of the stream is skipped.
+   *
+   * @param input the stream positioned at the start of the file
+   * @return the reader
+   * @throws IOException if the stream cannot be read
+   */
+  public Reader newReader(InputStream input) throws IOException {
+    if (this == WINDOWS_1252) {
+      return new Windows1252.DecodingReader(input);
+    }
+    if (this.byteOrderMark) {
+      for (int i = 0; i < EncodingDetector.UTF_8_BOM.length; i++) {
+        if (input.read() < 0) {
+          break;
+        }
+      }
+    }
+    return new InputStreamReader(input, this.charset);
+  }
+
+  /**
+   * Creates a writer encoding text in this encoding, starting with a byte
+   * order mark if the encoding has one.
+   *
+   * @param output the stream positioned at the start of the file
+   * @return the writer
+   * @throws IOException if the byte order mark cannot be written
+   */
+  public Writer newWriter(OutputStream output) throws IOException {
+    if (this.byteOrderMark) {
+      output.write(EncodingDetector.UTF_8_BOM);
+    }
+    return new OutputStreamWriter(output, this.charset);
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final Charset charset;
+  private final boolean byteOrderMark;
+
+  private TextEncoding(Charset charset, boolean byteOrderMark) {
+    this.charset = charset;
+    this.byteOrderMark = byteOrderMark;
+  }
+
+  private boolean hasByteOrderMark(byte[] bytes) {
+    return this.byteOrderMark
+            && bytes.length >= EncodingDetector.UTF_8_BOM.length
+            && bytes[0] == EncodingDetector.UTF_8_BOM[0]
+            && bytes[1] == EncodingDetector.UTF_8_BOM[1]
+            && bytes[2] == EncodingDetector.UTF_8_BOM[2];
+  }
+
+}
@@ -0,0 +1,87 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+/**
+ * Receives the tokens recognized by the {@link MultiValueParser}. The
+ * tokenizer is positioned on the token in question, so listeners decide
+ * themselves whether and how to materialize its text.
+ */
+interface TokenListener {
+
+  /**
+   * A key. It is followed by exactly one of {@link #value(Tokenizer)},
+   * {@link #startBlock(Tokenizer)} or {@link #noValue(Tokenizer)}.
+   *
+   * @param tokens the tokenizer positioned on the key
+   */
+  void key(Tokenizer tokens);
+
+  /**
+   * The single value of the preceding key.
+   *
+   * @param tokens the tokenizer positioned on the value
+   */
+  void value(Tokenizer tokens);
+
+  /**
+   * The preceding key does not have a value.
+   *
+   * @param tokens the tokenizer positioned on the token after the value
+   * separator
+   */
+  void noValue(Tokenizer tokens);
+
+  /**
+   * The preceding key is followed by a block.
+   *
+   * @param tokens the tokenizer positioned on the opening brace
+   * @return <code>false</code> if the contents of the block are to be skipped
+   * instead of reported
+   */
+  boolean startBlock(Tokenizer tokens);
+
+  /**
+   * The end of the block most recently started.
+   *
+   * @param tokens the tokenizer positioned on the closing brace or at the end
+   * of the input if the block was not closed
+   */
+  void endBlock(Tokenizer tokens);
+
+  /**
+   * A name that is not followed by a value separator.
+   *
+   * @param tokens the tokenizer positioned on the name
+   */
+  void listValue(Tokenizer tokens);
+
+  /**
+   * A statement failed and the input has been skipped up to the next
+   * top-level statement. Any open blocks are to be abandoned.
+   */
+  default void recover() {
+  }
+
+}
@@ -0,0 +1,64 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+/**
+ * Types of tokens produced by the {@link Tokenizer}.
+ */
+enum TokenType {
+
+  /**
+   * A name directly followed by a value separator, i.e. <code>opinion</code>
+   * in <code>opinion = 10</code>
+   */
+  KEY,
+  /**
+   * The value separator '='
+   */
+  EQUALS,
+  /**
+   * An unquoted name that is not followed by a value separator
+   */
+  VALUE,
+  /**
+   * A string enclosed in quotes. The quotes are part of the token.
+   */
+  QUOTED,
+  /**
+   * The nesting start marker '{'
+   */
+  OPEN,
+  /**
+   * The nesting end marker '}'
+   */
+  CLOSE,
+  /**
+   * Everything from the comment marker up to the end of the line
+   */
+  COMMENT,
+  /**
+   * The input is exhausted
+   */
+  END
+}
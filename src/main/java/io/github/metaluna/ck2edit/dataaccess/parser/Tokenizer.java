@@ -0,0 +1,110 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Splits the input of a parser into tokens. Line breaks carry no meaning apart
+ * from ending comments.
+ * <p>
+ * A tokenizer does not create any objects per token. The text of the current
+ * token is only materialized when {@link #text()} or {@link #node()} is
+ * called.
+ */
+interface Tokenizer extends Closeable {
+
+  /**
+   * Advances to the next token.
+   *
+   * @return the type of the new current token
+   * @throws IOException if the input cannot be read
+   */
+  TokenType next() throws IOException;
+
+  /**
+   * Makes the next call to {@link #next()} return the current token again.
+   */
+  void pushBack();
+
+  /**
+   * Skips the contents of the block that has just been opened by counting
+   * braces. Braces in strings and comments are ignored. Afterwards the current
+   * token is the block's closing brace or the end of the input.
+   *
+   * @return <code>true</code> if the input ended before the block was closed
+   * @throws IOException if the input cannot be read
+   */
+  boolean skipBlock() throws IOException;
+
+  /**
+   * Makes the tokenizer record the start of every line it passes from now
+   * on.
+   *
+   * @param lines receives the offsets of the line starts
+   */
+  void trackLines(LineTable lines);
+
+  /**
+   * @return the type of the current token
+   */
+  TokenType type();
+
+  /**
+   * @return the text of the current token
+   */
+  String text();
+
+  /**
+   * @return the offset of the first character of the current token
+   */
+  int start();
+
+  /**
+   * @return the offset after the last character of the current token
+   */
+  int end();
+
+  /**
+   * @return the line the current token starts on
+   */
+  int line();
+
+  /**
+   * @return the column the current token starts in, starting at 1
+   */
+  int column();
+
+  /**
+   * @return a new node named after the current token
+   */
+  Node node();
+
+  /**
+   * @return the encoding of the input
+   */
+  TextEncoding encoding();
+
+}
@@ -0,0 +1,152 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * Builds a tree of nodes out of the recognized tokens.
+ */
+class TreeBuilder implements TokenListener {
+
+  /**
+   * Constructor
+   *
+   * @param parent the node all top-level nodes are added to
+   */
+  TreeBuilder(Node parent) {
+    this(parent, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param parent the node all top-level nodes are added to
+   * @param positions where to record the positions of the new nodes or
+   * <code>null</code> if they are not needed
+   */
+  TreeBuilder(Node parent, SourcePositions positions) {
+    this.current = Objects.requireNonNull(parent);
+    this.positions = positions;
+  }
+
+  @Override
+  public void key(Tokenizer tokens) {
+    addKey(tokens.node(), tokens);
+  }
+
+  @Override
+  public void value(Tokenizer tokens) {
+    addNode(this.lastKey, tokens.node(), tokens);
+    extend(this.lastKey, tokens.end());
+  }
+
+  @Override
+  public void noValue(Tokenizer tokens) {
+    // the key stays a leaf
+  }
+
+  @Override
+  public boolean startBlock(Tokenizer tokens) {
+    this.parents.push(this.current);
+    this.current = this.lastKey;
+    return true;
+  }
+
+  @Override
+  public void endBlock(Tokenizer tokens) {
+    extend(this.current, tokens.end());
+    this.current = this.parents.pop();
+  }
+
+  @Override
+  public void listValue(Tokenizer tokens) {
+    addNode(this.current, tokens.node(), tokens);
+  }
+
+  @Override
+  public void recover() {
+    while (!this.parents.isEmpty()) {
+      this.current = this.parents.pop();
+    }
+  }
+
+  // ---vvv--- PACKAGE-PRIVATE ---vvv---
+  /**
+   * Adds a node for a key to the current block.
+   *
+   * @param key the new node
+   * @param tokens the tokenizer positioned on the key
+   */
+  void addKey(Node key, Tokenizer tokens) {
+    this.lastKey = key;
+    addNode(this.current, key, tokens);
+  }
+
+  /**
+   * Extends the span of a node to the end of its value.
+   *
+   * @param node the node
+   * @param end the offset after the value
+   */
+  void extend(Node node, int end) {
+    if (this.positions != null) {
+      this.positions.setEnd(node, end);
+    }
+  }
+
+  SourcePositions positions() {
+    return this.positions;
+  }
+
+  /**
+   * @return the node of the key most recently added
+   */
+  Node lastKey() {
+    return this.lastKey;
+  }
+
+  /**
+   * @return <code>true</code> if no block is open
+   */
+  boolean isTopLevel() {
+    return this.parents.isEmpty();
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final Deque<Node> parents = new ArrayDeque<>();
+  private final SourcePositions positions;
+  private Node current;
+  private Node lastKey;
+
+  private void addNode(Node parent, Node child, Tokenizer tokens) {
+    if (this.positions != null) {
+      this.positions.add(child, tokens.start(), tokens.end());
+    }
+    parent.addChild(child);
+  }
+
+}
@@ -0,0 +1,123 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.Arrays;
+
+/**
+ * Recognizes and decodes the value of a single Windows-1252 encoded name.
+ *
+ * @see ValueKind
+ */
+class ValueDecoder {
+
+  /**
+   * Decodes a name right away.
+   *
+   * @param bytes the encoded name
+   */
+  ValueDecoder(byte[] bytes) {
+    this.bytes = bytes;
+    if (Arrays.equals(bytes, YES)) {
+      this.kind = ValueKind.BOOLEAN;
+      this.value = 1;
+    } else if (Arrays.equals(bytes, NO)) {
+      this.kind = ValueKind.BOOLEAN;
+    } else if (bytes.length > 0 && bytes.length <= MAX_NUMBER_LENGTH) {
+      decodeNumber();
+    }
+  }
+
+  ValueKind getKind() {
+    return this.kind;
+  }
+
+  long getValue() {
+    return this.value;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final byte[] YES = {'y', 'e', 's'};
+  private static final byte[] NO = {'n', 'o'};
+  /**
+   * longer numbers might overflow
+   */
+  private static final int MAX_NUMBER_LENGTH = 18;
+  private static final int MAX_DECIMALS = 3;
+
+  private final byte[] bytes;
+  private ValueKind kind = ValueKind.TEXT;
+  private long value;
+
+  /**
+   * Splits the name into up to three groups of digits separated by dots. The
+   * first group may be preceded by a minus sign. One group is an integer, two
+   * are a decimal and three a date.
+   */
+  private void decodeNumber() {
+    final long[] parts = new long[3];
+    final boolean negative = this.bytes[0] == '-';
+    int count = 0;
+    int digits = 0;
+    long part = 0;
+    for (int i = negative ? 1 : 0; i < this.bytes.length; i++) {
+      final byte c = this.bytes[i];
+      if (c >= '0' && c <= '9') {
+        part = part * 10 + (c - '0');
+        digits++;
+      } else if (c == '.' && digits > 0 && count < parts.length - 1) {
+        parts[count++] = part;
+        part = 0;
+        digits = 0;
+      } else {
+        return;
+      }
+    }
+    if (digits == 0) {
+      return;
+    }
+    parts[count++] = part;
+    final long sign = negative ? -1 : 1;
+
+    if (count == 1) {
+      this.kind = ValueKind.INTEGER;
+      this.value = sign * parts[0];
+    } else if (count == 2 && digits <= MAX_DECIMALS) {
+      long fraction = parts[1];
+      for (int i = digits; i < MAX_DECIMALS; i++) {
+        fraction *= 10;
+      }
+      this.kind = ValueKind.DECIMAL;
+      this.value = sign * (parts[0] * 1000 + fraction);
+    } else if (count == 3 && !negative && isDate(parts[0], parts[1], parts[2])) {
+      this.kind = ValueKind.DATE;
+      this.value = parts[0] * 10000 + parts[1] * 100 + parts[2];
+    }
+  }
+
+  private static boolean isDate(long year, long month, long day) {
+    return year <= 9999 && month >= 1 && month <= 12 && day >= 1 && day <= 31;
+  }
+
+}
@@ -0,0 +1,54 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+/**
+ * The kinds of values recognized when a name is interned.
+ *
+ * @see Symbol
+ */
+public enum ValueKind {
+
+  /**
+   * Anything that is not one of the other kinds, including quoted strings.
+   */
+  TEXT,
+  /**
+   * A whole number like <code>-25</code>.
+   */
+  INTEGER,
+  /**
+   * A number with up to three decimals like <code>0.125</code>. It is kept
+   * as a fixed-point number in thousandths.
+   */
+  DECIMAL,
+  /**
+   * <code>yes</code> or <code>no</code>.
+   */
+  BOOLEAN,
+  /**
+   * A date like <code>1066.9.15</code>.
+   */
+  DATE
+}
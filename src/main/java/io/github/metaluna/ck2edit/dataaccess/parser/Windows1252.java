@@ -0,0 +1,123 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+/**
+ * Decodes Windows-1252 through a table of all 256 characters instead of a
+ * general charset decoder. Bytes the encoding does not define decode to the
+ * replacement character, just as with the JDK's decoder.
+ */
+final class Windows1252 {
+
+  static final Charset CHARSET = Charset.forName("Windows-1252");
+
+  /**
+   * @param input the encoded text
+   * @param start offset of the first byte
+   * @param end offset after the last byte
+   * @return the decoded text
+   */
+  static String decode(byte[] input, int start, int end) {
+    final char[] result = new char[end - start];
+    for (int i = start; i < end; i++) {
+      result[i - start] = TABLE[input[i] & 0xff];
+    }
+    return new String(result);
+  }
+
+  /**
+   * @param input the encoded text; its position is not used
+   * @param start offset of the first byte
+   * @param end offset after the last byte
+   * @return the decoded text
+   */
+  static String decode(ByteBuffer input, int start, int end) {
+    final char[] result = new char[end - start];
+    for (int i = start; i < end; i++) {
+      result[i - start] = TABLE[input.get(i) & 0xff];
+    }
+    return new String(result);
+  }
+
+  /**
+   * Decodes a byte stream while reading it.
+   */
+  static class DecodingReader extends Reader {
+
+    DecodingReader(InputStream input) {
+      this.input = Objects.requireNonNull(input);
+    }
+
+    @Override
+    public int read(char[] target, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (this.buffer.length < length) {
+        this.buffer = new byte[Math.min(length, MAX_BUFFER)];
+      }
+      final int read = this.input.read(this.buffer, 0, Math.min(length, this.buffer.length));
+      for (int i = 0; i < read; i++) {
+        target[offset + i] = TABLE[this.buffer[i] & 0xff];
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.input.close();
+    }
+
+    // ---vvv--- PRIVATE ---vvv---
+    private static final int MAX_BUFFER = 64 * 1024;
+
+    private final InputStream input;
+    private byte[] buffer = new byte[8192];
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final char[] TABLE = new char[256];
+
+  static {
+    final byte[] all = new byte[TABLE.length];
+    for (int i = 0; i < all.length; i++) {
+      all[i] = (byte) i;
+    }
+    new String(all, CHARSET).getChars(0, TABLE.length, TABLE, 0);
+  }
+
+  /**
+   * Hide constructor to prevent instantiation
+   */
+  private Windows1252() {
+  }
+
+}
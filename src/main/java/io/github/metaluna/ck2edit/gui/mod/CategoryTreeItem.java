@@ -34,10 +34,21 @@ public class CategoryTreeItem extends TreeItem<Object> {
   /**
    * Constructor
    * @param name the name of this category 
+   * @param categoryId the name of the content category whose files are shown
    */
-  public CategoryTreeItem(String name) {
+  public CategoryTreeItem(String name, String categoryId) {
     super(name);
+    this.categoryId = categoryId;
   }
 
-  
+  /**
+   * @return the name of the content category whose files are shown
+   */
+  public String getCategoryId() {
+    return categoryId;
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private final String categoryId;
+
 }
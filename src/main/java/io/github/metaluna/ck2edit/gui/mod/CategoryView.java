@@ -0,0 +1,52 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.gui.mod;
+
+import io.github.metaluna.ck2edit.business.mod.ModFile;
+
+/**
+ * Shows the files of a {@link io.github.metaluna.ck2edit.business.mod.ContentCategory}
+ * in the mod tree. Views are found with {@link java.util.ServiceLoader}; see
+ * {@link CategoryViews}. Implementations need a public constructor without
+ * arguments.
+ */
+public interface CategoryView {
+
+  /**
+   * @return the name of the content category this view shows
+   */
+  String getCategoryId();
+
+  /**
+   * @return the title of the category's node in the mod tree
+   */
+  String getTitle();
+
+  /**
+   * @param file a file of the category
+   * @return a new tree item for the file
+   */
+  ModFileTreeItem createTreeItem(ModFile file);
+
+}
@@ -0,0 +1,82 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.gui.mod;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The registry of all {@link CategoryView category views}. Content categories
+ * without a view are loaded but not shown.
+ */
+public final class CategoryViews {
+
+  /**
+   * @return the views registered as services in
+   * <code>META-INF/services</code>
+   */
+  public static CategoryViews getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param views the views
+   */
+  public CategoryViews(Iterable<? extends CategoryView> views) {
+    LOG.entry(views);
+    for (CategoryView view : views) {
+      if (this.views.put(view.getCategoryId(), view) != null) {
+        throw new IllegalArgumentException(String.format("Category '%s' has more than one view", view.getCategoryId()));
+      }
+    }
+    LOG.exit();
+  }
+
+  /**
+   * @param categoryId the name of a content category
+   * @return the view of the category or an empty optional if it has none
+   */
+  public Optional<CategoryView> get(String categoryId) {
+    return Optional.ofNullable(this.views.get(categoryId));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Logger LOG = LogManager.getFormatterLogger();
+
+  private final Map<String, CategoryView> views = new HashMap<>();
+
+  private static class DefaultHolder {
+
+    static final CategoryViews INSTANCE = new CategoryViews(
+            ServiceLoader.load(CategoryView.class, CategoryView.class.getClassLoader()));
+
+  }
+
+}
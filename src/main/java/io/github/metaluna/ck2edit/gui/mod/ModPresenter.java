@@ -23,21 +23,26 @@
  */
 package io.github.metaluna.ck2edit.gui.mod;
 
+import io.github.metaluna.ck2edit.business.mod.ContentCategories;
+import io.github.metaluna.ck2edit.business.mod.ContentCategory;
 import io.github.metaluna.ck2edit.business.mod.ModManager;
 import io.github.metaluna.ck2edit.business.mod.Mod;
 import io.github.metaluna.ck2edit.business.mod.ModFile;
-import io.github.metaluna.ck2edit.business.mod.opinionmodifier.OpinionModifierFile;
-import io.github.metaluna.ck2edit.gui.mod.opinionmodifier.OpinionModifierTreeItem;
 import io.github.metaluna.ck2edit.util.GamePaths;
-import java.io.File;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.SplitPane;
 import javafx.scene.control.TextInputDialog;
 import javafx.scene.control.TreeItem;
@@ -70,7 +75,8 @@ public class ModPresenter {
   public void load(Path modFile) {
     Mod mod;
     LOG.info("Loading mod file '%s'...", modFile.toString());
-    mod = modManager.fromFile(modFile);
+    this.currentMod.ifPresent(modManager::close);
+    mod = modManager.open(modFile);
     this.currentMod = Optional.of(mod);
     setWindowTitle(mod.getName());
     loadTreeFromMod(mod);
@@ -78,9 +84,7 @@ public class ModPresenter {
 
   public void saveFile() {
     LOG.entry();
-    this.currentFile
-            .filter(f -> f instanceof OpinionModifierFile)
-            .ifPresent(f -> modManager.saveFile((OpinionModifierFile) f));
+    this.currentFile.ifPresent(modManager::saveFile);
     LOG.exit();
   }
 
@@ -92,7 +96,13 @@ public class ModPresenter {
 
   // ---vvv--- PRIVATE ---vvv---
   private static final Logger LOG = LogManager.getFormatterLogger();
-  private static final String CAT_OPINION_MODIFIERS = "Opinion Modifiers";
+  private static final int PRELOADED_FILES = 2;
+  /** reads files in the background */
+  private static final ExecutorService LOADER = Executors.newFixedThreadPool(2, task -> {
+    final Thread thread = new Thread(task, "file-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
 
   @Inject
   private ModManager modManager;
@@ -110,10 +120,52 @@ public class ModPresenter {
   private Optional<ModFile> currentFile = Optional.empty();
   private String baseTitle;
 
+  /**
+   * Shows the file. Files that are not loaded yet are read in the background
+   * while a placeholder is shown. The next files in the tree are loaded
+   * afterwards, as they are likely to be opened next.
+   */
   private void onModFileOpen(ModFileTreeItem modFileItem) {
     LOG.entry(modFileItem);
-    this.currentFile = Optional.of(modFileItem.getFile());
-    this.modOpenFilesPane.setCenter(modFileItem.createView().getView());
+    final ModFile modFile = modFileItem.getFile();
+    this.currentFile = Optional.of(modFile);
+    if (modFile.isLoaded()) {
+      this.modOpenFilesPane.setCenter(modFileItem.createView().getView());
+    } else {
+      this.modOpenFilesPane.setCenter(new ProgressIndicator());
+      CompletableFuture.runAsync(modFile::load, LOADER).whenComplete((ignored, ex) -> Platform.runLater(() -> {
+        if (!this.currentFile.filter(f -> f == modFile).isPresent()) {
+          LOG.trace("File '%s' is no longer shown", modFile);
+          return;
+        }
+        if (ex != null) {
+          LOG.error("Unable to load '%s': %s", modFile, ex);
+          this.modOpenFilesPane.setCenter(new Label(String.format(resources.getString("fileLoadError"), modFile)));
+        } else {
+          this.modOpenFilesPane.setCenter(modFileItem.createView().getView());
+        }
+      }));
+    }
+    preloadFollowing(modFileItem);
+    LOG.exit();
+  }
+
+  private void preloadFollowing(ModFileTreeItem modFileItem) {
+    LOG.entry(modFileItem);
+    TreeItem<Object> next = modFileItem.nextSibling();
+    for (int i = 0; i < PRELOADED_FILES && next instanceof ModFileTreeItem; i++) {
+      final ModFile modFile = ((ModFileTreeItem) next).getFile();
+      if (!modFile.isLoaded()) {
+        LOADER.execute(() -> {
+          try {
+            modFile.load();
+          } catch (RuntimeException ex) {
+            LOG.debug("Unable to preload '%s': %s", modFile, ex);
+          }
+        });
+      }
+      next = next.nextSibling();
+    }
     LOG.exit();
   }
 
@@ -131,11 +183,13 @@ public class ModPresenter {
 
   private void onModFileAdd(CategoryTreeItem categoryItem) {
     LOG.entry(categoryItem);
-    if (categoryItem.getValue().equals(CAT_OPINION_MODIFIERS)) {
+    Optional<ContentCategory> category = ContentCategories.getDefault().get(categoryItem.getCategoryId());
+    Optional<CategoryView> view = CategoryViews.getDefault().get(categoryItem.getCategoryId());
+    if (category.isPresent() && view.isPresent()) {
       Optional<String> name = showFileNameDialog();
       if (name.isPresent() && !name.get().isEmpty()) {
-        OpinionModifierFile modFile = addFileToMod(name.get(), this.currentMod.get());
-        addFileToTree(categoryItem, modFile);
+        ModFile modFile = addFileToMod(name.get(), this.currentMod.get(), category.get());
+        addFileToTree(categoryItem, view.get().createTreeItem(modFile));
       }
     }
     LOG.exit();
@@ -144,15 +198,18 @@ public class ModPresenter {
   private void loadTreeFromMod(Mod mod) {
     final TreeItem<Object> root = new TreeItem<>(mod.getName());
 
-    List<ModFile> opinionModifiers = mod.getOpinionModifiers();
-    if (!opinionModifiers.isEmpty()) {
-      CategoryTreeItem opinionModifierRoot = new CategoryTreeItem(CAT_OPINION_MODIFIERS);
-      opinionModifierRoot.setExpanded(true);
-      opinionModifierRoot.getChildren().addAll(opinionModifiers.stream()
-              .map(m -> new OpinionModifierTreeItem((OpinionModifierFile) m))
-              .collect(Collectors.toList())
-      );
-      root.getChildren().add(opinionModifierRoot);
+    for (ContentCategory category : ContentCategories.getDefault().getAll()) {
+      List<ModFile> files = mod.getFiles(category.getId());
+      Optional<CategoryView> view = CategoryViews.getDefault().get(category.getId());
+      if (!files.isEmpty() && view.isPresent()) {
+        CategoryTreeItem categoryRoot = new CategoryTreeItem(view.get().getTitle(), category.getId());
+        categoryRoot.setExpanded(true);
+        categoryRoot.getChildren().addAll(files.stream()
+                .map(view.get()::createTreeItem)
+                .collect(Collectors.toList())
+        );
+        root.getChildren().add(categoryRoot);
+      }
     }
     this.modTreeView.setRoot(root);
     root.setExpanded(true);
@@ -236,20 +293,19 @@ public class ModPresenter {
    return LOG.exit(result);
   }
 
-  private OpinionModifierFile addFileToMod(String name, Mod mod) {
-    LOG.entry(name, mod);
+  private ModFile addFileToMod(String name, Mod mod, ContentCategory category) {
+    LOG.entry(name, mod, category);
     String modPath = mod.getPath().replace("\"", "");
-    String categoryPath = "common" + File.separator + "opinion_modifiers";
     Path path = GamePaths.getModDirectory().getParent()
-            .resolve(modPath).resolve(categoryPath).resolve(name);
-    OpinionModifierFile result = new OpinionModifierFile(path);
-    mod.addOpinionModifier(result);
+            .resolve(modPath).resolve(category.getDirectory()).resolve(name);
+    ModFile result = category.create(path);
+    mod.addFile(category.getId(), result);
     return LOG.exit(result);
   }
 
-  private void addFileToTree(TreeItem<Object> parent, OpinionModifierFile modFile) {
-    LOG.entry(parent, modFile);
-    parent.getChildren().add(new OpinionModifierTreeItem(modFile));
+  private void addFileToTree(TreeItem<Object> parent, ModFileTreeItem fileItem) {
+    LOG.entry(parent, fileItem);
+    parent.getChildren().add(fileItem);
     LOG.exit();
   }
 }
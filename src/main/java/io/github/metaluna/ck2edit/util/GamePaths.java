@@ -62,6 +62,13 @@ public final class GamePaths {
     return GAME_DIR;
   }
 
+  /**
+   * @return the directory where the editor keeps parsed files between runs
+   */
+  public static Path getCacheDirectory() {
+    return Paths.get(System.getProperty("user.home"), ".ck2edit", "cache");
+  }
+
   // ---vvv--- PRIVATE ---vvv---
   private static final Logger LOG;
   private static final Path MOD_DIR;
@@ -0,0 +1,176 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoadingPipelineTest {
+
+  private List<String> bound;
+
+  @Before
+  public void setUp() {
+    bound = new ArrayList<>();
+  }
+
+  @Test
+  public void bindsFilesInSubmissionOrder() throws IOException {
+    List<String> exp = new ArrayList<>();
+    try (LoadingPipeline<Path, String> pipeline = new LoadingPipeline<>(LoadingPipelineTest::slowLoad, bound::add, 4, 8)) {
+      for (int i = 0; i < 100; i++) {
+        pipeline.submit(Paths.get("file_" + i));
+        exp.add("file_" + i);
+      }
+      pipeline.finish();
+    }
+
+    assertThat(bound, is(exp));
+  }
+
+  @Test
+  public void limitsFilesInFlight() throws IOException {
+    AtomicInteger loading = new AtomicInteger();
+    AtomicInteger maxLoaded = new AtomicInteger();
+    int capacity = 3;
+    try (LoadingPipeline<Path, String> pipeline = new LoadingPipeline<>(
+            file -> {
+              maxLoaded.accumulateAndGet(loading.incrementAndGet(), Math::max);
+              return file.toString();
+            },
+            file -> {
+              slowLoad(Paths.get(file));
+              loading.decrementAndGet();
+              bound.add(file);
+            },
+            2, capacity)) {
+      for (int i = 0; i < 20; i++) {
+        pipeline.submit(Paths.get("file_" + i));
+      }
+      pipeline.finish();
+    }
+
+    assertThat(bound, hasSize(20));
+    assertThat(maxLoaded.get(), lessThanOrEqualTo(capacity));
+  }
+
+  @Test
+  public void reportsFailedFilesAfterBindingTheOthers() throws IOException {
+    try (LoadingPipeline<Path, String> pipeline = new LoadingPipeline<>(
+            file -> {
+              if (file.toString().equals("broken")) {
+                throw new IllegalStateException("broken");
+              }
+              return file.toString();
+            },
+            bound::add, 2, 4)) {
+      pipeline.submit(Paths.get("first"));
+      pipeline.submit(Paths.get("broken"));
+      pipeline.submit(Paths.get("last"));
+      try {
+        pipeline.finish();
+        fail("Expected the loader's exception");
+      } catch (IllegalStateException ex) {
+        assertThat(ex.getMessage(), is("broken"));
+      }
+    }
+
+    assertThat(bound, contains("first", "last"));
+  }
+
+  @Test(timeout = 10000)
+  public void reportsErrorsOfLoaderAfterBindingTheOthers() throws IOException {
+    try (LoadingPipeline<Path, String> pipeline = new LoadingPipeline<>(
+            file -> {
+              if (file.toString().equals("nested")) {
+                throw new StackOverflowError();
+              }
+              return file.toString();
+            },
+            bound::add, 1, 1)) {
+      pipeline.submit(Paths.get("first"));
+      pipeline.submit(Paths.get("nested"));
+      pipeline.submit(Paths.get("last"));
+      try {
+        pipeline.finish();
+        fail("Expected the loader's error");
+      } catch (StackOverflowError ex) {
+        // expected
+      }
+    }
+
+    assertThat(bound, contains("first", "last"));
+  }
+
+  @Test(timeout = 10000)
+  public void wakesUpSubmitWhenStopped() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    try (LoadingPipeline<Path, String> pipeline = new LoadingPipeline<>(
+            file -> {
+              loading.countDown();
+              try {
+                Thread.sleep(Long.MAX_VALUE);
+              } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+              }
+              return file.toString();
+            },
+            bound::add, 1, 1)) {
+      pipeline.submit(Paths.get("first"));
+      loading.await();
+      new Thread(pipeline::close).start();
+      try {
+        pipeline.submit(Paths.get("second"));
+        fail("Expected the stopped pipeline to refuse the file");
+      } catch (IllegalStateException ex) {
+        assertThat(ex.getMessage(), is("Pipeline has stopped"));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void doesNotCreateWithoutWorkers() {
+    new LoadingPipeline<Path, String>(Path::toString, bound::add, 0, 1);
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static String slowLoad(Path file) {
+    try {
+      Thread.sleep(file.toString().hashCode() & 3);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    return file.toString();
+  }
+
+}
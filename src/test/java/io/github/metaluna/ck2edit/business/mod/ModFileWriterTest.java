@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod;
+
+import io.github.metaluna.ck2edit.support.FileTestHelpers;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ModFileWriterTest {
+
+  @Before
+  public void setUp() throws IOException {
+    FileTestHelpers.setUpTestDirectory();
+  }
+
+  @After
+  public void tearDown() {
+    FileTestHelpers.tearDownTestDirectory();
+  }
+
+  @Test
+  public void printsWholeFileIfRangesAreNotSupported() {
+    Path file = FileTestHelpers.generateFileName("file_writer", "txt");
+    ModFileWriter writer = new ModFileWriter(file) {
+
+      @Override
+      protected int getEntryCount() {
+        return 2;
+      }
+
+      @Override
+      protected void print() throws IOException {
+        pair("first", "1");
+        pair("second", "2");
+      }
+
+      @Override
+      protected void validate() {
+      }
+    };
+    writer.setChunkingThreshold(1);
+
+    writer.write();
+
+    assertThat(FileTestHelpers.readAsString(file), is("first = 1\r\nsecond = 2\r\n"));
+  }
+
+}
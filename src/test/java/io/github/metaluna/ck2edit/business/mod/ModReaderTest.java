@@ -24,21 +24,34 @@
 package io.github.metaluna.ck2edit.business.mod;
 
 import io.github.metaluna.ck2edit.business.mod.opinionmodifier.OpinionModifierFile;
-import io.github.metaluna.ck2edit.business.mod.opinionmodifier.OpinionModifierManager;
-import io.github.metaluna.ck2edit.dataaccess.parser.Parser;
+import io.github.metaluna.ck2edit.business.mod.opinionmodifier.OpinionModifierCategory;
+import io.github.metaluna.ck2edit.dataaccess.parser.Diagnostic;
 import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
 import io.github.metaluna.ck2edit.support.FileTestHelpers;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 public class ModReaderTest {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   private ModReader modReader;
 
   @Before
@@ -72,15 +85,157 @@ public class ModReaderTest {
     assertThat(files.get(0).getName(), is("demo_opinion_modifiers.txt"));
   }
 
+  @Test
+  public void readsOpinionModifiersFromArchive() throws IOException {
+    Path descriptionFile = createArchivedMod();
+    ParserFactory factory = new ParserFactory(ParserFactory.Mode.MAPPED);
+    modReader = new ModReader(descriptionFile, factory.fromFile(descriptionFile), factory);
+
+    Mod mod = modReader.read();
+
+    List<ModFile> files = mod.getOpinionModifiers();
+    assertThat(files, hasSize(1));
+    assertThat(files.get(0).getName(), is("archived_opinion_modifiers.txt"));
+    OpinionModifierFile omFile = (OpinionModifierFile) files.get(0);
+    assertThat(omFile.getOpinionModifiers().get(0).getName(), is("opinion_archived"));
+    assertThat(omFile.getOpinionModifiers().get(0).getOpinion(), is(5));
+    assertThat(omFile.getPath().getFileSystem().isOpen(), is(false));
+  }
+
+  @Test
+  public void keepsArchiveOfOpenedModOpenUntilClosed() throws IOException {
+    Path descriptionFile = createArchivedMod();
+    ParserFactory factory = new ParserFactory();
+    OpenArchives archives = new OpenArchives();
+    ModReader first = new ModReader(descriptionFile, factory.fromFile(descriptionFile), factory,
+            ContentCategories.getDefault(), 1, new ListingCache(), archives);
+    ModReader second = new ModReader(descriptionFile, factory.fromFile(descriptionFile), factory,
+            ContentCategories.getDefault(), 1, new ListingCache(), archives);
+
+    Mod mod = first.open();
+    OpinionModifierFile omFile = (OpinionModifierFile) mod.getOpinionModifiers().get(0);
+    FileSystem zip = omFile.getPath().getFileSystem();
+
+    assertThat(omFile.getOpinionModifiers().get(0).getOpinion(), is(5));
+    assertThat(second.open().getOpinionModifiers().get(0).getPath().getFileSystem(), is(sameInstance(zip)));
+    archives.close(ModReader.archiveOf(mod).get());
+    assertThat(zip.isOpen(), is(false));
+  }
+
+  @Test
+  public void collectsProblemsOfBrokenFiles() throws IOException {
+    Path modDir = folder.newFolder("mod").toPath();
+    Path descriptionFile = modDir.resolve("broken.mod");
+    Files.write(descriptionFile, "name = \"Broken Mod\"\npath = \"mod/broken\"\n".getBytes(StandardCharsets.US_ASCII));
+    Path opinionModifiers = Files.createDirectories(modDir.resolve("broken").resolve("common").resolve("opinion_modifiers"));
+    Files.write(opinionModifiers.resolve("a_broken.txt"),
+            "opinion_bad = {\n  opinion = lots\n}\nopinion_good = {\n  opinion = 5\n}\n".getBytes(StandardCharsets.US_ASCII));
+    Files.write(opinionModifiers.resolve("b_fine.txt"), "opinion_fine = { opinion = 1 }\n".getBytes(StandardCharsets.US_ASCII));
+    ParserFactory factory = new ParserFactory();
+    modReader = new ModReader(descriptionFile, factory.fromFile(descriptionFile), factory);
+
+    LoadResult<Mod> result = modReader.load();
+
+    assertThat(result.getValue().getOpinionModifiers(), hasSize(2));
+    assertThat(result.getDiagnostics(), hasSize(1));
+    Diagnostic problem = result.getDiagnostics().get(0);
+    assertThat(problem.getFile().getFileName().toString(), is("a_broken.txt"));
+    assertThat(problem.getLine(), is(1));
+    assertThat(problem.getMessage(), containsString("opinion_bad"));
+  }
+
+  @Test
+  public void skipsFilesThatCannotBeRead() {
+    Path path = FileTestHelpers.fetchFile("reader", "mod", "demo.mod");
+    ContentCategory category = mockCategory();
+    when(category.read(any(), any(), any())).thenThrow(new IllegalStateException("broken"));
+    modReader = createReader(path, category);
+
+    LoadResult<Mod> result = modReader.load();
+
+    assertThat(result.getValue().getOpinionModifiers(), empty());
+    assertThat(result.hasProblems(), is(true));
+    assertThat(result.getDiagnostics().get(0).getMessage(), containsString("broken"));
+  }
+
+  @Test
+  public void dispatchesFilesToTheirCategories() throws IOException {
+    Path modDir = folder.newFolder("mod").toPath();
+    Path descriptionFile = modDir.resolve("two.mod");
+    Files.write(descriptionFile, "name = \"Two\"\npath = \"mod/two\"\n".getBytes(StandardCharsets.US_ASCII));
+    Path common = modDir.resolve("two").resolve("common");
+    Files.createFile(Files.createDirectories(common.resolve("opinion_modifiers")).resolve("a.txt"));
+    Files.createFile(Files.createDirectories(common.resolve("traits")).resolve("b.txt"));
+    ContentCategory opinionModifiers = mockCategory();
+    when(opinionModifiers.read(any(), any(), any())).thenReturn(new OpinionModifierFile(Paths.get("a.txt")));
+    ContentCategory traits = mock(ContentCategory.class);
+    when(traits.getId()).thenReturn("traits");
+    when(traits.getDirectory()).thenReturn("common/traits");
+    when(traits.read(any(), any(), any())).thenReturn(new OpinionModifierFile(Paths.get("b.txt")));
+    ParserFactory factory = new ParserFactory();
+    modReader = new ModReader(descriptionFile, factory.fromFile(descriptionFile), factory,
+            new ContentCategories(Arrays.asList(opinionModifiers, traits)), 2, new ListingCache(), new OpenArchives());
+
+    Mod mod = modReader.read();
+
+    assertThat(mod.getOpinionModifiers(), hasSize(1));
+    assertThat(mod.getOpinionModifiers().get(0).getName(), is("a.txt"));
+    assertThat(mod.getFiles("traits"), hasSize(1));
+    assertThat(mod.getFiles("traits").get(0).getName(), is("b.txt"));
+  }
+
+  @Test
+  public void opensFilesWithoutReadingThem() throws IOException {
+    Path modDir = folder.newFolder("mod").toPath();
+    Path descriptionFile = modDir.resolve("lazy.mod");
+    Files.write(descriptionFile, "name = \"Lazy\"\npath = \"mod/lazy\"\n".getBytes(StandardCharsets.US_ASCII));
+    Path opinionModifiers = Files.createDirectories(modDir.resolve("lazy").resolve("common").resolve("opinion_modifiers"));
+    Files.write(opinionModifiers.resolve("lazy.txt"), "opinion_lazy = { opinion = 3 }\n".getBytes(StandardCharsets.US_ASCII));
+    ParserFactory factory = new ParserFactory();
+    modReader = new ModReader(descriptionFile, factory.fromFile(descriptionFile), factory);
+
+    Mod mod = modReader.open();
+
+    assertThat(mod.getName(), is("\"Lazy\""));
+    assertThat(mod.getOpinionModifiers(), hasSize(1));
+    OpinionModifierFile omFile = (OpinionModifierFile) mod.getOpinionModifiers().get(0);
+    assertThat(omFile.isLoaded(), is(false));
+    assertThat(omFile.getOpinionModifiers().get(0).getOpinion(), is(3));
+    assertThat(omFile.isLoaded(), is(true));
+  }
+
   // ---vvv--- PRIVATE ---vvv---
+  private Path createArchivedMod() throws IOException {
+    Path modDir = folder.newFolder("mod").toPath();
+    Path descriptionFile = modDir.resolve("archived.mod");
+    Files.write(descriptionFile, "name = \"Archived Mod\"\narchive = \"mod/archived.zip\"\n".getBytes(StandardCharsets.US_ASCII));
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(modDir.resolve("archived.zip")))) {
+      zip.putNextEntry(new ZipEntry("common/opinion_modifiers/archived_opinion_modifiers.txt"));
+      zip.write("opinion_archived = {\n  opinion = 5\n}\n".getBytes(StandardCharsets.US_ASCII));
+      zip.closeEntry();
+    }
+    return descriptionFile;
+  }
+
   private ModReader parse(String file) {
     Path path = FileTestHelpers.fetchFile("reader" , "mod", file);
-    Parser parser = new ParserFactory().fromFile(path);
-    OpinionModifierManager omManager = mock(OpinionModifierManager.class);
+    ContentCategory category = mockCategory();
     OpinionModifierFile omFile = new OpinionModifierFile(Paths.get("demo_opinion_modifiers.txt"));
-    when(omManager.fromFile(any())).thenReturn(omFile);    
-    return new ModReader(path, parser, omManager);
+    when(category.read(any(), any(), any())).thenReturn(omFile);
+    return createReader(path, category);
+  }
+
+  private ContentCategory mockCategory() {
+    ContentCategory category = mock(ContentCategory.class);
+    when(category.getId()).thenReturn(OpinionModifierCategory.ID);
+    when(category.getDirectory()).thenReturn("common/opinion_modifiers");
+    return category;
   }
 
+  private ModReader createReader(Path path, ContentCategory category) {
+    ParserFactory factory = new ParserFactory();
+    return new ModReader(path, factory.fromFile(path), factory,
+            new ContentCategories(Collections.singletonList(category)), 2, new ListingCache(), new OpenArchives());
+  }
 
 }
@@ -0,0 +1,135 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.business.mod;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+public class ScanPlannerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path root;
+  private Path contentDir;
+  private ScanPlanner planner;
+  private ListingCache cache;
+  private List<String> found;
+
+  @Before
+  public void setUp() throws IOException {
+    root = folder.newFolder("mod").toPath();
+    contentDir = Files.createDirectories(root.resolve("common").resolve("opinion_modifiers"));
+    Files.createFile(contentDir.resolve("a.txt"));
+    Files.createFile(Files.createDirectories(root.resolve("common").resolve("traits")).resolve("b.txt"));
+    Files.createFile(Files.createDirectories(root.resolve("gfx").resolve("opinion_modifiers")).resolve("c.dds"));
+    Files.createFile(Files.createDirectories(contentDir.resolve("nested")).resolve("d.txt"));
+    planner = new ScanPlanner(Collections.singleton("common/opinion_modifiers"));
+    cache = new ListingCache();
+    found = new ArrayList<>();
+  }
+
+  @Test
+  public void visitsOnlyFilesOfContentDirectories() throws IOException {
+    scan();
+
+    assertThat(found, contains("a.txt common/opinion_modifiers"));
+  }
+
+  @Test
+  public void reusesListingOfUnchangedDirectory() throws IOException {
+    scan();
+    FileTime modified = Files.getLastModifiedTime(contentDir);
+    Files.delete(contentDir.resolve("a.txt"));
+    Files.setLastModifiedTime(contentDir, modified);
+    found.clear();
+
+    scan();
+
+    assertThat(found, contains("a.txt common/opinion_modifiers"));
+  }
+
+  @Test
+  public void listsChangedDirectoryAgain() throws IOException {
+    scan();
+    FileTime modified = Files.getLastModifiedTime(contentDir);
+    Files.createFile(contentDir.resolve("e.txt"));
+    Files.setLastModifiedTime(contentDir, FileTime.fromMillis(modified.toMillis() + 10000));
+    found.clear();
+
+    scan();
+
+    assertThat(found, containsInAnyOrder("a.txt common/opinion_modifiers", "e.txt common/opinion_modifiers"));
+  }
+
+  @Test
+  public void ignoresTrailingSeparatorsOfDirectoryNames() {
+    // the zip file system of Java 8 names directories like "common/"
+    Path zipRoot = Mockito.mock(Path.class);
+    Path zipDir = Mockito.mock(Path.class);
+    Path relative = Mockito.mock(Path.class);
+    Mockito.when(zipRoot.relativize(zipDir)).thenReturn(relative);
+    List<Path> names = Arrays.asList(name("common/"), name("opinion_modifiers/"));
+    Mockito.when(relative.iterator()).thenReturn(names.iterator());
+
+    assertThat(ScanPlanner.keyOf(zipRoot, zipDir), is("common/opinion_modifiers"));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private Path name(String name) {
+    Path result = Mockito.mock(Path.class);
+    Mockito.when(result.toString()).thenReturn(name);
+    Mockito.when(result.getFileSystem()).thenReturn(FileSystems.getDefault());
+    return result;
+  }
+
+  private void scan() throws IOException {
+    planner.scan(root, cache, new ScanPlanner.ContentVisitor() {
+      @Override
+      public void visitFile(Path file, String contentDirectory) {
+        found.add(file.getFileName() + " " + contentDirectory);
+      }
+
+      @Override
+      public void visitFileFailed(Path file, IOException ex) {
+        fail("Unexpected failure: " + ex);
+      }
+    });
+  }
+
+}
@@ -24,9 +24,14 @@
 
 package io.github.metaluna.ck2edit.business.mod.opinionmodifier;
 
+import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
 import static org.hamcrest.Matchers.*;
@@ -97,4 +102,69 @@ public class OpinionModifierFileTest {
     assertThat(opinionModifierFile.getOpinionModifiers(), hasSize(1));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void readsLazyFileOnFirstAccess() {
+    AtomicInteger reads = new AtomicInteger();
+    opinionModifierFile = OpinionModifierFile.lazy(path, p -> {
+      reads.incrementAndGet();
+      OpinionModifierFile loaded = new OpinionModifierFile(p);
+      loaded.add(new OpinionModifier("lazy_modifier"));
+      return loaded;
+    });
+    assertThat(opinionModifierFile.isLoaded(), is(false));
+    assertThat(reads.get(), is(0));
+
+    List<OpinionModifier> got = opinionModifierFile.getOpinionModifiers();
+
+    assertThat(got, hasSize(1));
+    assertThat(got.get(0).getName(), is("lazy_modifier"));
+    assertThat(opinionModifierFile.isLoaded(), is(true));
+    opinionModifierFile.getOpinionModifiers();
+    assertThat(reads.get(), is(1));
+  }
+
+  @Test
+  public void readsLazyFileAgainAfterFailure() {
+    AtomicInteger reads = new AtomicInteger();
+    opinionModifierFile = OpinionModifierFile.lazy(path, p -> {
+      if (reads.incrementAndGet() == 1) {
+        throw new IllegalStateException("broken");
+      }
+      return new OpinionModifierFile(p);
+    });
+    try {
+      opinionModifierFile.load();
+      fail("Expected the reader's exception");
+    } catch (IllegalStateException ex) {
+      assertThat(opinionModifierFile.isLoaded(), is(false));
+    }
+
+    opinionModifierFile.load();
+
+    assertThat(opinionModifierFile.isLoaded(), is(true));
+    assertThat(reads.get(), is(2));
+  }
+
+  @Test
+  public void keepsOpenedFileUnloadedIfItCannotBeRead() throws IOException {
+    // a directory exists but cannot be read as a file
+    Files.delete(path);
+    Files.createDirectory(path);
+    opinionModifierFile = new OpinionModifierCategory().open(path, new ParserFactory());
+    try {
+      opinionModifierFile.getOpinionModifiers();
+      fail("Expected the read to fail");
+    } catch (UncheckedIOException ex) {
+      assertThat(opinionModifierFile.isLoaded(), is(false));
+    }
+    Files.delete(path);
+    Files.write(path, "restored = { opinion = 5 }\r\n".getBytes(StandardCharsets.US_ASCII));
+
+    List<OpinionModifier> got = opinionModifierFile.getOpinionModifiers();
+
+    assertThat(got, hasSize(1));
+    assertThat(got.get(0).getName(), is("restored"));
+    assertThat(opinionModifierFile.isLoaded(), is(true));
+  }
+
+}
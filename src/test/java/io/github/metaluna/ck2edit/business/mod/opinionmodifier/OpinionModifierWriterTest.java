@@ -23,8 +23,11 @@
  */
 package io.github.metaluna.ck2edit.business.mod.opinionmodifier;
 
+import io.github.metaluna.ck2edit.dataaccess.parser.ParserFactory;
 import io.github.metaluna.ck2edit.support.FileTestHelpers;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import org.junit.Before;
 import org.junit.Test;
@@ -34,6 +37,7 @@ import static org.junit.Assert.*;
 
 public class OpinionModifierWriterTest {
 
+  private final ParserFactory parserFactory = new ParserFactory();
   private OpinionModifierWriter opinionModifierWriter;
   private OpinionModifier opinionModifier;
 
@@ -50,13 +54,13 @@ public class OpinionModifierWriterTest {
 
   @Test(expected = NullPointerException.class)
   public void doesNotCreateWithoutFile() {
-    opinionModifierWriter = new OpinionModifierWriter(null);
+    opinionModifierWriter = new OpinionModifierWriter(null, parserFactory);
   }
 
   @Test
   public void createsCompleteOpinionModifierFile() {
     OpinionModifierFile file = createOpinionModifierFile(createOpinionModifier("test_modifier"));
-    opinionModifierWriter = new OpinionModifierWriter(file);
+    opinionModifierWriter = new OpinionModifierWriter(file, parserFactory);
 
     opinionModifierWriter.write();
 
@@ -71,7 +75,7 @@ public class OpinionModifierWriterTest {
   @Test(expected = IllegalStateException.class)
   public void doesNotSaveFileWithoutAnyOpinionModifiers() {
     OpinionModifierFile file = new OpinionModifierFile(generateFileName());
-    opinionModifierWriter = new OpinionModifierWriter(file);
+    opinionModifierWriter = new OpinionModifierWriter(file, parserFactory);
     opinionModifierWriter.write();
   }
 
@@ -82,7 +86,7 @@ public class OpinionModifierWriterTest {
     opinionModifier = new OpinionModifier(expName);
     opinionModifier.setOpinion(expOpinion);
     OpinionModifierFile file = createOpinionModifierFile(opinionModifier);
-    opinionModifierWriter = new OpinionModifierWriter(file);
+    opinionModifierWriter = new OpinionModifierWriter(file, parserFactory);
     
     opinionModifierWriter.write();
     
@@ -104,7 +108,94 @@ public class OpinionModifierWriterTest {
     assertThat(got, not(containsString("enemy")));
   }
 
+  @Test
+  public void writesModifiersOneAfterAnother() {
+    OpinionModifierFile file = createOpinionModifierFile(createOpinionModifier("test_modifier"));
+    file.add(createOpinionModifier("other_modifier"));
+    opinionModifierWriter = new OpinionModifierWriter(file, parserFactory);
+
+    opinionModifierWriter.write();
+
+    Path expFile = FileTestHelpers.fetchFile("reader", "opinionmodifier", "single_opinion_modifier.txt");
+    String exp = FileTestHelpers.readAsString(expFile);
+    String got = FileTestHelpers.readAsString(file.getPath());
+    assertThat(got, is(exp + exp.replace("test_modifier", "other_modifier")));
+  }
+
+  @Test
+  public void writesManyModifiersInOrder() {
+    OpinionModifierFile file = new OpinionModifierFile(generateFileName());
+    Path expFile = FileTestHelpers.fetchFile("reader", "opinionmodifier", "single_opinion_modifier.txt");
+    String single = FileTestHelpers.readAsString(expFile);
+    StringBuilder exp = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      file.add(createOpinionModifier("modifier_" + i));
+      exp.append(single.replace("test_modifier", "modifier_" + i));
+    }
+    opinionModifierWriter = new OpinionModifierWriter(file, parserFactory);
+    opinionModifierWriter.setChunkingThreshold(CHUNKING_THRESHOLD);
+
+    opinionModifierWriter.write();
+
+    String got = FileTestHelpers.readAsString(file.getPath());
+    assertThat(got, is(exp.toString()));
+  }
+
+  @Test
+  public void keepsCommentsOfExistingFile() throws IOException {
+    OpinionModifierFile file = createOpinionModifierFile(createOpinionModifier("test_modifier"));
+    new OpinionModifierWriter(file, parserFactory).write();
+    String written = FileTestHelpers.readAsString(file.getPath());
+    Files.write(file.getPath(), ("# keep me\r\n" + written).getBytes("Windows-1252"));
+    opinionModifier = file.getOpinionModifiers().get(0);
+    opinionModifier.setOpinion(7);
+
+    new OpinionModifierWriter(file, parserFactory).write();
+
+    String got = FileTestHelpers.readAsString(file.getPath());
+    assertThat(got, is("# keep me\r\n" + written.replace("opinion = 42", "opinion = 7")));
+  }
+
+  @Test
+  public void mergesManyModifiersIntoExistingFile() throws IOException {
+    OpinionModifierFile file = new OpinionModifierFile(generateFileName());
+    for (int i = 0; i < 300; i++) {
+      file.add(createOpinionModifier("modifier_" + i));
+    }
+    new OpinionModifierWriter(file, parserFactory).write();
+    String written = FileTestHelpers.readAsString(file.getPath());
+    Files.write(file.getPath(), ("# keep me\r\n" + written).getBytes("Windows-1252"));
+    file.getOpinionModifiers().get(150).setOpinion(7);
+    opinionModifierWriter = new OpinionModifierWriter(file, parserFactory);
+    opinionModifierWriter.setChunkingThreshold(CHUNKING_THRESHOLD);
+
+    opinionModifierWriter.write();
+
+    String got = FileTestHelpers.readAsString(file.getPath());
+    String changed = "modifier_150 = { \r\n\topinion = 7";
+    assertThat(got, is("# keep me\r\n" + written.replace(changed.replace("7", "42"), changed)));
+  }
+
+  @Test
+  public void keepsEncodingOfExistingFile() throws IOException {
+    OpinionModifierFile file = createOpinionModifierFile(createOpinionModifier("test_modifier"));
+    new OpinionModifierWriter(file, parserFactory).write();
+    String written = FileTestHelpers.readAsString(file.getPath());
+    byte[] utf8 = ("\ufeff# G\u00fcnther \u4e2d\r\n" + written).getBytes(StandardCharsets.UTF_8);
+    Files.write(file.getPath(), utf8);
+    opinionModifier = file.getOpinionModifiers().get(0);
+    opinionModifier.setOpinion(7);
+
+    new OpinionModifierWriter(file, parserFactory).write();
+
+    String got = new String(Files.readAllBytes(file.getPath()), StandardCharsets.UTF_8);
+    assertThat(got, is("\ufeff# G\u00fcnther \u4e2d\r\n" + written.replace("opinion = 42", "opinion = 7")));
+  }
+
   // ---vvv--- PRIVATE ---vvv---
+  /** Low enough for the tests to be printed in several chunks. */
+  private static final int CHUNKING_THRESHOLD = 64;
+
   private Path generateFileName() {
     return FileTestHelpers.generateFileName("opinion_writer", "txt");
   }
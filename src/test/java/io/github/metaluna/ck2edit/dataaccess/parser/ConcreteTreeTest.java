@@ -0,0 +1,250 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ConcreteTreeTest {
+
+  @Before
+  public void setUp() {
+    tree = ConcreteTree.parse(INPUT);
+  }
+
+  @Test
+  public void writesUnchangedTextAsItWas() {
+    assertThat(tree.isModified(), is(false));
+    assertThat(tree.toString(), is(INPUT));
+  }
+
+  @Test
+  public void keepsQuotesOfNames() {
+    ConcreteNode name = modifier().getChildren().get(2).getChildren().get(0);
+    assertThat(name.getName(), is("\"Some name\""));
+  }
+
+  @Test
+  public void replacesOnlyChangedValue() {
+    modifier().getChildren().get(0).getChildren().get(0).setName("25");
+
+    assertThat(tree.isModified(), is(true));
+    assertThat(tree.toString(), is(INPUT.replace("opinion = 10", "opinion = 25")));
+  }
+
+  @Test
+  public void removesWholeLineOfChild() {
+    ConcreteNode modifier = modifier();
+    modifier.removeChild(modifier.getChildren().get(1));
+
+    assertThat(tree.toString(), is(INPUT.replace("\tmonths = 12 # a year\r\n", "")));
+  }
+
+  @Test
+  public void removesListValue() {
+    ConcreteNode list = modifier().getChildren().get(3);
+    list.removeChild(list.getChildren().get(0));
+
+    assertThat(tree.toString(), is(INPUT.replace("{ a b }", "{ b }")));
+  }
+
+  @Test
+  public void addsChildBeforeClosingBrace() {
+    modifier().addChild(Node.create("crime").addChild("yes"));
+
+    assertThat(tree.toString(), is(INPUT.replace("}\r\n# trailing", "\tcrime = yes\r\n}\r\n# trailing")));
+  }
+
+  @Test
+  public void addsValueToList() {
+    modifier().getChildren().get(3).addChild(Node.create("c"));
+
+    assertThat(tree.toString(), is(INPUT.replace("{ a b }", "{ a b c }")));
+  }
+
+  @Test
+  public void addsTopLevelNodeAtTheEnd() {
+    tree.getRoot().addChild(Node.create("other").addChild("x"));
+
+    assertThat(tree.toString(), is(INPUT + "other = x\r\n"));
+  }
+
+  @Test
+  public void updatesOnlyDifferencesToNodes() {
+    Node modifier = Node.create("modifier")
+            .addPair("opinion", "10")
+            .addPair("name", "\"Other name\"")
+            .addList("tags", Arrays.asList("a", "b"))
+            .addPair("crime", "yes");
+    Node desired = Node.createRoot().addChild(modifier);
+
+    tree.update(desired);
+
+    String expected = INPUT.replace("\tmonths = 12 # a year\r\n", "")
+            .replace("Some name", "Other name")
+            .replace("}\r\n# trailing", "\tcrime = yes\r\n}\r\n# trailing");
+    assertThat(tree.toString(), is(expected));
+  }
+
+  @Test
+  public void doesNotModifyWhenUpdatingWithSameNodes() {
+    tree.update(tree.getRoot().toNode());
+
+    assertThat(tree.isModified(), is(false));
+  }
+
+  @Test
+  public void replacesValueByBlock() {
+    tree.update(Node.createRoot().addChild(Node.create("modifier").addChild(Node.create("opinion").addPair("value", "1"))
+            .addPair("months", "12")
+            .addPair("name", "\"Some name\"")
+            .addList("tags", Arrays.asList("a", "b"))));
+
+    assertThat(tree.toString(), is(INPUT.replace("opinion = 10", "opinion = { \r\n\t\tvalue = 1\r\n\t}")));
+  }
+
+  @Test
+  public void printsReorderedListAgain() {
+    tree.update(Node.createRoot().addChild(Node.create("modifier")
+            .addPair("opinion", "10")
+            .addPair("months", "12")
+            .addPair("name", "\"Some name\"")
+            .addList("tags", Arrays.asList("b", "a"))));
+
+    assertThat(tree.toString(), is(INPUT.replace("{ a b }", "{ b a }")));
+  }
+
+  @Test
+  public void printsBlockWithReorderedChildrenAgain() {
+    tree.update(Node.createRoot().addChild(Node.create("modifier")
+            .addPair("months", "12")
+            .addPair("opinion", "10")
+            .addPair("name", "\"Some name\"")
+            .addList("tags", Arrays.asList("a", "b"))));
+
+    assertThat(tree.toString(), is("# header comment\r\n"
+            + "modifier = { \r\n"
+            + "\tmonths = 12\r\n"
+            + "\topinion = 10\r\n"
+            + "\tname = \"Some name\"\r\n"
+            + "\ttags = { a b }\r\n"
+            + "}\r\n"
+            + "# trailing\r\n"));
+  }
+
+  @Test
+  public void printsBlockAgainIfChildIsAddedBeforeExistingOnes() {
+    tree = ConcreteTree.parse("list = { a c }\n");
+
+    tree.update(Node.createRoot().addList("list", Arrays.asList("a", "b", "c")));
+
+    assertThat(tree.toString(), is("list = { a b c }\n"));
+  }
+
+  @Test
+  public void printsWholeTextAgainIfTopLevelNodesAreReordered() {
+    tree = ConcreteTree.parse("# comment\r\na = 1\r\nb = 2\r\n");
+
+    tree.update(Node.createRoot().addPair("b", "2").addPair("a", "1"));
+
+    assertThat(tree.toString(), is("b = 2\r\na = 1\r\n"));
+  }
+
+  @Test
+  public void replacementSupersedesChangesInsideIt() {
+    modifier().getChildren().get(0).getChildren().get(0).setName("25");
+    modifier().getChildren().get(3).addChild(Node.create("c"));
+
+    modifier().replaceWith(Node.create("modifier").addPair("opinion", "30"));
+
+    assertThat(tree.toString(), is("# header comment\r\nmodifier = { \r\n\topinion = 30\r\n}\r\n# trailing\r\n"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rejectsChangeInsideReplacement() {
+    modifier().replaceWith(Node.create("modifier").addPair("opinion", "30"));
+
+    modifier().getChildren().get(0).getChildren().get(0).setName("25");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rejectsPartlyOverlappingChange() {
+    int months = INPUT.indexOf("12");
+    modifier().getChildren().get(1).getChildren().get(0).setName("6");
+
+    tree.patch(months + 1, months + 5, "");
+  }
+
+  @Test
+  public void updatesManyTopLevelNodesInOrder() {
+    StringBuilder source = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    Node desired = Node.createRoot();
+    for (int i = 0; i < 3000; i++) {
+      source.append("modifier_").append(i).append(" = {\r\n\topinion = 10 # keep\r\n}\r\n");
+      String opinion = i % 3 == 0 ? String.valueOf(i) : "10";
+      expected.append("modifier_").append(i).append(" = {\r\n\topinion = ").append(opinion).append(" # keep\r\n");
+      Node modifier = Node.create("modifier_" + i).addPair("opinion", opinion);
+      if (i % 5 == 0) {
+        modifier.addPair("months", "12");
+        expected.append("\tmonths = 12\r\n");
+      }
+      expected.append("}\r\n");
+      desired.addChild(modifier);
+    }
+    tree = ConcreteTree.parse(source.toString());
+
+    tree.update(desired);
+
+    assertThat(tree.toString(), is(expected.toString()));
+  }
+
+  @Test
+  public void keepsLineBreaksOfSource() {
+    tree = ConcreteTree.parse("a = {\n\tb = c\n}\n");
+    tree.getRoot().getChildren().get(0).addChild(Node.create("d").addChild("e"));
+
+    assertThat(tree.toString(), is("a = {\n\tb = c\n\td = e\n}\n"));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final String INPUT = "# header comment\r\n"
+          + "modifier = {\r\n"
+          + "\topinion = 10\r\n"
+          + "\tmonths = 12 # a year\r\n"
+          + "\tname = \"Some name\"\r\n"
+          + "\ttags = { a b }\r\n"
+          + "}\r\n"
+          + "# trailing\r\n";
+
+  private ConcreteTree tree;
+
+  private ConcreteNode modifier() {
+    return tree.getRoot().getChildren().get(0);
+  }
+
+}
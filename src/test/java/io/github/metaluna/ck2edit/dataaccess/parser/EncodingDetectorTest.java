@@ -0,0 +1,91 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class EncodingDetectorTest {
+
+  @Test
+  public void detectsByteOrderMark() {
+    assertThat(detect("\ufeffname = value".getBytes(StandardCharsets.UTF_8)), is(TextEncoding.UTF_8_BOM));
+  }
+
+  @Test
+  public void detectsUtf8WithoutByteOrderMark() {
+    assertThat(detect("name = \"M\u00fcnchen \u20ac \ud83d\ude00\"".getBytes(StandardCharsets.UTF_8)), is(TextEncoding.UTF_8));
+  }
+
+  @Test
+  public void takesWindows1252ForInvalidUtf8() {
+    assertThat(detect("name = \"M\u00fcnchen \u20ac\"".getBytes(WINDOWS_1252)), is(TextEncoding.WINDOWS_1252));
+  }
+
+  @Test
+  public void takesWindows1252ForAscii() {
+    assertThat(detect("a_rather_long_name = { value }".getBytes(StandardCharsets.US_ASCII)), is(TextEncoding.WINDOWS_1252));
+  }
+
+  @Test
+  public void detectsStreamFromSampleAndResetsIt() throws IOException {
+    byte[] ascii = new byte[100_000];
+    Arrays.fill(ascii, (byte) 'a');
+    // a multi-byte sequence cut in half by the end of the sample
+    ascii[64 * 1024 - 1] = (byte) 0xc3;
+    ascii[64 * 1024] = (byte) 0xbc;
+    ascii[10] = (byte) 0xc3;
+    ascii[11] = (byte) 0xbc;
+    InputStream input = new BufferedInputStream(new ByteArrayInputStream(ascii));
+
+    assertThat(EncodingDetector.detect(input), is(TextEncoding.UTF_8));
+    assertThat(input.read(), is((int) 'a'));
+  }
+
+  @Test
+  public void decodesWindows1252LikeTheCharset() {
+    byte[] all = new byte[256];
+    for (int i = 0; i < all.length; i++) {
+      all[i] = (byte) i;
+    }
+    assertThat(Windows1252.decode(all, 0, all.length), is(new String(all, WINDOWS_1252)));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Charset WINDOWS_1252 = Charset.forName("Windows-1252");
+
+  private static TextEncoding detect(byte[] input) {
+    return EncodingDetector.detect(ByteBuffer.wrap(input), 0, input.length);
+  }
+
+}
@@ -0,0 +1,134 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class IncrementalParserTest {
+
+  @Before
+  public void setUp() {
+    parser = new IncrementalParser(INPUT);
+  }
+
+  @Test
+  public void parsesInitialText() throws IOException {
+    assertThat(parser.getRoot().getChildren(), hasSize(4));
+    assertParsedLikeWholeText();
+  }
+
+  @Test
+  public void reparsesOnlyEditedBlock() throws IOException {
+    Node first = parser.getRoot().getChildren().get(0);
+    Node last = parser.getRoot().getChildren().get(3);
+
+    int offset = INPUT.indexOf("10");
+    parser.edit(offset, 2, "25");
+
+    assertThat(parser.getRoot().getChildren().get(0), sameInstance(first));
+    assertThat(parser.getRoot().getChildren().get(3), sameInstance(last));
+    assertThat(parser.getRoot().getChildren().get(1).getChild("opinion").get().getChildren().get(0).getName(), is("25"));
+    assertParsedLikeWholeText();
+  }
+
+  @Test
+  public void insertsNewStatement() throws IOException {
+    parser.edit(INPUT.indexOf("b = {"), 0, "new = { x = y }\n");
+
+    assertThat(parser.getRoot().getChildren(), hasSize(5));
+    assertThat(parser.getRoot().getChildren().get(1).getName(), is("new"));
+    assertParsedLikeWholeText();
+  }
+
+  @Test
+  public void joinsStatementsWhenSeparatorIsDeleted() throws IOException {
+    int offset = INPUT.indexOf("single");
+    parser.edit(offset - 1, 1, "");
+
+    assertParsedLikeWholeText();
+  }
+
+  @Test
+  public void reparsesFollowingStatementsWhenBlockIsOpened() throws IOException {
+    int offset = INPUT.indexOf("}\nb = {");
+    parser.edit(offset, 1, "");
+
+    assertThat(parser.getRoot().getChildren(), hasSize(1));
+    assertParsedLikeWholeText();
+  }
+
+  @Test
+  public void reparsesFollowingStatementWhenValueIsDeleted() throws IOException {
+    int offset = INPUT.indexOf("value");
+    parser.edit(offset, 5, "");
+
+    assertParsedLikeWholeText();
+  }
+
+  @Test
+  public void handlesEmptyText() throws IOException {
+    parser = new IncrementalParser("");
+    parser.edit(0, 0, "a = b");
+
+    assertThat(parser.getRoot().getChildren(), hasSize(1));
+    parser.edit(0, 5, "");
+    assertThat(parser.getRoot().isLeaf(), is(true));
+  }
+
+  @Test
+  public void matchesWholeParseAfterRandomEdits() throws IOException {
+    Random random = new Random(42);
+    String[] snippets = {"", " ", "\n", "{", "}", "=", "x", "yes", "# c\n", "\"q\"", "k = { v }", "\"", "#"};
+    for (int i = 0; i < 500; i++) {
+      int length = parser.getText().length();
+      int offset = random.nextInt(length + 1);
+      int removed = random.nextInt(Math.min(4, length - offset) + 1);
+      parser.edit(offset, removed, snippets[random.nextInt(snippets.length)]);
+      assertParsedLikeWholeText();
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void doesNotEditOutsideOfText() {
+    parser.edit(INPUT.length(), 1, "");
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final String INPUT = "# header\na = { x = 1 }\nb = {\n\topinion = 10\n\tlist = { l1 l2 }\n}\nsingle = value\nlist_value\n";
+
+  private IncrementalParser parser;
+
+  private void assertParsedLikeWholeText() throws IOException {
+    Node expected = Node.createRoot();
+    new MultiValueParser().parse(new CharTokenizer(new StringReader(parser.getText())), expected);
+    assertThat(parser.getText(), parser.getRoot().toString(), is(expected.toString()));
+  }
+
+}
@@ -0,0 +1,79 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class LazyNodeTest {
+
+  @Before
+  public void setUp() throws IOException {
+    root = Node.createRoot();
+    ByteTokenizer tokens = new ByteTokenizer(ByteBuffer.wrap(INPUT.getBytes(CHARSET)));
+    new MultiValueParser().parse(tokens, new LazyTreeBuilder(root, tokens, null, null));
+  }
+
+  @Test
+  public void buildsTopLevelOnly() {
+    assertThat(root.getChildren(), hasSize(3));
+    assertThat(lazy(0).isLoaded(), is(false));
+    assertThat(lazy(1).getName(), is("simple"));
+    assertThat(lazy(1).getChildren().get(0).getName(), is("value"));
+    assertThat(lazy(2).isLoaded(), is(false));
+  }
+
+  @Test
+  public void parsesBlockOnFirstAccess() {
+    Node block = lazy(0);
+
+    assertThat(block.getChildren(), hasSize(2));
+    assertThat(lazy(0).isLoaded(), is(true));
+    assertThat(block.getChildren().get(0).getName(), is("name"));
+    assertThat(block.getChildren().get(0).getChildren().get(0).getName(), is("\"{ x }\""));
+    assertThat(block.getChildren().get(1).getChildren(), hasSize(2));
+    assertThat(lazy(2).isLoaded(), is(false));
+  }
+
+  @Test
+  public void keepsEmptyBlockALeaf() {
+    assertThat(lazy(2).isLeaf(), is(true));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Charset CHARSET = Charset.forName("Windows-1252");
+  private static final String INPUT = "block = {\n\tname = \"{ x }\" # }\n\tlist = { a b }\n}\nsimple = value\nempty = { }\n";
+
+  private Node root;
+
+  private LazyNode lazy(int index) {
+    return (LazyNode) root.getChildren().get(index);
+  }
+
+}
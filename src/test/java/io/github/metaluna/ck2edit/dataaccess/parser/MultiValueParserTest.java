@@ -23,6 +23,10 @@
  */
 package io.github.metaluna.ck2edit.dataaccess.parser;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import static org.hamcrest.Matchers.*;
@@ -148,4 +152,56 @@ public class MultiValueParserTest {
     assertThat(property.getChildren().get(0).getName(), is(expValue));
   }
 
+  @Test
+  public void skipsFailedStatementAndContinues() throws IOException {
+    String input = "first = { a = 1 }\nbroken = {\n  nested = { bad = 2 x = { } }\n  rest = 3\n}\nlast = 4\n";
+    List<String> problems = new ArrayList<>();
+
+    mvParser.parse(new CharTokenizer(new StringReader(input)), new TreeBuilder(parent) {
+      @Override
+      public void value(Tokenizer tokens) {
+        if (tokens.text().equals("2")) {
+          throw new IllegalStateException("bad value");
+        }
+        super.value(tokens);
+      }
+    }, (line, column, message) -> problems.add(String.format("%d:%d %s", line, column, message)));
+
+    assertThat(parent.getChildren(), hasSize(3));
+    assertThat(parent.getChildren().get(2).getName(), is("last"));
+    assertThat(parent.getChildren().get(2).getChildren().get(0).getName(), is("4"));
+    assertThat(problems, contains("3:20 java.lang.IllegalStateException: bad value"));
+  }
+
+  @Test
+  public void skipsValueOfFailedKeyAtTopLevel() throws IOException {
+    String input = "first = 1\nbroken = { a = b c d }\nlast = 2\n";
+    List<String> problems = new ArrayList<>();
+
+    mvParser.parse(new CharTokenizer(new StringReader(input)), new TreeBuilder(parent) {
+      @Override
+      public void key(Tokenizer tokens) {
+        if (tokens.text().equals("broken")) {
+          throw new IllegalStateException("bad key");
+        }
+        super.key(tokens);
+      }
+    }, (line, column, message) -> problems.add(message));
+
+    assertThat(parent.getChildren(), hasSize(2));
+    assertThat(parent.getChildren().get(0).getName(), is("first"));
+    assertThat(parent.getChildren().get(1).getName(), is("last"));
+    assertThat(problems, contains("java.lang.IllegalStateException: bad key"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void passesFailuresWithoutProblemReceiver() throws IOException {
+    mvParser.parse(new CharTokenizer(new StringReader("a = { b = c }")), new TreeBuilder(parent) {
+      @Override
+      public void value(Tokenizer tokens) {
+        throw new IllegalStateException();
+      }
+    });
+  }
+
 }
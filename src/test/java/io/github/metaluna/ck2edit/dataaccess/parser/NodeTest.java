@@ -23,6 +23,8 @@
  */
 package io.github.metaluna.ck2edit.dataaccess.parser;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -73,6 +75,12 @@ public class NodeTest {
     assertThat(node.getName(), is(expName));
   }
   
+  @Test
+  public void decodesEncodedName() {
+    node = new Node(new byte[]{'m', (byte) 0x80, (byte) 0xe4});
+    assertThat(node.getName(), is("m\u20ac\u00e4"));
+  }
+
   @Test
   public void isNotRootByDefault() {
     assertFalse(node.isRoot());
@@ -177,5 +185,94 @@ public class NodeTest {
     node.addList("property", Collections.emptyList());
     assertThat(node.getChildren(), is(empty()));
   }
-  
+
+  @Test
+  public void findsChildrenByName() {
+    node.addPair("a", "1").addPair("b", "2").addPair("a", "3");
+
+    assertThat(node.getChild("b").get().getChildren().get(0).getName(), is("2"));
+    assertThat(node.getChildren("a"), hasSize(2));
+    assertThat(node.getChildren("a").get(1).getChildren().get(0).getName(), is("3"));
+    assertFalse(node.getChild("c").isPresent());
+  }
+
+  @Test
+  public void findsChildrenByNameInWideBlock() {
+    for (int i = 0; i < 100; i++) {
+      node.addPair("key" + i, "value" + i);
+    }
+
+    assertThat(node.getChild("key42").get().getChildren().get(0).getName(), is("value42"));
+    node.addPair("key42", "again").addPair("new", "value");
+    assertThat(node.getChildren("key42"), hasSize(2));
+    assertThat(node.getChildren("key42").get(1).getChildren().get(0).getName(), is("again"));
+    assertTrue(node.getChild("new").isPresent());
+    assertThat(node.getChildren("missing"), is(empty()));
+  }
+
+  @Test
+  public void decodesIntegers() {
+    assertThat(new Node("-25").getValueKind(), is(ValueKind.INTEGER));
+    assertThat(new Node("-25").getIntValue(), is(-25));
+    assertThat(new Node("7").getFixedPointValue(), is(7000L));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void doesNotDecodeTextAsInteger() {
+    new Node("opinion").getIntValue();
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void doesNotDecodeTooLargeInteger() {
+    new Node("3000000000").getIntValue();
+  }
+
+  @Test
+  public void decodesFixedPointDecimals() {
+    assertThat(new Node("0.125").getValueKind(), is(ValueKind.DECIMAL));
+    assertThat(new Node("0.125").getFixedPointValue(), is(125L));
+    assertThat(new Node("-1.5").getFixedPointValue(), is(-1500L));
+    assertThat(new Node("2.25").getDecimalValue(), is(2.25));
+    assertThat(new Node("0.0001").getValueKind(), is(ValueKind.TEXT));
+  }
+
+  @Test
+  public void decodesBooleans() {
+    assertThat(new Node("yes").getValueKind(), is(ValueKind.BOOLEAN));
+    assertTrue(new Node("yes").getBooleanValue());
+    assertFalse(new Node("no").getBooleanValue());
+    assertFalse(new Node("\"yes\"").getBooleanValue());
+  }
+
+  @Test
+  public void decodesDates() {
+    assertThat(new Node("1066.9.15").getValueKind(), is(ValueKind.DATE));
+    assertThat(new Node("1066.9.15").getDateValue(), is(10660915));
+    assertThat(new Node("1066.13.15").getValueKind(), is(ValueKind.TEXT));
+  }
+
+  @Test
+  public void findsNoChildrenInLeaf() {
+    assertThat(node.getChildren("a"), is(empty()));
+  }
+
+  @Test
+  public void printsStraightToOutput() throws IOException {
+    Node root = Node.createRoot();
+    Node block = Node.create("block");
+    block.addPair("key", "value");
+    block.addList("list", Arrays.asList("a", "b", "c"));
+    block.addChild(Node.create("nested").addPair("deep", "1"));
+    root.addChild(block).addPair("simple", "2");
+    StringWriter out = new StringWriter();
+
+    root.write(out);
+
+    assertThat(out.toString(), is("block = { \r\n\tkey = value\r\n\tlist = { a b c }\r\n"
+            + "\tnested = { \r\n\t\tdeep = 1\r\n\t}\r\n}\r\nsimple = 2\r\n"));
+    assertThat(root.toString(), is(out.toString()));
+    assertThat(block.print(1), is("\tblock = { \r\n\t\tkey = value\r\n\t\tlist = { a b c }\r\n"
+            + "\t\tnested = { \r\n\t\t\tdeep = 1\r\n\t\t}\r\n\t}\r\n"));
+  }
+
 }
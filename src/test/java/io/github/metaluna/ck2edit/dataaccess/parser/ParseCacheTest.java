@@ -0,0 +1,168 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ParseCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void setUp() throws IOException {
+    file = folder.newFile("test.txt").toPath();
+    Files.write(file, INPUT.getBytes(CHARSET));
+    cache = new ParseCache(folder.getRoot().toPath().resolve("cache"));
+  }
+
+  @Test
+  public void missesUnknownFile() {
+    assertThat(cache.load(file).isPresent(), is(false));
+  }
+
+  @Test
+  public void loadsStoredTree() {
+    Node parsed = parse();
+    cache.store(cache.stamp(file).get(), parsed);
+
+    Optional<Node> loaded = cache.load(file);
+
+    assertThat(loaded.isPresent(), is(true));
+    assertThat(loaded.get().isRoot(), is(true));
+    assertThat(loaded.get().print(0), is(parsed.print(0)));
+  }
+
+  @Test
+  public void missesChangedFile() throws IOException {
+    cache.store(cache.stamp(file).get(), parse());
+    Files.write(file, "block = { other = 2 }\n".getBytes(CHARSET));
+
+    assertThat(cache.load(file).isPresent(), is(false));
+  }
+
+  @Test
+  public void hitsTouchedButUnchangedFile() throws IOException {
+    cache.store(cache.stamp(file).get(), parse());
+    Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+
+    assertThat(cache.load(file).isPresent(), is(true));
+  }
+
+  @Test
+  public void missesCorruptEntry() throws IOException {
+    cache.store(cache.stamp(file).get(), parse());
+    try (Stream<Path> entries = Files.list(folder.getRoot().toPath().resolve("cache"))) {
+      Path entry = entries.findFirst().get();
+      byte[] data = Files.readAllBytes(entry);
+      Files.write(entry, Arrays.copyOf(data, data.length - 3));
+    }
+
+    assertThat(cache.load(file).isPresent(), is(false));
+  }
+
+  @Test
+  public void missesFileChangedWhileParsing() throws IOException {
+    ParseCache.Stamp stamp = cache.stamp(file).get();
+    Node parsed = parse();
+    Files.write(file, "block = { other = 2 }\n".getBytes(CHARSET));
+    cache.store(stamp, parsed);
+
+    assertThat(cache.load(file).isPresent(), is(false));
+  }
+
+  @Test
+  public void doesNotStoreLazyTree() {
+    Node root = new Parser(file, new MultiValueParser(), ParserFactory.Mode.LAZY).parse();
+
+    cache.store(cache.stamp(file).get(), root);
+
+    assertThat(cache.load(file).isPresent(), is(false));
+    assertThat(((LazyNode) root.getChildren().get(0)).isLoaded(), is(false));
+  }
+
+  @Test
+  public void doesNotStoreLazyTreeEvenIfAccessed() {
+    Node root = new Parser(file, new MultiValueParser(), ParserFactory.Mode.LAZY).parse();
+    root.toString();
+
+    cache.store(cache.stamp(file).get(), root);
+
+    assertThat(cache.load(file).isPresent(), is(false));
+  }
+
+  @Test
+  public void parserUsesCache() throws IOException {
+    new Parser(file, new MultiValueParser(), ParserFactory.Mode.STREAM, cache).parse();
+    Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+
+    Node root = new Parser(file, new MultiValueParser(), ParserFactory.Mode.STREAM, cache).parse();
+
+    assertThat(SourcePositions.of(root).isPresent(), is(false));
+    assertThat(root.getChild("block").get().getChild("list").get().getChildren(), hasSize(3));
+  }
+
+  @Test
+  public void reportsProblemsOfBrokenFileOnEveryParse() throws IOException {
+    Files.write(file, "a = 1\n}\nb = 2\n".getBytes(CHARSET));
+    ParserFactory factory = new ParserFactory(ParserFactory.Mode.STREAM, cache);
+    List<Diagnostic> first = new ArrayList<>();
+    List<Diagnostic> second = new ArrayList<>();
+
+    factory.fromFile(file).parse(first::add);
+    Node root = factory.fromFile(file).parse(second::add);
+
+    assertThat(first, hasSize(1));
+    assertThat(second, hasSize(1));
+    assertThat(root.getChildren(), hasSize(2));
+    assertThat(cache.load(file).isPresent(), is(false));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Charset CHARSET = Charset.forName("Windows-1252");
+  private static final String INPUT = "# comment\nblock = {\n\tname = \"S\u00e9ville\"\n\tlist = { a b a }\n\tempty = { }\n}\nsimple = value\n";
+
+  private Path file;
+  private ParseCache cache;
+
+  private Node parse() {
+    return new Parser(file, new MultiValueParser()).parse();
+  }
+
+}
@@ -0,0 +1,99 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import io.github.metaluna.ck2edit.support.FileTestHelpers;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ParserEngineTest {
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void parsesFromManyThreadsAtOnce() throws Exception {
+    for (ParserFactory.Mode mode : ParserFactory.Mode.values()) {
+      ParserEngine engine = new ParserEngine(mode, null);
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        Path file = file(FILES.get(i % FILES.size()));
+        results.add(executor.submit(() -> engine.parse(file).print(0)));
+      }
+
+      for (int i = 0; i < results.size(); i++) {
+        String expected = new ParserEngine().parse(file(FILES.get(i % FILES.size()))).print(0);
+        assertThat(mode.toString(), results.get(i).get(), is(expected));
+      }
+    }
+  }
+
+  @Test
+  public void parsesAnotherFileFromHandler() {
+    ParserEngine engine = new ParserEngine(ParserFactory.Mode.MAPPED, null);
+    List<String> nested = new ArrayList<>();
+    List<String> keys = new ArrayList<>();
+
+    engine.parse(file("simple_nested.txt"), new ParseHandler() {
+      @Override
+      public void keyValue(String key, String value) {
+        keys.add(key);
+        if (nested.isEmpty()) {
+          nested.add(engine.parse(file("deep_nesting.txt")).getChildren().get(0).getName());
+        }
+      }
+    });
+
+    assertThat(keys, contains("level2a", "level2b"));
+    assertThat(nested, contains("level1"));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final List<String> FILES = Arrays.asList("complex_file.txt", "simple_nested.txt",
+          "deep_nesting.txt", "nested_list.txt", "minified.txt");
+
+  private ExecutorService executor;
+
+  private static Path file(String name) {
+    return FileTestHelpers.fetchFile("parser", name);
+  }
+
+}
@@ -26,17 +26,36 @@ package io.github.metaluna.ck2edit.dataaccess.parser;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+@RunWith(Parameterized.class)
 public class ParserTest {
 
+  @Parameters(name = "{0}")
+  public static Collection<Object[]> modes() {
+    return Arrays.asList(new Object[][]{{ParserFactory.Mode.STREAM}, {ParserFactory.Mode.MAPPED}, {ParserFactory.Mode.LAZY}, {ParserFactory.Mode.PARALLEL}});
+  }
+
+  public ParserTest(ParserFactory.Mode mode) {
+    this.mode = mode;
+  }
+
+  private final ParserFactory.Mode mode;
   private Parser parser;
 
   @Before
@@ -274,6 +293,235 @@ public class ParserTest {
     assertListOfLeaves(root.getChildren().get(0), 3);
   }
   
+  @Test
+  public void parsesLargeFile() throws IOException {
+    Path file = Files.createTempFile("parsertest", null);
+    file.toFile().deleteOnExit();
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; content.length() < 64 << 10; i++) {
+      content.append("modifier_").append(i).append(" = {\r\n\topinion = ").append(i)
+              .append(" # \u00fcber\r\n\tname = \"Modifier ").append(i).append("\"\r\n}\r\n");
+    }
+    Files.write(file, content.toString().getBytes("Windows-1252"));
+    parser = new Parser(file, new MultiValueParser(), mode);
+
+    Node root = parser.parse();
+
+    Node last = root.getLastChild().get();
+    int lastIndex = root.getChildren().size() - 1;
+    assertThat(last.getName(), is("modifier_" + lastIndex));
+    assertThat(last.getChildren().get(0).getChildren().get(0).getName(), is(Integer.toString(lastIndex)));
+    assertThat(last.getChildren().get(1).getChildren().get(0).getName(), is("\"Modifier " + lastIndex + "\""));
+  }
+
+  @Test
+  public void parsesLikeSequentialParser() throws URISyntaxException {
+    parser = loadParser("complex_file.txt");
+    Path path = Paths.get(getClass().getResource("/parser/complex_file.txt").toURI());
+    Parser sequential = new Parser(path, new MultiValueParser(), ParserFactory.Mode.STREAM);
+
+    assertThat(parser.parse().toString(), is(sequential.parse().toString()));
+  }
+
+  @Test
+  public void parsesFileWithoutLineBreaks() {
+    parser = loadParser("minified.txt");
+
+    Node root = parser.parse();
+
+    assertThat(root.getChildren(), hasSize(3));
+    Node level1 = root.getChildren().get(0);
+    assertThat(level1.getChildren(), hasSize(2));
+    assertThat(level1.getChildren().get(0).getChildren().get(0).getName(), is("level3a"));
+    assertListOfLeaves(level1.getChildren().get(1), 2);
+    assertThat(root.getChildren().get(1).getChildren().get(0).getName(), is("\"value with spaces\""));
+    assertThat(root.getChildren().get(2).getChildren().get(0).getName(), is("value1c"));
+  }
+
+  @Test
+  public void sharesSymbolsOfEqualNames() {
+    parser = loadParser("multiple_simple.txt");
+
+    Node first = parser.parse().getChildren().get(0);
+    Node second = parser.parse().getChildren().get(0);
+
+    assertThat(second, not(sameInstance(first)));
+    assertThat(second.getSymbol(), sameInstance(first.getSymbol()));
+    assertThat(first.getSymbol(), sameInstance(Symbol.of("property1")));
+  }
+
+  @Test
+  public void printsCompactTreeLikeNodes() {
+    parser = loadParser("complex_file.txt");
+
+    CompactTree result = parser.parseCompact();
+
+    assertThat(result.getRoot().toString(), is(parser.parse().toString()));
+  }
+
+  @Test
+  public void walksCompactTree() {
+    parser = loadParser("simple_list.txt");
+
+    CompactTree result = parser.parseCompact();
+
+    assertThat(result.size(), is(7));
+    int property = result.getFirstChild(CompactTree.ROOT);
+    assertThat(result.getName(property), is("property"));
+    assertThat(result.getParent(property), is(CompactTree.ROOT));
+    List<CompactNode> list = new CompactNode(result, property).getChildren();
+    assertThat(list, hasSize(3));
+    assertThat(list.get(2).getName(), is("li3"));
+    assertThat(list.get(2).isLeaf(), is(true));
+    int property2 = result.getNextSibling(property);
+    assertThat(result.getName(result.getFirstChild(property2)), is("value2"));
+    assertThat(result.getNextSibling(property2), is(CompactTree.NO_NODE));
+  }
+
+  @Test
+  public void sharesNamesInCompactTree() {
+    parser = loadParser("complex_file.txt");
+
+    CompactTree result = parser.parseCompact();
+
+    assertThat(result.getNameCount(), is(lessThan(result.size())));
+  }
+
+  @Test
+  public void reportsContentsToHandler() {
+    parser = loadParser("combined_nesting.txt");
+    List<String> events = new ArrayList<>();
+
+    parser.parse(new ParseHandler() {
+      @Override
+      public void startBlock(String key) {
+        events.add("start " + key);
+      }
+
+      @Override
+      public void endBlock() {
+        events.add("end");
+      }
+
+      @Override
+      public void keyValue(String key, String value) {
+        events.add(key + "=" + value);
+      }
+    });
+
+    assertThat(events, contains("start level1a", "level2=value2", "end", "level1b=value1b"));
+  }
+
+  @Test
+  public void reportsListValuesAndEmptyKeysToHandler() {
+    parser = loadParser("list_ending_on_same_line.txt");
+    List<String> values = new ArrayList<>();
+
+    parser.parse(new ParseHandler() {
+      @Override
+      public void listValue(String value) {
+        values.add(value);
+      }
+    });
+
+    assertThat(values, contains("li1", "li2", "li3"));
+  }
+
+  @Test
+  public void reportsPositionsToHandler() {
+    parser = loadParser("simple_nested.txt");
+    List<String> positions = new ArrayList<>();
+
+    parser.parse(new ParseHandler() {
+      private SourceLocator locator;
+
+      @Override
+      public void setLocator(SourceLocator locator) {
+        this.locator = locator;
+      }
+
+      @Override
+      public void startBlock(String key) {
+        record(key);
+      }
+
+      @Override
+      public void endBlock() {
+        record("}");
+      }
+
+      @Override
+      public void keyValue(String key, String value) {
+        record(key);
+      }
+
+      private void record(String name) {
+        positions.add(String.format("%s@%d:%d+%d", name, locator.getLine(), locator.getColumn(), locator.getOffset()));
+      }
+    });
+
+    assertThat(positions, contains("level1@1:1+0", "level2a@2:3+13", "level2b@3:3+33", "}@4:1+51"));
+  }
+
+  @Test
+  public void recordsSourcePositionsOfNodes() {
+    parser = loadParser("simple_nested.txt");
+
+    Node root = parser.parse();
+    SourcePositions positions = SourcePositions.of(root).get();
+    Node level1 = root.getChildren().get(0);
+    Node level2b = level1.getChildren().get(1);
+
+    assertThat(positions.getStartOffset(level1), is(0));
+    assertThat(positions.getEndOffset(level1), is(52));
+    assertThat(positions.getStartLine(level2b), is(3));
+    assertThat(positions.getStartColumn(level2b), is(3));
+    assertThat(positions.getEndLine(level2b), is(3));
+    assertThat(positions.getEndColumn(level2b), is(20));
+    assertThat(positions.getStartOffset(level2b.getChildren().get(0)), is(43));
+  }
+
+  @Test
+  public void parsesUtf8Files() throws IOException {
+    Path file = Files.createTempFile("parsertest", null);
+    file.toFile().deleteOnExit();
+    Files.write(file, "\ufeffk\u00f6nig = { name = \"\u0141\u00f3d\u017a\" }\n".getBytes(StandardCharsets.UTF_8));
+    parser = new Parser(file, new MultiValueParser(), mode);
+
+    Node root = parser.parse();
+
+    assertThat(TextEncoding.of(root), is(TextEncoding.UTF_8_BOM));
+    Node king = root.getChildren().get(0);
+    assertThat(king.getName(), is("k\u00f6nig"));
+    assertThat(king.getChildren().get(0).getChildren().get(0).getName(), is("\"\u0141\u00f3d\u017a\""));
+  }
+
+  @Test
+  public void reportsProblemsInsideBlocks() throws IOException {
+    Path file = Files.createTempFile("parsertest", null);
+    file.toFile().deleteOnExit();
+    Files.write(file, "block = {\n\t= 1\n\tname = value\n}\nother = 2\n".getBytes(StandardCharsets.US_ASCII));
+    parser = new Parser(file, new MultiValueParser(), mode);
+    List<Diagnostic> problems = new ArrayList<>();
+
+    Node root = parser.parse(problems::add);
+    List<Node> children = root.getChild("block").get().getChildren();
+
+    assertThat(children, hasSize(2));
+    assertThat(children.get(1).getName(), is("name"));
+    assertThat(problems, hasSize(1));
+    assertThat(problems.get(0).getLine(), is(2));
+  }
+
+  @Test(expected = IOException.class)
+  public void failsOnUnreadableFileWhenChecked() throws IOException {
+    Path directory = Files.createTempDirectory("parsertest");
+    directory.toFile().deleteOnExit();
+    parser = new Parser(directory, new MultiValueParser(), mode);
+
+    parser.parseChecked(problems -> {});
+  }
+
   // ---vvv--- PACKAGE-PRIVATE ---vvv---
   private Parser loadParser(String file) {
     URL resourceUrl = getClass().getResource("/parser/" + file);
@@ -283,7 +531,7 @@ public class ParserTest {
     } catch (URISyntaxException ex) {
       fail(String.format("Unable to load file '%s'", resourceUrl.toString()));
     }
-    return new Parser(path, new MultiValueParser());
+    return new Parser(path, new MultiValueParser(), mode);
   }
 
   private void assertListOfLeaves(Node parent, int itemCount) {
@@ -0,0 +1,118 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class SubtreeInternerTest {
+
+  @Before
+  public void setUp() {
+    interner = new SubtreeInterner();
+  }
+
+  @Test
+  public void sharesIdenticalSubtrees() {
+    Node first = interner.intern(limit("is_adult", "yes"));
+    Node second = interner.intern(limit("is_adult", "yes"));
+
+    assertThat(second, sameInstance(first));
+    assertThat(interner.size(), is(3));
+  }
+
+  @Test
+  public void keepsDifferentSubtreesApart() {
+    Node first = interner.intern(limit("is_adult", "yes"));
+    Node second = interner.intern(limit("is_adult", "no"));
+
+    assertThat(second, not(sameInstance(first)));
+    assertThat(second.getChildren().get(0).getName(), is("is_adult"));
+    assertThat(second.getChildren().get(0).getChildren().get(0).getName(), is("no"));
+  }
+
+  @Test
+  public void sharesSubtreesAcrossFiles() {
+    Node root1 = Node.createRoot().addChild(limit("is_adult", "yes")).addPair("a", "b");
+    Node root2 = Node.createRoot().addPair("c", "d").addChild(limit("is_adult", "yes"));
+
+    Node result1 = interner.intern(root1);
+    Node result2 = interner.intern(root2);
+
+    assertThat(result2.getChildren().get(1), sameInstance(result1.getChildren().get(0)));
+    assertThat(result1.isRoot(), is(true));
+    assertThat(result1.toString(), is(root1.toString()));
+  }
+
+  @Test
+  public void freezesInternedNodes() {
+    Node result = interner.intern(limit("is_adult", "yes"));
+
+    assertThat(result.isFrozen(), is(true));
+    assertThat(result.getChildren().get(0).isFrozen(), is(true));
+    try {
+      result.addChild("other");
+      fail("Frozen node was changed");
+    } catch (UnsupportedOperationException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void leavesOriginalUntouched() {
+    Node original = limit("is_adult", "yes");
+
+    interner.intern(original);
+
+    assertThat(original.isFrozen(), is(false));
+    original.addList("other", Arrays.asList("x", "y"));
+    assertThat(original.getChildren(), hasSize(2));
+  }
+
+  @Test
+  public void looksUpChildrenOfSharedNodeFromSeveralThreads() {
+    Node wide = Node.create("wide");
+    for (int i = 0; i < 100; i++) {
+      wide.addPair("key" + i, Integer.toString(i));
+    }
+    Node shared = interner.intern(wide);
+
+    boolean allFound = IntStream.range(0, 1000).parallel()
+            .allMatch(i -> shared.getChild("key" + i % 100).get().getChildren().get(0).getName().equals(Integer.toString(i % 100)));
+
+    assertThat(allFound, is(true));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private SubtreeInterner interner;
+
+  private static Node limit(String trigger, String value) {
+    return Node.create("limit").addPair(trigger, value);
+  }
+
+}
@@ -0,0 +1,132 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+
+  @Before
+  public void setUp() {
+    table = new SymbolTable();
+  }
+
+  @Test
+  public void internsEqualNamesOnce() {
+    ByteBuffer input = ByteBuffer.wrap("yes no yes".getBytes(CHARSET));
+
+    Symbol first = table.intern(input, 0, 3);
+    Symbol second = table.intern(input, 7, 10);
+
+    assertThat(second, sameInstance(first));
+    assertThat(table.intern("yes"), sameInstance(first));
+    assertThat(table.intern(input, 4, 6), not(sameInstance(first)));
+    assertThat(table.size(), is(2));
+  }
+
+  @Test
+  public void decodesName() {
+    Symbol symbol = table.intern(ByteBuffer.wrap(new byte[]{'m', (byte) 0x80}), 0, 2);
+
+    assertThat(symbol.toString(), is("m\u20ac"));
+    assertThat(symbol.length(), is(2));
+  }
+
+  @Test
+  public void doesNotInternUnencodableNames() {
+    Symbol symbol = table.intern("\u4e2d");
+
+    assertThat(symbol.toString(), is("\u4e2d"));
+    assertThat(table.size(), is(0));
+  }
+
+  @Test
+  public void keepsAllNamesWhenGrowing() {
+    List<Symbol> symbols = IntStream.range(0, 10000)
+            .mapToObj(i -> table.intern("name" + i))
+            .collect(Collectors.toList());
+
+    assertThat(table.size(), is(10000));
+    for (int i = 0; i < symbols.size(); i++) {
+      assertThat(table.intern("name" + i), sameInstance(symbols.get(i)));
+    }
+  }
+
+  @Test
+  public void internsConcurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<Symbol>>> results = IntStream.range(0, 4)
+              .mapToObj(t -> executor.submit(() -> IntStream.range(0, 2000)
+                      .mapToObj(i -> table.intern("name" + i))
+                      .collect(Collectors.toList())))
+              .collect(Collectors.toList());
+      List<Symbol> expected = results.get(0).get();
+      for (Future<List<Symbol>> result : results) {
+        List<Symbol> actual = result.get();
+        for (int i = 0; i < expected.size(); i++) {
+          assertThat(actual.get(i), sameInstance(expected.get(i)));
+        }
+      }
+      assertThat(table.size(), is(2000));
+      // keeps the symbols from being collected before they are counted
+      assertThat(expected, hasSize(2000));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void dropsSymbolsThatAreNoLongerUsed() throws InterruptedException {
+    Symbol kept = table.intern("kept");
+    for (int i = 0; i < 10000; i++) {
+      table.intern("name" + i);
+    }
+
+    for (int attempt = 0; attempt < 10 && table.size() > 1; attempt++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    assertThat(table.size(), is(1));
+    assertThat(table.intern("kept"), sameInstance(kept));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Charset CHARSET = Charset.forName("Windows-1252");
+
+  private SymbolTable table;
+
+}
@@ -0,0 +1,268 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Simon Hardijanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.metaluna.ck2edit.dataaccess.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Function;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class TokenizerTest {
+
+  @Parameters(name = "{0}")
+  public static Collection<Object[]> tokenizers() {
+    Function<String, Tokenizer> chars = input -> new CharTokenizer(new StringReader(input));
+    Function<String, Tokenizer> bytes = input -> new ByteTokenizer(ByteBuffer.wrap(input.getBytes(CHARSET)));
+    return Arrays.asList(new Object[][]{{"chars", chars}, {"bytes", bytes}});
+  }
+
+  public TokenizerTest(String name, Function<String, Tokenizer> factory) {
+    this.factory = factory;
+  }
+
+  private final Function<String, Tokenizer> factory;
+  private Tokenizer tokenizer;
+
+  @Test
+  public void endsOnEmptyInput() throws IOException {
+    tokenizer = createTokenizer("");
+    assertThat(tokenizer.next(), is(TokenType.END));
+    assertThat(tokenizer.next(), is(TokenType.END));
+  }
+
+  @Test
+  public void detectsKeysAndValues() throws IOException {
+    tokenizer = createTokenizer("property = value");
+
+    assertToken(TokenType.KEY, "property");
+    assertToken(TokenType.EQUALS, "=");
+    assertToken(TokenType.VALUE, "value");
+    assertThat(tokenizer.next(), is(TokenType.END));
+  }
+
+  @Test
+  public void doesNotNeedWhitespace() throws IOException {
+    tokenizer = createTokenizer("a={b=c}d");
+
+    assertToken(TokenType.KEY, "a");
+    assertToken(TokenType.EQUALS, "=");
+    assertToken(TokenType.OPEN, "{");
+    assertToken(TokenType.KEY, "b");
+    assertToken(TokenType.EQUALS, "=");
+    assertToken(TokenType.VALUE, "c");
+    assertToken(TokenType.CLOSE, "}");
+    assertToken(TokenType.VALUE, "d");
+  }
+
+  @Test
+  public void keepsQuotesAndSpacesOfStrings() throws IOException {
+    tokenizer = createTokenizer("name = \"O _ O\"");
+
+    tokenizer.next();
+    tokenizer.next();
+    assertToken(TokenType.QUOTED, "\"O _ O\"");
+  }
+
+  @Test
+  public void emitsCommentsUntilEndOfLine() throws IOException {
+    tokenizer = createTokenizer("a # comment = { }\r\nb");
+
+    assertToken(TokenType.VALUE, "a");
+    assertToken(TokenType.COMMENT, "# comment = { }");
+    assertToken(TokenType.VALUE, "b");
+  }
+
+  @Test
+  public void detectsKeyWithSeparatorOnNextLine() throws IOException {
+    tokenizer = createTokenizer("key\n\t= value");
+
+    assertToken(TokenType.KEY, "key");
+    assertThat(tokenizer.line(), is(1));
+    assertToken(TokenType.EQUALS, "=");
+    assertThat(tokenizer.line(), is(2));
+  }
+
+  @Test
+  public void tracksOffsets() throws IOException {
+    tokenizer = createTokenizer("  abc = def");
+
+    tokenizer.next();
+    assertThat(tokenizer.start(), is(2));
+    assertThat(tokenizer.end(), is(5));
+    tokenizer.next();
+    tokenizer.next();
+    assertThat(tokenizer.start(), is(8));
+    assertThat(tokenizer.end(), is(11));
+  }
+
+  @Test
+  public void decodesWindows1252() throws IOException {
+    tokenizer = createTokenizer("name = \u00e4\u20ac");
+
+    tokenizer.next();
+    tokenizer.next();
+    assertToken(TokenType.VALUE, "\u00e4\u20ac");
+  }
+
+  @Test
+  public void createsNodesNamedAfterToken() throws IOException {
+    tokenizer = createTokenizer("long_property_name = value");
+
+    tokenizer.next();
+    assertThat(tokenizer.node().getName(), is("long_property_name"));
+  }
+
+  @Test
+  public void findsDelimitersAtEveryPositionOfAWord() throws IOException {
+    for (int i = 1; i < 10; i++) {
+      char[] name = new char[i];
+      Arrays.fill(name, 'n');
+      String word = new String(name);
+      tokenizer = createTokenizer(word + "=\"" + word + "\"#" + word + "\n" + word + "}");
+
+      assertToken(TokenType.KEY, word);
+      assertToken(TokenType.EQUALS, "=");
+      assertToken(TokenType.QUOTED, "\"" + word + "\"");
+      assertToken(TokenType.COMMENT, "#" + word);
+      assertToken(TokenType.VALUE, word);
+      assertThat(tokenizer.line(), is(2));
+      assertToken(TokenType.CLOSE, "}");
+    }
+  }
+
+  @Test
+  public void tracksColumns() throws IOException {
+    tokenizer = createTokenizer("a\r\n\tb = \"x\ny\" c");
+
+    tokenizer.next();
+    assertThat(tokenizer.column(), is(1));
+    tokenizer.next();
+    assertThat(tokenizer.column(), is(2));
+    tokenizer.next();
+    tokenizer.next();
+    assertThat(tokenizer.column(), is(6));
+    tokenizer.next();
+    assertThat(tokenizer.line(), is(3));
+    assertThat(tokenizer.column(), is(4));
+  }
+
+  @Test
+  public void skipsNestedBlock() throws IOException {
+    tokenizer = createTokenizer("a = { b = { \"}\" } # }\n c } d");
+
+    tokenizer.next();
+    tokenizer.next();
+    tokenizer.next();
+    assertThat(tokenizer.skipBlock(), is(false));
+    assertThat(tokenizer.type(), is(TokenType.CLOSE));
+    assertThat(tokenizer.line(), is(2));
+    assertToken(TokenType.VALUE, "d");
+  }
+
+  @Test
+  public void skipsUnclosedBlockToEnd() throws IOException {
+    tokenizer = createTokenizer("a = { b");
+
+    tokenizer.next();
+    tokenizer.next();
+    tokenizer.next();
+    assertThat(tokenizer.skipBlock(), is(true));
+    assertThat(tokenizer.type(), is(TokenType.END));
+  }
+
+  @Test
+  public void repeatsPushedBackToken() throws IOException {
+    tokenizer = createTokenizer("a b");
+
+    tokenizer.next();
+    tokenizer.pushBack();
+    assertToken(TokenType.VALUE, "a");
+    assertToken(TokenType.VALUE, "b");
+  }
+
+  @Test
+  public void readsTokensLargerThanTheBuffer() throws IOException {
+    StringBuilder longName = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      longName.append('x');
+    }
+    tokenizer = createTokenizer("a = b " + longName + " = c");
+
+    tokenizer.next();
+    tokenizer.next();
+    tokenizer.next();
+    assertToken(TokenType.KEY, longName.toString());
+    assertThat(tokenizer.start(), is(6));
+    assertToken(TokenType.EQUALS, "=");
+    assertToken(TokenType.VALUE, "c");
+  }
+
+  @Test
+  public void readsMappedFile() throws IOException {
+    Path file = Files.createTempFile("tokenizertest", null);
+    file.toFile().deleteOnExit();
+    StringBuilder content = new StringBuilder();
+    int count = 0;
+    while (content.length() <= 1 << 20) {
+      content.append("modifier_").append(count++).append(" = \"\u00fcber\"\r\n");
+    }
+    Files.write(file, content.toString().getBytes(CHARSET));
+    tokenizer = ByteTokenizer.open(file);
+
+    for (int i = 0; i < count - 1; i++) {
+      tokenizer.next();
+      tokenizer.next();
+      tokenizer.next();
+    }
+    assertToken(TokenType.KEY, "modifier_" + (count - 1));
+    assertToken(TokenType.EQUALS, "=");
+    assertToken(TokenType.QUOTED, "\"\u00fcber\"");
+    assertThat(tokenizer.next(), is(TokenType.END));
+  }
+
+  // ---vvv--- PRIVATE ---vvv---
+  private static final Charset CHARSET = Charset.forName("Windows-1252");
+
+  private Tokenizer createTokenizer(String input) {
+    return factory.apply(input);
+  }
+
+  private void assertToken(TokenType expType, String expText) throws IOException {
+    assertThat(tokenizer.next(), is(expType));
+    assertThat(tokenizer.text(), is(expText));
+  }
+
+}